@@ -30,12 +30,19 @@ android {
 
 dependencies {
 
+    // 扫描核心（纯Java模块）
+    implementation(project(":core"))
+
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("com.google.android.material:material:1.8.0")
     
     // Room数据库
     implementation("androidx.room:room-runtime:2.5.0")
     annotationProcessor("androidx.room:room-compiler:2.5.0")
+    implementation("androidx.room:room-paging:2.5.0")
+    
+    // Paging：书架和章节列表按需分页加载
+    implementation("androidx.paging:paging-runtime:3.1.1")
     
     // Glide图片加载库
     implementation("com.github.bumptech.glide:glide:4.15.0")
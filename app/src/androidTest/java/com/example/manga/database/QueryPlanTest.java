@@ -0,0 +1,238 @@
+package com.example.manga.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.manga.model.Chapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 检查各个DAO中每条查询的EXPLAIN QUERY PLAN，
+ * 修改查询或索引后出现全表扫描或临时排序时失败。
+ * 语句直接取自DAO中供@Query使用的SQL常量，新增的常量也会被检查；命名参数用?代替。
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+    private static final String MIGRATION_DB_NAME = "query_plan_migration_test";
+
+    private static final Class<?>[] DAOS = {
+            ChapterDao.class, MangaDao.class, DirectorySnapshotDao.class, PageDao.class
+    };
+
+    // 有意读取或清空整张表的语句，不检查索引
+    private static final Set<String> FULL_TABLE_QUERIES = new HashSet<>(Arrays.asList(
+            DirectorySnapshotDao.SELECT_ALL,
+            DirectorySnapshotDao.DELETE_ALL,
+            PageDao.DELETE_ALL
+    ));
+
+    private Context context;
+    private MangaDatabase database;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = Room.inMemoryDatabaseBuilder(context, MangaDatabase.class).build();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        context.deleteDatabase(MIGRATION_DB_NAME);
+    }
+
+    @Test
+    public void chapterQueriesUseIndex() {
+        for (String sql : queries(ChapterDao.class)) {
+            assertUsesIndex(database, sql);
+        }
+    }
+
+    @Test
+    public void mangaQueriesUseIndex() {
+        for (String sql : queries(MangaDao.class)) {
+            assertUsesIndex(database, sql);
+        }
+    }
+
+    @Test
+    public void snapshotQueriesUseIndex() {
+        for (String sql : queries(DirectorySnapshotDao.class)) {
+            assertUsesIndex(database, sql);
+        }
+    }
+
+    @Test
+    public void pageQueriesUseIndex() {
+        for (String sql : queries(PageDao.class)) {
+            assertUsesIndex(database, sql);
+        }
+    }
+
+    // 从版本5升级后索引与新建的数据库一致，已有数据保留，查询同样使用索引
+    @Test
+    public void migrationFrom5CreatesIndexes() {
+        context.deleteDatabase(MIGRATION_DB_NAME);
+        SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(MIGRATION_DB_NAME), null);
+        try {
+            createVersion5Schema(legacy);
+            legacy.execSQL("INSERT INTO manga_table VALUES ('/manga/a', 'a', NULL, 0, 0, 1)");
+            legacy.execSQL("INSERT INTO chapter_table VALUES ('/manga/a/ch1', '/manga/a', 'ch1', 1, 3, 100, 20)");
+            legacy.setVersion(5);
+        } finally {
+            legacy.close();
+        }
+
+        // 迁移后的表结构与实体不一致时Room在打开时抛出异常
+        MangaDatabase migrated = Room.databaseBuilder(context, MangaDatabase.class, MIGRATION_DB_NAME)
+                .addMigrations(MangaDatabase.MIGRATIONS)
+                .allowMainThreadQueries()
+                .build();
+        try {
+            Chapter chapter = migrated.chapterDao().getChapterByPath("/manga/a/ch1");
+            assertNotNull(chapter);
+            assertEquals(3, chapter.getLastReadPage());
+
+            for (String table : new String[]{"chapter_table", "manga_table", "directory_snapshot_table"}) {
+                assertEquals(indexNames(database, table), indexNames(migrated, table));
+            }
+            for (Class<?> dao : DAOS) {
+                for (String sql : queries(dao)) {
+                    assertUsesIndex(migrated, sql);
+                }
+            }
+        } finally {
+            migrated.close();
+        }
+    }
+
+    // 每一步都不能是不使用索引的全表扫描，也不能用临时B树排序
+    private static void assertUsesIndex(MangaDatabase db, String sql) {
+        List<String> plan = explain(db, sql);
+        assertFalse("没有查询计划: " + sql, plan.isEmpty());
+        for (String detail : plan) {
+            assertFalse("全表扫描: " + sql + " -> " + plan,
+                    detail.startsWith("SCAN") && !detail.contains(" USING "));
+            assertFalse("临时排序: " + sql + " -> " + plan,
+                    detail.contains("TEMP B-TREE"));
+        }
+    }
+
+    // DAO接口中的SQL常量，不包括FULL_TABLE_QUERIES
+    private static List<String> queries(Class<?> dao) {
+        List<String> queries = new ArrayList<>();
+        for (Field field : dao.getFields()) {
+            if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            try {
+                String sql = (String) field.get(null);
+                if (!FULL_TABLE_QUERIES.contains(sql)) {
+                    queries.add(sql);
+                }
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            }
+        }
+        assertFalse("没有查询: " + dao.getSimpleName(), queries.isEmpty());
+        return queries;
+    }
+
+    private static List<String> explain(MangaDatabase db, String sql) {
+        // Room的命名参数（包括列表参数）换成单个?
+        sql = sql.replaceAll(":\\w+", "?");
+        int argCount = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                argCount++;
+            }
+        }
+        Object[] args = new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            args[i] = "x";
+        }
+
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        }
+        return plan;
+    }
+
+    // 只比较Room生成的索引，不包括主键的自动索引
+    private static Set<String> indexNames(MangaDatabase db, String table) {
+        Set<String> names = new HashSet<>();
+        try (Cursor cursor = db.query("PRAGMA index_list(`" + table + "`)", null)) {
+            int nameIndex = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(nameIndex);
+                if (name.startsWith("index_")) {
+                    names.add(name);
+                }
+            }
+        }
+        assertFalse("没有索引: " + table, names.isEmpty());
+        return names;
+    }
+
+    // 版本5的表结构，与MIGRATION_4_5之后的结构一致
+    private static void createVersion5Schema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `manga_table` ("
+                + "`path` TEXT NOT NULL, "
+                + "`title` TEXT, "
+                + "`coverPath` TEXT, "
+                + "`lastReadTime` INTEGER NOT NULL, "
+                + "`isFavorite` INTEGER NOT NULL, "
+                + "`totalChapters` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`path`))");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `chapter_table` ("
+                + "`path` TEXT NOT NULL, "
+                + "`mangaPath` TEXT, "
+                + "`title` TEXT, "
+                + "`chapterNumber` INTEGER NOT NULL, "
+                + "`lastReadPage` INTEGER NOT NULL, "
+                + "`lastReadTime` INTEGER NOT NULL, "
+                + "`totalPages` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`path`))");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `directory_snapshot_table` ("
+                + "`path` TEXT NOT NULL, "
+                + "`parentPath` TEXT, "
+                + "`lastModified` INTEGER NOT NULL, "
+                + "`childCount` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`path`))");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `page_table` ("
+                + "`chapterPath` TEXT NOT NULL, "
+                + "`pageIndex` INTEGER NOT NULL, "
+                + "`fileName` TEXT, "
+                + "`size` INTEGER NOT NULL, "
+                + "`lastModified` INTEGER NOT NULL, "
+                + "`width` INTEGER NOT NULL, "
+                + "`height` INTEGER NOT NULL, "
+                + "`colorMode` INTEGER NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY(`chapterPath`, `pageIndex`))");
+    }
+}
@@ -26,13 +26,17 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.example.manga.adapter.MangaGridAdapter;
-import com.example.manga.model.Manga;
+import com.example.manga.service.LibraryWatcherService;
+import com.example.manga.model.MangaSummary;
 import com.example.manga.viewmodel.MangaViewModel;
 import com.google.android.material.navigation.NavigationView;
 import com.example.manga.util.ToastUtil;
@@ -43,6 +47,8 @@ import java.util.ArrayList;
 import java.util.List;
 import android.widget.FrameLayout;
 
+import kotlin.Unit;
+
 public class MainActivity extends AppCompatActivity implements NavigationView.OnNavigationItemSelectedListener, MangaGridAdapter.OnMangaClickListener {
 
     private static final String TAG = "MainActivity";
@@ -56,6 +62,8 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     private RecyclerView mangaRecyclerView;
     private SwipeRefreshLayout swipeRefreshLayout;
     private MangaGridAdapter mangaAdapter;
+    // 书架当前显示的分页列表（所有漫画、历史或收藏）
+    private LiveData<PagingData<MangaSummary>> currentMangaSource;
     private MangaViewModel viewModel;
     private FrameLayout contentFrame;
     
@@ -97,32 +105,54 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             navigationView.setNavigationItemSelectedListener(this);
             
             // 设置RecyclerView
-            mangaRecyclerView.setLayoutManager(new GridLayoutManager(this, 2));
+            mangaRecyclerView.setLayoutManager(new GridLayoutManager(this, MangaGridAdapter.SPAN_COUNT));
             mangaAdapter = new MangaGridAdapter(this, this);
             mangaRecyclerView.setAdapter(mangaAdapter);
             
             // 初始化ViewModel
             viewModel = new ViewModelProvider(this).get(MangaViewModel.class);
             
-            // 观察数据变化
-            viewModel.getAllManga().observe(this, mangaList -> {
-                if (mangaList != null && !mangaList.isEmpty()) {
-                    mangaAdapter.setMangaList(mangaList);
+            // 观察数据变化：书架按页加载，每次读取完成后根据是否有漫画切换空视图
+            mangaAdapter.addLoadStateListener(loadStates -> {
+                if (!(loadStates.getRefresh() instanceof LoadState.NotLoading)) {
+                    return Unit.INSTANCE;
+                }
+                if (mangaAdapter.getItemCount() > 0) {
                     showEmptyView(false);
-                } else {
+                    // 扫描过程中已有漫画显示时不再遮挡书架
+                    progressBar.setVisibility(View.GONE);
+                } else if (loadStates.getAppend().getEndOfPaginationReached()
+                        && !Boolean.TRUE.equals(viewModel.getIsLoading().getValue())) {
                     showEmptyView(true);
                 }
+                return Unit.INSTANCE;
             });
+            showMangaSource(viewModel.getAllMangaPaged());
             
             // 观察加载状态
             viewModel.getIsLoading().observe(this, isLoading -> {
-                progressBar.setVisibility(isLoading ? View.VISIBLE : View.GONE);
+                progressBar.setVisibility(isLoading && mangaAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
                 // 如果数据加载完成，停止刷新动画
                 if (!isLoading && swipeRefreshLayout.isRefreshing()) {
                     swipeRefreshLayout.setRefreshing(false);
                 }
                 if (isLoading) {
                     showEmptyView(false);
+                } else if (mangaAdapter.getItemCount() == 0) {
+                    showEmptyView(true);
+                }
+            });
+            
+            // 观察扫描进度，在标题栏显示已处理的漫画数量
+            viewModel.getScanProgress().observe(this, progress -> {
+                if (getSupportActionBar() == null) {
+                    return;
+                }
+                if (progress == null || progress.isFinished()) {
+                    getSupportActionBar().setSubtitle(null);
+                } else {
+                    getSupportActionBar().setSubtitle(getString(R.string.scan_progress,
+                            progress.getScanned(), progress.getDiscovered()));
                 }
             });
             
@@ -213,6 +243,11 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     }
     
     private void scanMangaDirectory() {
+        scanMangaDirectory(true);
+    }
+    
+    // incremental为false时重新扫描所有漫画和章节，下拉刷新时使用
+    private void scanMangaDirectory(boolean incremental) {
         String currentFolder = DEFAULT_MANGA_FOLDER;
         
         Log.d(TAG, "扫描默认漫画目录: " + currentFolder);
@@ -273,9 +308,10 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
             return;
         }
         
-        // 确认目录没有问题后再扫描
+        // 确认目录没有问题后再扫描，之后由监听服务保持索引更新
         try {
-            viewModel.scanMangaDirectory(currentFolder);
+            viewModel.scanMangaDirectory(currentFolder, incremental);
+            LibraryWatcherService.start(this, currentFolder);
         } catch (Exception e) {
             Log.e(TAG, "扫描漫画目录时出错: " + e.getMessage(), e);
             ToastUtil.showLong(this, "扫描漫画目录时出错: " + e.getMessage());
@@ -353,40 +389,31 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     // 加载库页面（所有漫画）
     public void loadLibraryFragment() {
         showMangaRecyclerView();
-        
-        viewModel.getAllManga().removeObservers(this);
-        viewModel.getAllManga().observe(this, mangaList -> {
-            if (mangaList != null) {
-                mangaAdapter.setMangaList(mangaList);
-                showEmptyView(mangaList.isEmpty());
-            }
-        });
+        showMangaSource(viewModel.getAllMangaPaged());
     }
     
     // 加载历史页面
     private void loadHistoryFragment() {
         showMangaRecyclerView();
-        
-        viewModel.getAllManga().removeObservers(this);
-        viewModel.getRecentManga().observe(this, mangaList -> {
-            if (mangaList != null) {
-                mangaAdapter.setMangaList(mangaList);
-                showEmptyView(mangaList.isEmpty());
-            }
-        });
+        showMangaSource(viewModel.getRecentMangaPaged());
     }
     
     // 加载收藏页面
     private void loadFavoritesFragment() {
         showMangaRecyclerView();
-        
-        viewModel.getAllManga().removeObservers(this);
-        viewModel.getFavoriteManga().observe(this, mangaList -> {
-            if (mangaList != null) {
-                mangaAdapter.setMangaList(mangaList);
-                showEmptyView(mangaList.isEmpty());
-            }
-        });
+        showMangaSource(viewModel.getFavoriteMangaPaged());
+    }
+    
+    // 切换书架显示的列表，只观察当前列表
+    private void showMangaSource(LiveData<PagingData<MangaSummary>> source) {
+        if (currentMangaSource == source) {
+            return;
+        }
+        if (currentMangaSource != null) {
+            currentMangaSource.removeObservers(this);
+        }
+        currentMangaSource = source;
+        source.observe(this, pagingData -> mangaAdapter.submitData(getLifecycle(), pagingData));
     }
     
     // 加载教程页面
@@ -417,8 +444,8 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
     }
     
     @Override
-    public void onMangaClick(Manga manga) {
-        Intent intent = MangaDetailActivity.newIntent(this, manga);
+    public void onMangaClick(MangaSummary manga) {
+        Intent intent = MangaDetailActivity.newIntent(this, manga.getPath());
         startActivity(intent);
     }
     
@@ -442,9 +469,9 @@ public class MainActivity extends AppCompatActivity implements NavigationView.On
                 
         // 设置刷新监听器
         swipeRefreshLayout.setOnRefreshListener(() -> {
-            Log.d(TAG, "下拉刷新触发，重新扫描漫画目录");
+            Log.d(TAG, "下拉刷新触发，完整扫描漫画目录");
             ToastUtil.showShort(MainActivity.this, "正在刷新漫画目录...");
-            scanMangaDirectory();
+            scanMangaDirectory(false);
         });
     }
 
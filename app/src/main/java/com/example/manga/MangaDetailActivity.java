@@ -15,18 +15,22 @@ import androidx.annotation.StringRes;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.manga.adapter.ChapterAdapter;
 import com.example.manga.model.Chapter;
+import com.example.manga.model.ChapterSummary;
 import com.example.manga.model.Manga;
 import com.example.manga.viewmodel.MangaViewModel;
 import com.google.android.material.tabs.TabLayout;
 
 import java.io.File;
 
+import kotlin.Unit;
+
+import com.example.manga.util.CoverLoader;
 import com.example.manga.util.ToastUtil;
 
 public class MangaDetailActivity extends AppCompatActivity implements ChapterAdapter.OnChapterClickListener {
@@ -50,9 +54,9 @@ public class MangaDetailActivity extends AppCompatActivity implements ChapterAda
     private Manga currentManga;
     private boolean isFavorite = false;
 
-    public static Intent newIntent(Context context, Manga manga) {
+    public static Intent newIntent(Context context, String mangaPath) {
         Intent intent = new Intent(context, MangaDetailActivity.class);
-        intent.putExtra(EXTRA_MANGA_PATH, manga.getPath());
+        intent.putExtra(EXTRA_MANGA_PATH, mangaPath);
         return intent;
     }
 
@@ -160,19 +164,14 @@ public class MangaDetailActivity extends AppCompatActivity implements ChapterAda
     
     private void loadMangaDetails() {
         try {
-            viewModel.getAllManga().observe(this, mangaList -> {
-                if (mangaList != null) {
-                    for (Manga manga : mangaList) {
-                        if (manga.getPath().equals(mangaPath)) {
-                            currentManga = manga;
-                            displayMangaDetails(manga);
-                            
-                            // 检查是否有阅读历史，更新按钮文本
-                            checkReadingHistory();
-                            
-                            break;
-                        }
-                    }
+            // 只观察这一部漫画，收藏状态和阅读时间变化时更新
+            viewModel.getManga(mangaPath).observe(this, manga -> {
+                if (manga != null) {
+                    currentManga = manga;
+                    displayMangaDetails(manga);
+                    
+                    // 检查是否有阅读历史，更新按钮文本
+                    checkReadingHistory();
                 }
             });
         } catch (Exception e) {
@@ -184,16 +183,10 @@ public class MangaDetailActivity extends AppCompatActivity implements ChapterAda
         // 设置标题
         getSupportActionBar().setTitle(manga.getTitle());
         
-        // 加载封面图片
-        if (manga.getCoverPath() != null) {
-            Glide.with(this)
-                    .load(new File(manga.getCoverPath()))
-                    .placeholder(R.drawable.ic_manga_placeholder)
-                    .error(R.drawable.ic_manga_placeholder)
-                    .into(coverImageView);
-        } else {
-            coverImageView.setImageResource(R.drawable.ic_manga_placeholder);
-        }
+        // 加载封面图片，按封面视图的尺寸缩小解码
+        CoverLoader.load(coverImageView, manga.getCoverPath(),
+                getResources().getDimensionPixelSize(R.dimen.detail_cover_width),
+                getResources().getDimensionPixelSize(R.dimen.detail_cover_height));
         
         // 设置描述（使用文件夹名称）
         descriptionTextView.setText(manga.getTitle());
@@ -211,44 +204,52 @@ public class MangaDetailActivity extends AppCompatActivity implements ChapterAda
         progressBar.setVisibility(View.VISIBLE);
         emptyView.setVisibility(View.GONE);
         
-        viewModel.getChapters(mangaPath).observe(this, chapters -> {
-            progressBar.setVisibility(View.GONE);
-            
-            if (chapters != null && !chapters.isEmpty()) {
-                chapterAdapter.setChapterList(chapters);
-                emptyView.setVisibility(View.GONE);
-                chapterRecyclerView.setVisibility(View.VISIBLE);
-            } else {
-                emptyView.setVisibility(View.VISIBLE);
-                chapterRecyclerView.setVisibility(View.GONE);
+        // 章节按页加载，第一页读取完成后隐藏进度条，没有章节时显示空视图
+        chapterAdapter.addLoadStateListener(loadStates -> {
+            if (loadStates.getRefresh() instanceof LoadState.Loading) {
+                return Unit.INSTANCE;
             }
+            progressBar.setVisibility(View.GONE);
+            boolean empty = loadStates.getRefresh() instanceof LoadState.NotLoading
+                    && loadStates.getAppend().getEndOfPaginationReached()
+                    && chapterAdapter.getItemCount() == 0;
+            emptyView.setVisibility(empty ? View.VISIBLE : View.GONE);
+            chapterRecyclerView.setVisibility(empty ? View.GONE : View.VISIBLE);
+            return Unit.INSTANCE;
         });
+        
+        viewModel.getChaptersPaged(mangaPath).observe(this, pagingData ->
+                chapterAdapter.submitData(getLifecycle(), pagingData));
     }
     
     private void startReaderActivity(Chapter chapter) {
         // 更新漫画的最后阅读时间
         viewModel.updateMangaLastReadTime(mangaPath);
         
-        // 启动阅读器 - 使用新的 ReaderActivity
-        Intent intent = new Intent(this, ReaderActivity.class);
+        // 启动阅读器 - 开启连续滚动时使用 ScrollReaderActivity，否则使用 ReaderActivity
+        boolean continuousScroll = getSharedPreferences(SettingsActivity.PREFS_NAME, MODE_PRIVATE)
+                .getBoolean(SettingsActivity.KEY_CONTINUOUS_SCROLL, false);
+        Intent intent = new Intent(this, continuousScroll ? ScrollReaderActivity.class : ReaderActivity.class);
         intent.putExtra("manga", currentManga);
         intent.putExtra("chapter", chapter);
         startActivity(intent);
     }
 
     @Override
-    public void onChapterClick(Chapter chapter) {
-        Log.d(TAG, "Chapter clicked: " + chapter.getTitle() 
-                + ", path: " + chapter.getPath()
-                + ", manga path: " + chapter.getMangaPath()
+    public void onChapterClick(ChapterSummary summary) {
+        Log.d(TAG, "Chapter clicked: " + summary.getTitle() 
+                + ", path: " + summary.getPath()
                 + ", manga folder path: " + mangaPath);
-                
-        // 确保章节路径存在且包含图片
-        if (isValidChapter(chapter)) {
-            startReaderActivity(chapter);
-        } else {
-            ToastUtil.showLong(this, "章节无效或不包含图片: " + chapter.getTitle());
-        }
+        
+        // 列表中只有章节的投影，打开阅读器前读取完整的章节记录
+        viewModel.getChapterByPath(summary.getPath(), chapter -> runOnUiThread(() -> {
+            // 确保章节路径存在且包含图片
+            if (chapter != null && isValidChapter(chapter)) {
+                startReaderActivity(chapter);
+            } else {
+                ToastUtil.showLong(this, "章节无效或不包含图片: " + summary.getTitle());
+            }
+        }));
     }
     
     @Override
@@ -293,29 +294,21 @@ public class MangaDetailActivity extends AppCompatActivity implements ChapterAda
         });
     }
     
-    // 检查章节是否有效（目录存在且包含图片）
+    // 检查章节是否有效（目录存在且包含图片），页数来自扫描时写入的章节记录，不再列出目录
     private boolean isValidChapter(Chapter chapter) {
-        File chapterDir = new File(chapter.getPath());
-        if (!chapterDir.exists() || !chapterDir.isDirectory()) {
-            Log.e(TAG, "Chapter directory does not exist: " + chapter.getPath());
+        if (chapter.getTotalPages() <= 0) {
+            Log.e(TAG, "Chapter contains no images: " + chapter.getTitle());
             return false;
         }
         
-        // 检查章节文件夹中是否包含图片文件
-        File[] imageFiles = chapterDir.listFiles(file -> {
-            if (file.isFile()) {
-                String name = file.getName().toLowerCase();
-                return name.endsWith(".jpg") || name.endsWith(".jpeg") || 
-                       name.endsWith(".png") || name.endsWith(".webp") || 
-                       name.endsWith(".gif");
-            }
+        File chapterDir = new File(chapter.getPath());
+        if (!chapterDir.isDirectory()) {
+            Log.e(TAG, "Chapter directory does not exist: " + chapter.getPath());
             return false;
-        });
+        }
         
-        boolean hasImages = (imageFiles != null && imageFiles.length > 0);
-        Log.d(TAG, "Chapter " + chapter.getTitle() + " contains " + 
-                (hasImages ? imageFiles.length + " images" : "no images"));
-        return hasImages;
+        Log.d(TAG, "Chapter " + chapter.getTitle() + " contains " + chapter.getTotalPages() + " images");
+        return true;
     }
 
     // 检查阅读历史并更新按钮文本
@@ -0,0 +1,74 @@
+package com.example.manga;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+import com.example.manga.cover.CoverThumbnail;
+import com.example.manga.cover.CoverThumbnailLoader;
+import com.example.manga.cover.CoverThumbnailStore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Glide的全局配置。阅读器的页面由PageDecoder解码，Glide只用来加载封面，
+ * 内存缓存和Bitmap池按设备内存等级设置，不需要占用太多内存。
+ * 图片都是本地文件，默认不写磁盘缓存：书架的封面缩略图保存在CoverThumbnailStore中，
+ * 详情页的封面缩小后使用DiskCacheStrategy.RESOURCE（见CoverLoader）。
+ */
+@GlideModule
+public final class MangaGlideModule extends AppGlideModule {
+    private static final String TAG = "MangaGlideModule";
+    // 内存等级不超过这个值（MB）的设备按低内存设备处理
+    private static final int LOW_MEMORY_CLASS = 192;
+    // 缩小后的封面占用的磁盘缓存
+    private static final long DISK_CACHE_SIZE = 64L * 1024 * 1024;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowMemory = activityManager == null || activityManager.isLowRamDevice()
+                || activityManager.getMemoryClass() <= LOW_MEMORY_CLASS;
+
+        // 缓存大小以一屏图片占用的内存为单位
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(lowMemory ? 1 : 2)
+                .setBitmapPoolScreens(lowMemory ? 1 : 2)
+                .build();
+        builder.setMemorySizeCalculator(calculator);
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_SIZE));
+
+        // 低内存设备的封面使用RGB_565，内存占用减半
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .format(lowMemory ? DecodeFormat.PREFER_RGB_565 : DecodeFormat.PREFER_ARGB_8888)
+                .diskCacheStrategy(DiskCacheStrategy.NONE));
+
+        Log.d(TAG, "Glide memory cache: " + (calculator.getMemoryCacheSize() / 1024) + "KB, bitmap pool: "
+                + (calculator.getBitmapPoolSize() / 1024) + "KB, low memory: " + lowMemory);
+    }
+
+    // 书架的封面从缩略图仓库读取
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(CoverThumbnail.class, ByteBuffer.class,
+                new CoverThumbnailLoader.Factory(CoverThumbnailStore.getInstance(context)));
+    }
+
+    // 没有使用清单中声明的旧版GlideModule，跳过解析
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -17,6 +17,9 @@ import androidx.viewpager2.widget.ViewPager2;
 
 import com.example.manga.adapter.MangaPageAdapter;
 import com.example.manga.model.Chapter;
+import com.example.manga.reader.PageCache;
+import com.example.manga.reader.PageColorRecorder;
+import com.example.manga.reader.PagePrefetcher;
 import com.example.manga.viewmodel.MangaViewModel;
 import com.example.manga.util.ToastUtil;
 
@@ -33,6 +36,9 @@ public class MangaReaderActivity extends AppCompatActivity {
     private MangaViewModel viewModel;
     private ViewPager2 viewPager;
     private MangaPageAdapter adapter;
+    // 相邻页面的预加载，与ReaderActivity共用同一个页面缓存
+    private PagePrefetcher pagePrefetcher;
+    private PageColorRecorder pageColorRecorder;
     private SeekBar pageSeekBar;
     private TextView pageNumberText;
     private Button prevButton, nextButton;
@@ -96,14 +102,22 @@ public class MangaReaderActivity extends AppCompatActivity {
             viewModel = new ViewModelProvider(this).get(MangaViewModel.class);
             
             // 初始化适配器
+            PageCache.getInstance().setDecodeProfile(SettingsActivity.getDecodeProfile(this));
             adapter = new MangaPageAdapter(this);
             viewPager.setAdapter(adapter);
+            pagePrefetcher = new PagePrefetcher(PageCache.getInstance());
+            pageColorRecorder = new PageColorRecorder(viewModel, PageCache.getInstance());
+            pageColorRecorder.attach();
             
             // 设置翻页监听
             viewPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
                 @Override
                 public void onPageSelected(int position) {
                     updatePageDisplay(position);
+                    // 预加载前后几页
+                    pagePrefetcher.onPageChanged(position,
+                            getResources().getDisplayMetrics().widthPixels,
+                            getResources().getDisplayMetrics().heightPixels);
                     // 保存阅读进度
                     if (currentChapter != null) {
                         Log.d(TAG, "Updating read progress for chapter: " + currentChapter.getTitle() 
@@ -157,14 +171,17 @@ public class MangaReaderActivity extends AppCompatActivity {
     }
     
     private void loadChapter() {
-        // 获取章节页面
-        viewModel.getChapterPages(chapterPath, pageList -> {
+        // 读回之前检测过的黑白页面
+        pageColorRecorder.loadChapter(chapterPath);
+        // 获取章节页面，回调在后台线程，列表和视图在主线程更新
+        viewModel.getChapterPages(chapterPath, pageList -> runOnUiThread(() -> {
             if (pageList != null && !pageList.isEmpty()) {
                 this.pageList = pageList;
                 totalPages = pageList.size();
                 
                 // 更新适配器
                 adapter.setPageList(pageList);
+                pagePrefetcher.setPages(pageList);
                 
                 // 设置SeekBar
                 pageSeekBar.setMax(totalPages - 1);
@@ -187,7 +204,7 @@ public class MangaReaderActivity extends AppCompatActivity {
                 ToastUtil.showLong(this, getString(R.string.error_loading_manga));
                 finish();
             }
-        });
+        }));
     }
     
     private void queryChapterFromDatabase() {
@@ -280,6 +297,38 @@ public class MangaReaderActivity extends AppCompatActivity {
         nextButton.setEnabled(position < totalPages - 1);
     }
     
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // 离开阅读器时写入合并的阅读进度
+        if (viewModel != null) {
+            viewModel.flushReadProgress();
+        }
+    }
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (adapter != null) {
+            adapter.release();
+        }
+        if (pagePrefetcher != null) {
+            pagePrefetcher.shutdown();
+        }
+        if (pageColorRecorder != null) {
+            pageColorRecorder.detach();
+        }
+    }
+    
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        PageCache.getInstance().trimMemory(level);
+        if (viewModel != null) {
+            viewModel.flushReadProgress();
+        }
+    }
+    
     @Override
     public boolean onSupportNavigateUp() {
         onBackPressed();
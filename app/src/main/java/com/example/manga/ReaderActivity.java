@@ -5,7 +5,6 @@ import android.animation.AnimatorListenerAdapter;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.AudioManager;
 import android.os.Bundle;
 import android.util.Log;
@@ -29,13 +28,18 @@ import com.example.manga.R;
 import com.example.manga.SettingsActivity;
 import com.example.manga.model.Chapter;
 import com.example.manga.model.Manga;
+import com.example.manga.reader.ChapterPrefetcher;
+import com.example.manga.reader.GrayscalePages;
+import com.example.manga.reader.PageCache;
+import com.example.manga.reader.PageColorRecorder;
+import com.example.manga.reader.PageDecoder;
+import com.example.manga.reader.PagePrefetcher;
+import com.example.manga.reader.TiledPageView;
 import com.example.manga.viewmodel.MangaViewModel;
 import com.github.chrisbanes.photoview.PhotoView;
 import com.example.manga.util.ToastUtil;
 
-import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class ReaderActivity extends AppCompatActivity {
@@ -59,6 +63,37 @@ public class ReaderActivity extends AppCompatActivity {
     private List<String> imageFilePaths = new ArrayList<>();
     private MangaViewModel viewModel;
     
+    // 页面解码器，图片在后台线程中按显示区域大小解码
+    private PageDecoder pageDecoder;
+    // 正在解码的页面，翻页时取消
+    private PageDecoder.Request pendingDecode;
+    // 相邻页面的预加载，与MangaReaderActivity共用同一个页面缓存
+    private PagePrefetcher pagePrefetcher;
+    // 接近章节末尾时提前准备下一章，翻到下一章时不需要再等待查询和解码
+    private ChapterPrefetcher chapterPrefetcher;
+    private PageColorRecorder pageColorRecorder;
+    private PageCache pageCache;
+    // 当前显示的页面，显示期间在页面缓存中标记为使用中，不会被复用
+    private Bitmap displayedBitmap;
+    // 超大页面放大后的分块显示，覆盖在主页面视图之上
+    private TiledPageView tiledPageView;
+    // PhotoView默认的最大放大倍数
+    private static final float DEFAULT_MAXIMUM_SCALE = 3.0f;
+    
+    // 翻页动画中滑入的页面视图，只创建一次，动画结束后隐藏
+    private PhotoView flipImageView;
+    // 正在滑入的页面
+    private Bitmap flipBitmap;
+    private int flipPageIndex;
+    private static final AccelerateInterpolator SLIDE_OUT_INTERPOLATOR = new AccelerateInterpolator();
+    private static final DecelerateInterpolator SLIDE_IN_INTERPOLATOR = new DecelerateInterpolator();
+    private final AnimatorListenerAdapter flipEndListener = new AnimatorListenerAdapter() {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            finishPageAnimation();
+        }
+    };
+    
     // 翻页相关变量
     private float startX;
     private float startY;
@@ -88,6 +123,14 @@ public class ReaderActivity extends AppCompatActivity {
             return;
         }
         
+        pageCache = PageCache.getInstance();
+        pageCache.setDecodeProfile(SettingsActivity.getDecodeProfile(this));
+        pageDecoder = new PageDecoder(pageCache);
+        pagePrefetcher = new PagePrefetcher(pageCache);
+        chapterPrefetcher = new ChapterPrefetcher(viewModel, pageCache);
+        pageColorRecorder = new PageColorRecorder(viewModel, pageCache);
+        pageColorRecorder.attach();
+        
         // 设置UI和监听器
         setupControls();
         
@@ -119,6 +162,55 @@ public class ReaderActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // 离开阅读器时写入合并的阅读进度
+        if (viewModel != null) {
+            viewModel.flushReadProgress();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pendingDecode != null) {
+            pendingDecode.cancel();
+            pendingDecode = null;
+        }
+        if (pageDecoder != null) {
+            pageDecoder.shutdown();
+        }
+        if (pagePrefetcher != null) {
+            pagePrefetcher.shutdown();
+        }
+        if (chapterPrefetcher != null) {
+            chapterPrefetcher.shutdown();
+        }
+        if (pageColorRecorder != null) {
+            pageColorRecorder.detach();
+        }
+        if (tiledPageView != null) {
+            tiledPageView.release();
+        }
+        if (pageCache != null) {
+            pageCache.unpin(displayedBitmap);
+            pageCache.unpin(flipBitmap);
+            displayedBitmap = null;
+            flipBitmap = null;
+            Log.d(TAG, "Page cache stats: " + pageCache);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        PageCache.getInstance().trimMemory(level);
+        if (viewModel != null) {
+            viewModel.flushReadProgress();
+        }
+    }
+
     private void applyTheme() {
         // 从SharedPreferences读取主题设置
         SharedPreferences prefs = getSharedPreferences(SettingsActivity.PREFS_NAME, MODE_PRIVATE);
@@ -151,6 +243,7 @@ public class ReaderActivity extends AppCompatActivity {
         topControlsLayout = findViewById(R.id.topControlsLayout);
         bottomControlsLayout = findViewById(R.id.bottomControlsLayout);
         imageView = findViewById(R.id.imageView);
+        tiledPageView = findViewById(R.id.tiledPageView);
         seekBar = findViewById(R.id.seekBar);
         tvPageInfo = findViewById(R.id.tvPageInfo);
         btnPrev = findViewById(R.id.btnPrev);
@@ -162,6 +255,9 @@ public class ReaderActivity extends AppCompatActivity {
         // 设置章节标题
         tvChapterTitle.setText(chapter.getTitle());
 
+        // 缩放和滚动时更新分块显示的图块
+        imageView.setOnMatrixChangeListener(tiledPageView::setDisplayRect);
+
         // 设置基本触摸和点击事件
         setupTouchEvents();
         
@@ -306,35 +402,34 @@ public class ReaderActivity extends AppCompatActivity {
     }
     
     private void loadChapterImages() {
-        try {
-            // 获取章节文件夹路径
-            File chapterDir = new File(chapter.getPath());
-            if (!chapterDir.exists() || !chapterDir.isDirectory()) {
-                ToastUtil.showShort(this, "章节目录不存在");
-                finish();
+        // 页面列表来自页面表，只有章节目录变化时才会重新列出目录
+        if (pendingDecode != null) {
+            pendingDecode.cancel();
+            pendingDecode = null;
+        }
+        final Chapter loadingChapter = chapter;
+        viewModel.getChapterPages(loadingChapter.getPath(), pages -> runOnUiThread(() -> {
+            if (isFinishing() || loadingChapter != chapter) {
                 return;
             }
-            
-            // 获取所有图片文件
-            File[] files = chapterDir.listFiles((dir, name) -> 
-                    name.toLowerCase().endsWith(".jpg") || 
-                    name.toLowerCase().endsWith(".jpeg") || 
-                    name.toLowerCase().endsWith(".png"));
-            
-            if (files == null || files.length == 0) {
+            onChapterImagesLoaded(pages);
+        }));
+    }
+    
+    private void onChapterImagesLoaded(List<String> pages) {
+        try {
+            if (pages == null || pages.isEmpty()) {
                 ToastUtil.showShort(this, "章节内未找到图片");
                 finish();
                 return;
             }
             
-            // 排序文件
-            Arrays.sort(files, (f1, f2) -> f1.getName().compareTo(f2.getName()));
-            
             // 清空列表并添加所有图片
             imageFilePaths.clear();
-            for (File file : files) {
-                imageFilePaths.add(file.getAbsolutePath());
-            }
+            imageFilePaths.addAll(pages);
+            pagePrefetcher.setPages(imageFilePaths);
+            // 读回之前检测过的黑白页面
+            pageColorRecorder.loadChapter(chapter.getPath());
             
             // 设置总页数
             totalPages = imageFilePaths.size();
@@ -448,23 +543,10 @@ public class ReaderActivity extends AppCompatActivity {
         currentPage = pageIndex;
         
         try {
-            // 加载图片并显示
-            File imageFile = new File(imageFilePaths.get(pageIndex));
-            if (imageFile.exists()) {
-                Bitmap bitmap = BitmapFactory.decodeFile(imageFile.getAbsolutePath());
-                imageView.setImageBitmap(bitmap);
-            } else {
-                ToastUtil.showShort(this, "无法加载图片：文件不存在");
-            }
-            
-            // 更新页面信息
-            tvPageInfo.setText(getString(R.string.page_number, currentPage + 1, totalPages));
-            
-            // 更新 SeekBar 位置
-            seekBar.setProgress(currentPage);
+            updatePageInfo(pageIndex);
             
-            // 更新阅读进度
-            viewModel.updateReadProgress(chapter.getPath(), pageIndex);
+            // 在后台解码图片，完成后显示
+            decodePage(pageIndex, this::showPageBitmap);
             
             // 预加载相邻页面
             preloadAdjacentPages(pageIndex);
@@ -475,30 +557,79 @@ public class ReaderActivity extends AppCompatActivity {
         }
     }
     
+    // 更新页码、进度条和阅读进度
+    private void updatePageInfo(int pageIndex) {
+        // 更新页面信息
+        tvPageInfo.setText(getString(R.string.page_number, pageIndex + 1, totalPages));
+        
+        // 更新 SeekBar 位置
+        seekBar.setProgress(pageIndex);
+        
+        // 更新阅读进度
+        viewModel.updateReadProgress(chapter.getPath(), pageIndex);
+        
+        // 接近章节末尾时准备下一章
+        chapterPrefetcher.onPageChanged(manga.getPath(), chapter, pageIndex, totalPages,
+                getResources().getDisplayMetrics().widthPixels,
+                getResources().getDisplayMetrics().heightPixels);
+    }
+    
+    // 在主页面视图上显示页面，之前显示的页面不再标记为使用中。
+    // bitmap已标记为使用中（来自PageDecoder的回调或动画中的页面），这里接管这次标记
+    private void showPageBitmap(String path, Bitmap bitmap) {
+        Bitmap previous = displayedBitmap;
+        displayedBitmap = bitmap;
+        updateMaximumScale(bitmap);
+        GrayscalePages.setImageBitmap(imageView, bitmap);
+        pageCache.unpin(previous);
+        
+        // 与整页使用相同的解码尺寸，整页被缩小解码时放大后分块显示原图细节
+        tiledPageView.setPage(path,
+                getResources().getDisplayMetrics().widthPixels,
+                getResources().getDisplayMetrics().heightPixels);
+    }
+    
+    // 长条漫画按宽度铺满屏幕需要的放大倍数会超过PhotoView默认的最大倍数，
+    // 最大倍数放宽到铺满屏幕宽度（或高度）之后还能再放大一倍
+    private void updateMaximumScale(Bitmap bitmap) {
+        int viewWidth = imageView.getWidth();
+        int viewHeight = imageView.getHeight();
+        float maximumScale = DEFAULT_MAXIMUM_SCALE;
+        if (viewWidth > 0 && viewHeight > 0) {
+            float fitScale = Math.min((float) viewWidth / bitmap.getWidth(), (float) viewHeight / bitmap.getHeight());
+            float fillScale = Math.max(viewWidth / (bitmap.getWidth() * fitScale),
+                    viewHeight / (bitmap.getHeight() * fitScale));
+            maximumScale = Math.max(maximumScale, fillScale * 2);
+        }
+        imageView.setMaximumScale(maximumScale);
+    }
+    
+    // 取消上一次未完成的解码，在后台按PhotoView的显示区域解码指定页面，成功后在主线程回调
+    private void decodePage(int pageIndex, final PageDecoder.Callback onDecoded) {
+        if (pendingDecode != null) {
+            pendingDecode.cancel();
+        }
+        
+        // 按屏幕尺寸解码，与预加载和MangaReaderActivity使用相同的缓存键
+        int width = getResources().getDisplayMetrics().widthPixels;
+        int height = getResources().getDisplayMetrics().heightPixels;
+        pendingDecode = pageDecoder.decode(imageFilePaths.get(pageIndex), width, height, (path, bitmap) -> {
+            pendingDecode = null;
+            if (bitmap == null) {
+                ToastUtil.showShort(this, "无法加载图片：" + path);
+                return;
+            }
+            onDecoded.onPageDecoded(path, bitmap);
+        });
+    }
+    
     /**
-     * 预加载相邻页面的图片
+     * 预加载相邻页面的图片，已离开预加载窗口的任务会被取消
      */
     private void preloadAdjacentPages(int currentPageIndex) {
-        // 在后台线程中执行预加载，避免阻塞UI
-        new Thread(() -> {
-            try {
-                // 预加载下一页
-                if (currentPageIndex + 1 < totalPages) {
-                    String nextPagePath = imageFilePaths.get(currentPageIndex + 1);
-                    BitmapFactory.decodeFile(nextPagePath);
-                    Log.d(TAG, "预加载下一页: " + nextPagePath);
-                }
-                
-                // 预加载上一页
-                if (currentPageIndex - 1 >= 0) {
-                    String prevPagePath = imageFilePaths.get(currentPageIndex - 1);
-                    BitmapFactory.decodeFile(prevPagePath);
-                    Log.d(TAG, "预加载上一页: " + prevPagePath);
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "预加载图片出错: " + e.getMessage(), e);
-            }
-        }).start();
+        pagePrefetcher.onPageChanged(currentPageIndex,
+                getResources().getDisplayMetrics().widthPixels,
+                getResources().getDisplayMetrics().heightPixels);
     }
     
     // 添加页面切换动画
@@ -507,101 +638,116 @@ public class ReaderActivity extends AppCompatActivity {
             return;
         }
         
-        isAnimating = true;
-        
         // 确定动画方向：左滑还是右滑
         final boolean isNextPage = newPageIndex > currentPage;
         
-        // 准备新的图片
+        // 页码和进度立即更新，图片解码完成后再播放动画；解码期间再次翻页会取消这次解码
+        currentPage = newPageIndex;
+        updatePageInfo(newPageIndex);
+        decodePage(newPageIndex, (path, newBitmap) -> startPageAnimation(newPageIndex, newBitmap, isNextPage));
+    }
+    
+    // 新页面从屏幕一侧滑入，当前页面从另一侧滑出
+    private void startPageAnimation(int newPageIndex, final Bitmap newBitmap, boolean isNextPage) {
+        if (isAnimating) {
+            pageCache.unpin(newBitmap);
+            return;
+        }
+        
+        isAnimating = true;
+        
+        // 动画期间新页面保持PageDecoder回调时的使用标记，动画结束后交给主页面视图
+        flipBitmap = newBitmap;
+        flipPageIndex = newPageIndex;
+        // 分块显示的图块不跟随页面滑动，动画期间先清空
+        tiledPageView.clear();
+        
         try {
-            File imageFile = new File(imageFilePaths.get(newPageIndex));
-            if (!imageFile.exists()) {
-                ToastUtil.showShort(this, "无法加载图片：文件不存在");
-                isAnimating = false;
+            View container = findViewById(R.id.readerContainer);
+            PhotoView nextImageView = getFlipImageView(container);
+            if (nextImageView == null) {
+                // 如果容器不是ConstraintLayout，直接显示不使用动画
+                finishPageAnimation();
                 return;
             }
             
-            final Bitmap newBitmap = BitmapFactory.decodeFile(imageFile.getAbsolutePath());
-            final PhotoView nextImageView = new PhotoView(this);
-            nextImageView.setImageBitmap(newBitmap);
+            // 新页面显示在滑入的视图上
+            GrayscalePages.setImageBitmap(nextImageView, newBitmap);
             
-            // 将nextImageView添加到布局中并设置在当前图片之上
-            View container = findViewById(R.id.readerContainer);
-            if (container instanceof androidx.constraintlayout.widget.ConstraintLayout) {
-                androidx.constraintlayout.widget.ConstraintLayout layout = 
-                        (androidx.constraintlayout.widget.ConstraintLayout) container;
-                
-                // 设置nextImageView布局参数
-                androidx.constraintlayout.widget.ConstraintLayout.LayoutParams params = 
-                        new androidx.constraintlayout.widget.ConstraintLayout.LayoutParams(
-                                androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.MATCH_PARENT,
-                                androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.MATCH_PARENT);
-                
-                params.topToTop = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
-                params.bottomToBottom = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
-                params.leftToLeft = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
-                params.rightToRight = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
-                
-                // 设置初始位置（屏幕外）
-                nextImageView.setTranslationX(isNextPage ? container.getWidth() : -container.getWidth());
-                
-                // 添加到布局
-                layout.addView(nextImageView, params);
-                
-                // 当前图片滑出动画
-                imageView.animate()
-                        .translationX(isNextPage ? -container.getWidth() : container.getWidth())
-                        .setDuration(300)
-                        .setInterpolator(new AccelerateInterpolator())
-                        .start();
-                
-                // 新图片滑入动画
-                nextImageView.animate()
-                        .translationX(0)
-                        .setDuration(300)
-                        .setInterpolator(new DecelerateInterpolator())
-                        .setListener(new AnimatorListenerAdapter() {
-                            @Override
-                            public void onAnimationEnd(Animator animation) {
-                                // 动画结束后，更新当前页信息
-                                currentPage = newPageIndex;
-                                
-                                // 从布局中移除临时的nextImageView
-                                layout.removeView(nextImageView);
-                                
-                                // 更新原始imageView的内容和位置
-                                imageView.setTranslationX(0);
-                                imageView.setImageBitmap(newBitmap);
-                                
-                                // 更新页面信息
-                                tvPageInfo.setText(getString(R.string.page_number, currentPage + 1, totalPages));
-                                
-                                // 更新 SeekBar 位置
-                                seekBar.setProgress(currentPage);
-                                
-                                // 更新阅读进度
-                                viewModel.updateReadProgress(chapter.getPath(), newPageIndex);
-                                
-                                // 预加载相邻页面
-                                preloadAdjacentPages(newPageIndex);
-                                
-                                // 动画完成
-                                isAnimating = false;
-                            }
-                        })
-                        .start();
-            } else {
-                // 如果容器不是ConstraintLayout，直接更新页面不使用动画
-                isAnimating = false;
-                updatePage(newPageIndex);
-            }
+            // 设置初始位置（屏幕外）
+            nextImageView.setTranslationX(isNextPage ? container.getWidth() : -container.getWidth());
+            nextImageView.setVisibility(View.VISIBLE);
+            
+            // 当前图片滑出动画
+            imageView.animate()
+                    .translationX(isNextPage ? -container.getWidth() : container.getWidth())
+                    .setDuration(300)
+                    .setInterpolator(SLIDE_OUT_INTERPOLATOR)
+                    .start();
+            
+            // 新图片滑入动画
+            nextImageView.animate()
+                    .translationX(0)
+                    .setDuration(300)
+                    .setInterpolator(SLIDE_IN_INTERPOLATOR)
+                    .setListener(flipEndListener)
+                    .start();
             
         } catch (Exception e) {
             Log.e(TAG, "Error during page animation: " + e.getMessage(), e);
-            ToastUtil.showShort(this, "加载图片时出错: " + e.getMessage());
-            isAnimating = false;
-            updatePage(newPageIndex);
+            finishPageAnimation();
+        }
+    }
+    
+    // 动画结束：主页面视图回到原位并显示新页面，滑入的视图隐藏并释放图片
+    private void finishPageAnimation() {
+        if (flipBitmap != null) {
+            imageView.setTranslationX(0);
+            // 使用标记随页面交给主页面视图
+            showPageBitmap(imageFilePaths.get(flipPageIndex), flipBitmap);
+            flipBitmap = null;
+            
+            // 预加载相邻页面
+            preloadAdjacentPages(flipPageIndex);
+        }
+        
+        if (flipImageView != null) {
+            flipImageView.setVisibility(View.GONE);
+            flipImageView.setImageDrawable(null);
+        }
+        
+        // 动画完成
+        isAnimating = false;
+    }
+    
+    // 翻页动画使用的第二个页面视图，第一次翻页时创建并放在主页面视图之上，之后一直复用
+    private PhotoView getFlipImageView(View container) {
+        if (flipImageView != null) {
+            return flipImageView;
         }
+        if (!(container instanceof androidx.constraintlayout.widget.ConstraintLayout)) {
+            return null;
+        }
+        
+        androidx.constraintlayout.widget.ConstraintLayout layout = 
+                (androidx.constraintlayout.widget.ConstraintLayout) container;
+        
+        // 设置布局参数，与主页面视图一样铺满容器
+        androidx.constraintlayout.widget.ConstraintLayout.LayoutParams params = 
+                new androidx.constraintlayout.widget.ConstraintLayout.LayoutParams(
+                        androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.MATCH_PARENT,
+                        androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.MATCH_PARENT);
+        
+        params.topToTop = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
+        params.bottomToBottom = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
+        params.leftToLeft = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
+        params.rightToRight = androidx.constraintlayout.widget.ConstraintLayout.LayoutParams.PARENT_ID;
+        
+        flipImageView = new PhotoView(this);
+        flipImageView.setVisibility(View.GONE);
+        // 放在主页面视图和分块显示之上、控制栏之下
+        layout.addView(flipImageView, layout.indexOfChild(tiledPageView) + 1, params);
+        return flipImageView;
     }
 
     @Override
@@ -617,7 +763,7 @@ public class ReaderActivity extends AppCompatActivity {
     // 加载上一章
     private void loadPreviousChapter() {
         if (manga != null && chapter != null) {
-            viewModel.getPreviousChapter(manga.getPath(), chapter.getChapterNumber(), previousChapter -> {
+            viewModel.getPreviousChapter(manga.getPath(), chapter.getSortOrder(), previousChapter -> {
                 if (previousChapter != null) {
                     // 保存当前章节的阅读进度
                     viewModel.updateReadProgress(chapter.getPath(), currentPage);
@@ -643,7 +789,23 @@ public class ReaderActivity extends AppCompatActivity {
     // 加载下一章
     private void loadNextChapter() {
         if (manga != null && chapter != null) {
-            viewModel.getNextChapter(manga.getPath(), chapter.getChapterNumber(), nextChapter -> {
+            // 下一章已经准备好时直接切换，开头几页已经在缓存中
+            Chapter preparedChapter = chapterPrefetcher.getNextChapter(chapter);
+            List<String> preparedPages = chapterPrefetcher.getNextPages(chapter);
+            if (preparedChapter != null && preparedPages != null) {
+                viewModel.updateReadProgress(chapter.getPath(), currentPage);
+                if (pendingDecode != null) {
+                    pendingDecode.cancel();
+                    pendingDecode = null;
+                }
+                ToastUtil.showShort(this, "下一章: " + preparedChapter.getTitle());
+                chapter = preparedChapter;
+                tvChapterTitle.setText(chapter.getTitle());
+                onChapterImagesLoaded(preparedPages);
+                return;
+            }
+            
+            viewModel.getNextChapter(manga.getPath(), chapter.getSortOrder(), nextChapter -> {
                 if (nextChapter != null) {
                     // 保存当前章节的阅读进度
                     viewModel.updateReadProgress(chapter.getPath(), currentPage);
@@ -0,0 +1,249 @@
+package com.example.manga;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.app.AppCompatDelegate;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.manga.adapter.ScrollPageAdapter;
+import com.example.manga.model.Chapter;
+import com.example.manga.model.Manga;
+import com.example.manga.model.Page;
+import com.example.manga.reader.PageCache;
+import com.example.manga.reader.PageColorRecorder;
+import com.example.manga.reader.PageSegment;
+import com.example.manga.util.ToastUtil;
+import com.example.manga.viewmodel.MangaViewModel;
+
+import java.util.List;
+
+/**
+ * 连续滚动阅读器，适合条漫：所有页面在RecyclerView中纵向排列。
+ * 每页的高度由预先读取的图片尺寸确定，长条页面切成一屏高的段分别解码，
+ * 滚动时按方向和滑动速度预加载后面的几段。
+ */
+public class ScrollReaderActivity extends AppCompatActivity {
+
+    private static final String TAG = "ScrollReaderActivity";
+    // 至少预加载的段数
+    private static final int MIN_PREFETCH = 2;
+    // 最多预加载的段数，限制快速滑动时占用的内存
+    private static final int MAX_PREFETCH = 6;
+
+    private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
+    private ScrollPageAdapter adapter;
+    private TextView tvPageInfo;
+    private MangaViewModel viewModel;
+    private PageColorRecorder pageColorRecorder;
+
+    private Manga manga;
+    private Chapter chapter;
+    private int currentPage = -1;
+    private int totalPages = 0;
+
+    // 最近一次滑动的速度（像素/秒），停止滚动后清零
+    private float flingVelocity;
+    // 滚动方向：1向下，-1向上
+    private int scrollDirection = 1;
+    // 上一次预加载的起点、方向和数量，没有变化时不重复提交
+    private int lastPrefetchPosition = -1;
+    private int lastPrefetchDirection;
+    private int lastPrefetchCount;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // 应用主题
+        applyTheme();
+
+        setContentView(R.layout.activity_scroll_reader);
+
+        viewModel = new ViewModelProvider(this).get(MangaViewModel.class);
+
+        // 获取传递的参数
+        manga = getIntent().getParcelableExtra("manga");
+        chapter = getIntent().getParcelableExtra("chapter");
+
+        if (manga == null || chapter == null) {
+            ToastUtil.showShort(this, "加载漫画失败：缺少必要参数");
+            finish();
+            return;
+        }
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle(chapter.getTitle());
+        }
+
+        PageCache.getInstance().setDecodeProfile(SettingsActivity.getDecodeProfile(this));
+        pageColorRecorder = new PageColorRecorder(viewModel, PageCache.getInstance());
+        pageColorRecorder.attach();
+        tvPageInfo = findViewById(R.id.tvScrollPageInfo);
+        setupRecyclerView();
+
+        // 加载当前章节的页面和尺寸
+        loadChapterPages();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // 离开阅读器时写入合并的阅读进度
+        if (viewModel != null) {
+            viewModel.flushReadProgress();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (adapter != null) {
+            adapter.release();
+            Log.d(TAG, "Page cache stats: " + PageCache.getInstance());
+        }
+        if (pageColorRecorder != null) {
+            pageColorRecorder.detach();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        PageCache.getInstance().trimMemory(level);
+        if (viewModel != null) {
+            viewModel.flushReadProgress();
+        }
+    }
+
+    private void applyTheme() {
+        SharedPreferences prefs = getSharedPreferences(SettingsActivity.PREFS_NAME, MODE_PRIVATE);
+
+        // 应用夜间模式
+        int theme = prefs.getInt(SettingsActivity.KEY_THEME, AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM);
+        AppCompatDelegate.setDefaultNightMode(theme);
+
+        // 应用颜色主题
+        int colorTheme = prefs.getInt(SettingsActivity.KEY_COLOR_THEME, SettingsActivity.COLOR_THEME_BLUE);
+        SettingsActivity.applyColorTheme(this, colorTheme);
+    }
+
+    private void setupRecyclerView() {
+        recyclerView = findViewById(R.id.scrollRecyclerView);
+        layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setHasFixedSize(true);
+        // 页面不会单独增删，不需要条目动画
+        recyclerView.setItemAnimator(null);
+
+        adapter = new ScrollPageAdapter(this);
+        recyclerView.setAdapter(adapter);
+
+        // 只记录滑动速度，不拦截默认的惯性滚动
+        recyclerView.setOnFlingListener(new RecyclerView.OnFlingListener() {
+            @Override
+            public boolean onFling(int velocityX, int velocityY) {
+                flingVelocity = Math.abs(velocityY);
+                return false;
+            }
+        });
+
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy != 0) {
+                    scrollDirection = dy > 0 ? 1 : -1;
+                }
+                onScrollPositionChanged();
+            }
+
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    flingVelocity = 0;
+                    onScrollPositionChanged();
+                }
+            }
+        });
+    }
+
+    private void loadChapterPages() {
+        final Chapter loadingChapter = chapter;
+        viewModel.getChapterPageInfo(loadingChapter.getPath(), pages -> runOnUiThread(() -> {
+            if (isFinishing() || loadingChapter != chapter) {
+                return;
+            }
+            onChapterPagesLoaded(pages);
+        }));
+    }
+
+    private void onChapterPagesLoaded(List<Page> pages) {
+        if (pages == null || pages.isEmpty()) {
+            ToastUtil.showShort(this, "章节内未找到图片");
+            finish();
+            return;
+        }
+
+        totalPages = pages.size();
+        chapter.setTotalPages(totalPages);
+        // 页面信息中已经包含之前的黑白检测结果
+        pageColorRecorder.restore(pages);
+
+        int displayWidth = getResources().getDisplayMetrics().widthPixels;
+        int displayHeight = getResources().getDisplayMetrics().heightPixels;
+        List<PageSegment> segments = PageSegment.split(pages, displayWidth, displayHeight);
+        adapter.setSegments(segments);
+        Log.d(TAG, "Chapter loaded - pages: " + totalPages + ", segments: " + segments.size());
+
+        // 从上次阅读的页面开始
+        int lastReadPage = chapter.getLastReadPage();
+        if (lastReadPage < 0 || lastReadPage >= totalPages) {
+            lastReadPage = 0;
+        }
+        layoutManager.scrollToPositionWithOffset(adapter.findFirstSegment(lastReadPage), 0);
+        updatePageInfo(lastReadPage);
+    }
+
+    // 滚动后更新页码，并按方向和速度预加载
+    private void onScrollPositionChanged() {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        PageSegment segment = adapter.getSegment(first);
+        if (segment != null && segment.getPageIndex() != currentPage) {
+            updatePageInfo(segment.getPageIndex());
+        }
+
+        int anchor = scrollDirection > 0 ? layoutManager.findLastVisibleItemPosition() : first;
+        int count = prefetchCount();
+        if (anchor != lastPrefetchPosition || scrollDirection != lastPrefetchDirection || count != lastPrefetchCount) {
+            lastPrefetchPosition = anchor;
+            lastPrefetchDirection = scrollDirection;
+            lastPrefetchCount = count;
+            adapter.prefetch(anchor, scrollDirection, count);
+        }
+    }
+
+    // 滑动越快预加载越多，大约预加载一秒内会滚过的段数
+    private int prefetchCount() {
+        int displayHeight = getResources().getDisplayMetrics().heightPixels;
+        int count = MIN_PREFETCH + (displayHeight > 0 ? (int) (flingVelocity / displayHeight) : 0);
+        return Math.min(MAX_PREFETCH, count);
+    }
+
+    private void updatePageInfo(int pageIndex) {
+        currentPage = pageIndex;
+        tvPageInfo.setText(getString(R.string.page_number, pageIndex + 1, totalPages));
+
+        // 更新阅读进度
+        viewModel.updateReadProgress(chapter.getPath(), pageIndex);
+    }
+}
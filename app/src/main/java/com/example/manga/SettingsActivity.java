@@ -1,5 +1,6 @@
 package com.example.manga;
 
+import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
@@ -20,6 +21,8 @@ public class SettingsActivity extends AppCompatActivity {
     public static final String KEY_COLOR_THEME = "color_theme";
     public static final String KEY_AUTO_HIDE = "auto_hide";
     public static final String KEY_VOLUME_NAV = "volume_nav";
+    public static final String KEY_CONTINUOUS_SCROLL = "continuous_scroll";
+    public static final String KEY_DECODE_PROFILE = "decode_profile";
     
     // 颜色主题常量
     public static final int COLOR_THEME_BLUE = 0;
@@ -27,11 +30,21 @@ public class SettingsActivity extends AppCompatActivity {
     public static final int COLOR_THEME_GREEN = 2;
     public static final int COLOR_THEME_DARK = 3;
 
+    // 页面解码方式常量
+    // 自动：检测黑白页面，黑白页面只保存灰度（ALPHA_8），彩色页面使用ARGB_8888
+    public static final int DECODE_PROFILE_AUTO = 0;
+    // 硬件位图：像素保存在显存中，只用于显示，不能复用
+    public static final int DECODE_PROFILE_HARDWARE = 1;
+    // 所有页面使用RGB_565
+    public static final int DECODE_PROFILE_RGB_565 = 2;
+
     private SharedPreferences preferences;
     private RadioGroup themeRadioGroup;
     private RadioGroup colorRadioGroup;
     private CheckBox autoHideCheckBox;
     private CheckBox volumeNavCheckBox;
+    private CheckBox continuousScrollCheckBox;
+    private RadioGroup decodeProfileRadioGroup;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -73,11 +86,15 @@ public class SettingsActivity extends AppCompatActivity {
             colorRadioGroup = findViewById(R.id.color_radio_group);
             autoHideCheckBox = findViewById(R.id.auto_hide_controls);
             volumeNavCheckBox = findViewById(R.id.volume_key_navigation);
+            continuousScrollCheckBox = findViewById(R.id.continuous_scroll);
+            decodeProfileRadioGroup = findViewById(R.id.decode_profile_radio_group);
             
             if (themeRadioGroup == null) Log.e(TAG, "主题选择组未找到");
             if (colorRadioGroup == null) Log.e(TAG, "颜色选择组未找到");
             if (autoHideCheckBox == null) Log.e(TAG, "自动隐藏控件未找到");
             if (volumeNavCheckBox == null) Log.e(TAG, "音量键导航控件未找到");
+            if (continuousScrollCheckBox == null) Log.e(TAG, "连续滚动控件未找到");
+            if (decodeProfileRadioGroup == null) Log.e(TAG, "解码方式选择组未找到");
         } catch (Exception e) {
             Log.e(TAG, "initView error: " + e.getMessage(), e);
             ToastUtil.showShort(this, "初始化视图失败");
@@ -134,6 +151,24 @@ public class SettingsActivity extends AppCompatActivity {
                 boolean volumeNav = preferences.getBoolean(KEY_VOLUME_NAV, false);
                 volumeNavCheckBox.setChecked(volumeNav);
             }
+            
+            // 加载连续滚动阅读设置
+            if (continuousScrollCheckBox != null) {
+                boolean continuousScroll = preferences.getBoolean(KEY_CONTINUOUS_SCROLL, false);
+                continuousScrollCheckBox.setChecked(continuousScroll);
+            }
+
+            // 加载页面解码方式
+            if (decodeProfileRadioGroup != null) {
+                int decodeProfile = preferences.getInt(KEY_DECODE_PROFILE, DECODE_PROFILE_AUTO);
+                int decodeRadioId = R.id.decode_profile_auto;
+                if (decodeProfile == DECODE_PROFILE_HARDWARE) {
+                    decodeRadioId = R.id.decode_profile_hardware;
+                } else if (decodeProfile == DECODE_PROFILE_RGB_565) {
+                    decodeRadioId = R.id.decode_profile_rgb_565;
+                }
+                decodeProfileRadioGroup.check(decodeRadioId);
+            }
         } catch (Exception e) {
             Log.e(TAG, "加载设置出错: " + e.getMessage(), e);
         }
@@ -217,6 +252,36 @@ public class SettingsActivity extends AppCompatActivity {
                     }
                 });
             }
+            
+            // 设置连续滚动阅读监听器
+            if (continuousScrollCheckBox != null) {
+                continuousScrollCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                    try {
+                        preferences.edit().putBoolean(KEY_CONTINUOUS_SCROLL, isChecked).apply();
+                        ToastUtil.showShort(this, isChecked ? "已开启连续滚动阅读" : "已关闭连续滚动阅读");
+                    } catch (Exception e) {
+                        Log.e(TAG, "保存连续滚动阅读设置出错: " + e.getMessage(), e);
+                    }
+                });
+            }
+
+            // 设置页面解码方式监听器，阅读器下次打开时生效
+            if (decodeProfileRadioGroup != null) {
+                decodeProfileRadioGroup.setOnCheckedChangeListener((group, checkedId) -> {
+                    try {
+                        int decodeProfile = DECODE_PROFILE_AUTO;
+                        if (checkedId == R.id.decode_profile_hardware) {
+                            decodeProfile = DECODE_PROFILE_HARDWARE;
+                        } else if (checkedId == R.id.decode_profile_rgb_565) {
+                            decodeProfile = DECODE_PROFILE_RGB_565;
+                        }
+                        preferences.edit().putInt(KEY_DECODE_PROFILE, decodeProfile).apply();
+                        ToastUtil.showShort(this, "页面解码方式已更改");
+                    } catch (Exception e) {
+                        Log.e(TAG, "保存页面解码方式出错: " + e.getMessage(), e);
+                    }
+                });
+            }
         } catch (Exception e) {
             Log.e(TAG, "设置监听器出错: " + e.getMessage(), e);
         }
@@ -238,6 +303,11 @@ public class SettingsActivity extends AppCompatActivity {
         }
     }
     
+    // 读取页面解码方式，阅读器打开时交给PageCache
+    public static int getDecodeProfile(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE).getInt(KEY_DECODE_PROFILE, DECODE_PROFILE_AUTO);
+    }
+
     public static void applyColorTheme(AppCompatActivity activity, int colorTheme) {
         switch (colorTheme) {
             case COLOR_THEME_RED:
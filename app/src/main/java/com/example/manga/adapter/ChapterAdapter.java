@@ -7,37 +7,62 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.manga.R;
-import com.example.manga.model.Chapter;
+import com.example.manga.model.ChapterSummary;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class ChapterAdapter extends RecyclerView.Adapter<ChapterAdapter.ChapterViewHolder> {
+// 章节列表，数据按页从数据库加载（PagingDataAdapter），还没加载的位置显示空行
+public class ChapterAdapter extends PagingDataAdapter<ChapterSummary, ChapterAdapter.ChapterViewHolder> {
+    // 只有阅读进度变化时的局部刷新，只更新进度文字
+    private static final Object PAYLOAD_PROGRESS = new Object();
+    
     private final Context context;
-    private List<Chapter> chapterList;
     private final OnChapterClickListener listener;
     private final SimpleDateFormat dateFormat;
     
+    // 按路径判断是否为同一章节，投影中只有列表显示的列，直接比较全部内容
+    private static final DiffUtil.ItemCallback<ChapterSummary> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChapterSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChapterSummary oldItem, @NonNull ChapterSummary newItem) {
+            return oldItem.getPath().equals(newItem.getPath());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull ChapterSummary oldItem, @NonNull ChapterSummary newItem) {
+            return oldItem.equals(newItem);
+        }
+        
+        // 标题和章节号不变时只是阅读进度变化
+        @Override
+        public Object getChangePayload(@NonNull ChapterSummary oldItem, @NonNull ChapterSummary newItem) {
+            if (Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && oldItem.getChapterNumber() == newItem.getChapterNumber()) {
+                return PAYLOAD_PROGRESS;
+            }
+            return null;
+        }
+    };
+    
     public interface OnChapterClickListener {
-        void onChapterClick(Chapter chapter);
+        void onChapterClick(ChapterSummary chapter);
     }
     
     public ChapterAdapter(Context context, OnChapterClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
         this.listener = listener;
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
     }
     
-    public void setChapterList(List<Chapter> chapterList) {
-        this.chapterList = chapterList;
-        notifyDataSetChanged();
-    }
-    
     @NonNull
     @Override
     public ChapterViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -47,36 +72,48 @@ public class ChapterAdapter extends RecyclerView.Adapter<ChapterAdapter.ChapterV
     
     @Override
     public void onBindViewHolder(@NonNull ChapterViewHolder holder, int position) {
-        if (chapterList != null && position < chapterList.size()) {
-            Chapter chapter = chapterList.get(position);
-            holder.titleTextView.setText(chapter.getTitle());
-            
-            // 显示上次阅读信息
-            if (chapter.getLastReadTime() > 0) {
-                String lastRead = dateFormat.format(new Date(chapter.getLastReadTime()));
-                String progress = context.getString(R.string.page_number, chapter.getLastReadPage() + 1, chapter.getTotalPages());
-                holder.progressTextView.setText(String.format("%s - %s", lastRead, progress));
-                holder.progressTextView.setVisibility(View.VISIBLE);
-            } else {
-                holder.progressTextView.setVisibility(View.GONE);
-            }
-            
-            // 设置点击事件
-            holder.itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    // 添加日志记录
-                    android.util.Log.d("ChapterAdapter", "Chapter clicked: " + chapter.getTitle() 
-                            + ", path: " + chapter.getPath()
-                            + ", manga path: " + chapter.getMangaPath());
-                    listener.onChapterClick(chapter);
-                }
-            });
+        ChapterSummary chapter = getItem(position);
+        if (chapter == null) {
+            // 占位：这一页还没有从数据库读取
+            holder.titleTextView.setText(null);
+            holder.progressTextView.setVisibility(View.GONE);
+            holder.itemView.setOnClickListener(null);
+            return;
         }
+        holder.titleTextView.setText(chapter.getTitle());
+        bindProgress(holder, chapter);
+        
+        // 设置点击事件
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) {
+                // 添加日志记录
+                android.util.Log.d("ChapterAdapter", "Chapter clicked: " + chapter.getTitle() 
+                        + ", path: " + chapter.getPath());
+                listener.onChapterClick(chapter);
+            }
+        });
     }
     
     @Override
-    public int getItemCount() {
-        return chapterList != null ? chapterList.size() : 0;
+    public void onBindViewHolder(@NonNull ChapterViewHolder holder, int position, @NonNull List<Object> payloads) {
+        ChapterSummary chapter = getItem(position);
+        if (chapter != null && payloads.contains(PAYLOAD_PROGRESS)) {
+            bindProgress(holder, chapter);
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+    
+    // 显示上次阅读信息
+    private void bindProgress(ChapterViewHolder holder, ChapterSummary chapter) {
+        if (chapter.getLastReadTime() > 0) {
+            String lastRead = dateFormat.format(new Date(chapter.getLastReadTime()));
+            String progress = context.getString(R.string.page_number, chapter.getLastReadPage() + 1, chapter.getTotalPages());
+            holder.progressTextView.setText(String.format("%s - %s", lastRead, progress));
+            holder.progressTextView.setVisibility(View.VISIBLE);
+        } else {
+            holder.progressTextView.setVisibility(View.GONE);
+        }
     }
     
     static class ChapterViewHolder extends RecyclerView.ViewHolder {
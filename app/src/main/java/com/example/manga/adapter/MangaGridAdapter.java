@@ -8,32 +8,58 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.manga.R;
-import com.example.manga.model.Manga;
+import com.example.manga.model.MangaSummary;
+import com.example.manga.util.CoverLoader;
 
-import java.io.File;
 import java.util.List;
+import java.util.Objects;
 
-public class MangaGridAdapter extends RecyclerView.Adapter<MangaGridAdapter.MangaViewHolder> {
+// 书架网格，数据按页从数据库加载（PagingDataAdapter），还没加载的位置显示占位封面
+public class MangaGridAdapter extends PagingDataAdapter<MangaSummary, MangaGridAdapter.MangaViewHolder> {
+    // 书架的列数
+    public static final int SPAN_COUNT = 2;
+    
     private final Context context;
-    private List<Manga> mangaList;
+    // 封面的显示尺寸，按这个尺寸缩小解码
+    private final int coverWidth;
+    private final int coverHeight;
     private final OnMangaClickListener listener;
+    // 封面不变、只有标题变化时的局部刷新，不重新加载封面
+    private static final Object PAYLOAD_TITLE = new Object();
+    
+    // 按路径判断是否为同一部漫画，投影中只有网格显示的列，直接比较全部内容
+    private static final DiffUtil.ItemCallback<MangaSummary> DIFF_CALLBACK = new DiffUtil.ItemCallback<MangaSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull MangaSummary oldItem, @NonNull MangaSummary newItem) {
+            return oldItem.getPath().equals(newItem.getPath());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull MangaSummary oldItem, @NonNull MangaSummary newItem) {
+            return oldItem.equals(newItem);
+        }
+        
+        @Override
+        public Object getChangePayload(@NonNull MangaSummary oldItem, @NonNull MangaSummary newItem) {
+            return Objects.equals(oldItem.getCoverPath(), newItem.getCoverPath()) ? PAYLOAD_TITLE : null;
+        }
+    };
     
     public interface OnMangaClickListener {
-        void onMangaClick(Manga manga);
+        void onMangaClick(MangaSummary manga);
     }
     
     public MangaGridAdapter(Context context, OnMangaClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
         this.listener = listener;
-    }
-    
-    public void setMangaList(List<Manga> mangaList) {
-        this.mangaList = mangaList;
-        notifyDataSetChanged();
+        this.coverWidth = context.getResources().getDisplayMetrics().widthPixels / SPAN_COUNT;
+        this.coverHeight = context.getResources().getDimensionPixelSize(R.dimen.grid_cover_height);
     }
     
     @NonNull
@@ -45,33 +71,36 @@ public class MangaGridAdapter extends RecyclerView.Adapter<MangaGridAdapter.Mang
     
     @Override
     public void onBindViewHolder(@NonNull MangaViewHolder holder, int position) {
-        if (mangaList != null && position < mangaList.size()) {
-            Manga manga = mangaList.get(position);
-            holder.titleTextView.setText(manga.getTitle());
-            
-            // 加载封面图片
-            if (manga.getCoverPath() != null) {
-                Glide.with(context)
-                        .load(new File(manga.getCoverPath()))
-                        .placeholder(R.drawable.ic_manga_placeholder)
-                        .error(R.drawable.ic_manga_placeholder)
-                        .into(holder.coverImageView);
-            } else {
-                holder.coverImageView.setImageResource(R.drawable.ic_manga_placeholder);
-            }
-            
-            // 设置点击事件
-            holder.itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onMangaClick(manga);
-                }
-            });
+        MangaSummary manga = getItem(position);
+        if (manga == null) {
+            // 占位：这一页还没有从数据库读取
+            holder.titleTextView.setText(null);
+            CoverLoader.load(holder.coverImageView, null, coverWidth, coverHeight);
+            holder.itemView.setOnClickListener(null);
+            return;
         }
+        holder.titleTextView.setText(manga.getTitle());
+        
+        // 加载封面图片
+        CoverLoader.loadThumbnail(holder.coverImageView, manga.getPath(), manga.getCoverPath(),
+                coverWidth, coverHeight);
+        
+        // 设置点击事件
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) {
+                listener.onMangaClick(manga);
+            }
+        });
     }
     
     @Override
-    public int getItemCount() {
-        return mangaList != null ? mangaList.size() : 0;
+    public void onBindViewHolder(@NonNull MangaViewHolder holder, int position, @NonNull List<Object> payloads) {
+        MangaSummary manga = getItem(position);
+        if (manga != null && payloads.contains(PAYLOAD_TITLE)) {
+            holder.titleTextView.setText(manga.getTitle());
+            return;
+        }
+        onBindViewHolder(holder, position);
     }
     
     static class MangaViewHolder extends RecyclerView.ViewHolder {
@@ -1,65 +1,138 @@
 package com.example.manga.adapter;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.manga.R;
+import com.example.manga.reader.GrayscalePages;
+import com.example.manga.reader.PageCache;
+import com.example.manga.reader.PageDecoder;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class MangaPageAdapter extends RecyclerView.Adapter<MangaPageAdapter.PageViewHolder> {
+// 页面列表（图片路径）在后台线程比较差异（ListAdapter），路径不变的页面不会重新解码
+public class MangaPageAdapter extends ListAdapter<String, MangaPageAdapter.PageViewHolder> {
     private final Context context;
-    private List<String> pageList; // 页面图片路径列表
+    // 页面路径 -> 稳定ID，按第一次出现的顺序分配，不会冲突
+    private final Map<String, Long> itemIds = new HashMap<>();
+    // 页面在后台按屏幕尺寸解码，与ReaderActivity共用同一个页面缓存
+    private final PageCache pageCache = PageCache.getInstance();
+    private final PageDecoder pageDecoder = new PageDecoder(pageCache);
+    // 创建过的所有视图，关闭阅读器时释放它们显示的页面
+    private final List<PageViewHolder> holders = new ArrayList<>();
+    
+    // 同一路径就是同一页，内容也相同
+    private static final DiffUtil.ItemCallback<String> DIFF_CALLBACK = new DiffUtil.ItemCallback<String>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull String oldItem, @NonNull String newItem) {
+            return oldItem.equals(newItem);
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull String oldItem, @NonNull String newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
     
     public MangaPageAdapter(Context context) {
+        super(DIFF_CALLBACK);
         this.context = context;
+        setHasStableIds(true);
     }
     
+    // 只能在主线程调用
     public void setPageList(List<String> pageList) {
-        this.pageList = pageList;
-        notifyDataSetChanged();
+        submitList(pageList);
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return itemIds.computeIfAbsent(getItem(position), path -> (long) itemIds.size());
     }
     
     @NonNull
     @Override
     public PageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.manga_page_item, parent, false);
-        return new PageViewHolder(view);
+        PageViewHolder holder = new PageViewHolder(view);
+        holders.add(holder);
+        return holder;
     }
     
     @Override
     public void onBindViewHolder(@NonNull PageViewHolder holder, int position) {
-        if (pageList != null && position < pageList.size()) {
-            String pagePath = pageList.get(position);
-            
-            // 使用Glide加载图片
-            Glide.with(context)
-                    .load(new File(pagePath))
-                    .placeholder(R.drawable.ic_manga_placeholder)
-                    .error(R.drawable.ic_manga_placeholder)
-                    .into(holder.pageImageView);
-        }
+        String pagePath = getItem(position);
+        
+        // 取消这个视图上一次未完成的解码，已缓存的页面会立即显示
+        holder.cancelDecode();
+        holder.showBitmap(null);
+        int width = context.getResources().getDisplayMetrics().widthPixels;
+        int height = context.getResources().getDisplayMetrics().heightPixels;
+        holder.pendingDecode = pageDecoder.decode(pagePath, width, height, (path, bitmap) -> {
+            holder.pendingDecode = null;
+            if (bitmap != null) {
+                holder.showBitmap(bitmap);
+            }
+        });
     }
     
     @Override
-    public int getItemCount() {
-        return pageList != null ? pageList.size() : 0;
+    public void onViewRecycled(@NonNull PageViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.cancelDecode();
+        holder.showBitmap(null);
+    }
+    
+    // 阅读器关闭时停止解码线程，释放所有视图显示的页面
+    public void release() {
+        pageDecoder.shutdown();
+        for (PageViewHolder holder : holders) {
+            holder.cancelDecode();
+            holder.showBitmap(null);
+        }
+        holders.clear();
     }
     
-    static class PageViewHolder extends RecyclerView.ViewHolder {
+    class PageViewHolder extends RecyclerView.ViewHolder {
         final ImageView pageImageView;
+        PageDecoder.Request pendingDecode;
+        // 当前显示的页面，显示期间在页面缓存中标记为使用中，不会被复用
+        Bitmap displayedBitmap;
         
         PageViewHolder(@NonNull View itemView) {
             super(itemView);
             pageImageView = itemView.findViewById(R.id.manga_page_image);
         }
+        
+        // bitmap为null时显示占位图。bitmap来自PageDecoder的回调，已标记为使用中，这里接管这次标记
+        void showBitmap(Bitmap bitmap) {
+            Bitmap previous = displayedBitmap;
+            displayedBitmap = bitmap;
+            if (bitmap != null) {
+                GrayscalePages.setImageBitmap(pageImageView, bitmap);
+            } else {
+                pageImageView.setImageResource(R.drawable.ic_manga_placeholder);
+            }
+            pageCache.unpin(previous);
+        }
+        
+        void cancelDecode() {
+            if (pendingDecode != null) {
+                pendingDecode.cancel();
+                pendingDecode = null;
+            }
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.example.manga.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.manga.R;
+import com.example.manga.reader.GrayscalePages;
+import com.example.manga.reader.PageCache;
+import com.example.manga.reader.PageDecoder;
+import com.example.manga.reader.PageSegment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连续滚动阅读的页面列表，每一项是一个PageSegment。
+ * 每一项的高度在绑定时按原图尺寸确定，解码完成前显示同样高度的占位。
+ * 解码后的页面只保存在PageCache中，视图被回收时取消解码并释放显示的页面，
+ * 内存中只保留屏幕附近的一段；滚动方向上的若干项由prefetch提前解码。
+ */
+public class ScrollPageAdapter extends RecyclerView.Adapter<ScrollPageAdapter.SegmentViewHolder> {
+    private final Context context;
+    private final PageCache pageCache = PageCache.getInstance();
+    private final PageDecoder pageDecoder = new PageDecoder(pageCache);
+    // 预加载使用单独的解码线程，不会排在屏幕上页面的前面
+    private final PageDecoder prefetchDecoder = new PageDecoder(pageCache);
+    // 正在预加载的项：位置 -> 请求
+    private final Map<Integer, PageDecoder.Request> prefetching = new HashMap<>();
+    // 创建过的所有视图，关闭阅读器时释放它们显示的页面
+    private final List<SegmentViewHolder> holders = new ArrayList<>();
+    // 解码尺寸，整页与其他阅读器使用相同的缓存键
+    private final int decodeWidth;
+    private final int decodeHeight;
+    private List<PageSegment> segments = new ArrayList<>();
+
+    public ScrollPageAdapter(Context context) {
+        this.context = context;
+        this.decodeWidth = context.getResources().getDisplayMetrics().widthPixels;
+        this.decodeHeight = context.getResources().getDisplayMetrics().heightPixels;
+    }
+
+    public void setSegments(List<PageSegment> segments) {
+        cancelPrefetch();
+        this.segments = segments != null ? new ArrayList<>(segments) : new ArrayList<>();
+        notifyDataSetChanged();
+    }
+
+    public PageSegment getSegment(int position) {
+        return position >= 0 && position < segments.size() ? segments.get(position) : null;
+    }
+
+    // 页面第一段的位置，没有找到时返回0
+    public int findFirstSegment(int pageIndex) {
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).getPageIndex() == pageIndex) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @NonNull
+    @Override
+    public SegmentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.scroll_page_item, parent, false);
+        SegmentViewHolder holder = new SegmentViewHolder(view);
+        holders.add(holder);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SegmentViewHolder holder, int position) {
+        PageSegment segment = getSegment(position);
+        if (segment == null) {
+            return;
+        }
+
+        // 高度先按原图尺寸确定，解码完成后不需要重新布局
+        ViewGroup.LayoutParams params = holder.itemView.getLayoutParams();
+        if (params.height != segment.getDisplayHeight()) {
+            params.height = segment.getDisplayHeight();
+            holder.itemView.setLayoutParams(params);
+        }
+
+        // 取消这个视图上一次未完成的解码，已缓存的页面会立即显示
+        holder.cancelDecode();
+        holder.showBitmap(null);
+        holder.pendingDecode = pageDecoder.decode(segment, decodeWidth, decodeHeight, (path, bitmap) -> {
+            holder.pendingDecode = null;
+            if (bitmap != null) {
+                holder.showBitmap(bitmap);
+            }
+        });
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull SegmentViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.cancelDecode();
+        holder.showBitmap(null);
+    }
+
+    // 预加载position之后（direction > 0）或之前的count项，由近到远提交，
+    // 不在这个范围内的预加载会被取消
+    public void prefetch(int position, int direction, int count) {
+        int first = direction > 0 ? position + 1 : position - count;
+        int last = direction > 0 ? position + count : position - 1;
+
+        Iterator<Map.Entry<Integer, PageDecoder.Request>> iterator = prefetching.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, PageDecoder.Request> entry = iterator.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                entry.getValue().cancel();
+                iterator.remove();
+            }
+        }
+
+        for (int distance = 1; distance <= count; distance++) {
+            final int index = position + (direction > 0 ? distance : -distance);
+            PageSegment segment = getSegment(index);
+            if (segment == null || prefetching.containsKey(index)
+                    || pageCache.contains(segment.cacheKey(decodeWidth, decodeHeight))) {
+                continue;
+            }
+            // 预加载只需要把结果放入缓存，回调中释放使用标记
+            prefetching.put(index, prefetchDecoder.decode(segment, decodeWidth, decodeHeight, (path, bitmap) -> {
+                prefetching.remove(index);
+                pageCache.unpin(bitmap);
+            }));
+        }
+    }
+
+    private void cancelPrefetch() {
+        for (PageDecoder.Request request : prefetching.values()) {
+            request.cancel();
+        }
+        prefetching.clear();
+    }
+
+    // 阅读器关闭时停止解码线程，释放所有视图显示的页面
+    public void release() {
+        cancelPrefetch();
+        pageDecoder.shutdown();
+        prefetchDecoder.shutdown();
+        for (SegmentViewHolder holder : holders) {
+            holder.cancelDecode();
+            holder.showBitmap(null);
+        }
+        holders.clear();
+    }
+
+    @Override
+    public int getItemCount() {
+        return segments.size();
+    }
+
+    class SegmentViewHolder extends RecyclerView.ViewHolder {
+        final ImageView pageImageView;
+        PageDecoder.Request pendingDecode;
+        // 当前显示的页面，显示期间在页面缓存中标记为使用中，不会被复用
+        Bitmap displayedBitmap;
+
+        SegmentViewHolder(@NonNull View itemView) {
+            super(itemView);
+            pageImageView = itemView.findViewById(R.id.scroll_page_image);
+        }
+
+        // bitmap为null时只显示背景，占位高度不变。bitmap来自PageDecoder的回调，已标记为使用中，这里接管这次标记
+        void showBitmap(Bitmap bitmap) {
+            Bitmap previous = displayedBitmap;
+            displayedBitmap = bitmap;
+            GrayscalePages.setImageBitmap(pageImageView, bitmap);
+            pageCache.unpin(previous);
+        }
+
+        void cancelDecode() {
+            if (pendingDecode != null) {
+                pendingDecode.cancel();
+                pendingDecode = null;
+            }
+        }
+    }
+}
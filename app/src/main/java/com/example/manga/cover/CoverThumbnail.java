@@ -0,0 +1,69 @@
+package com.example.manga.cover;
+
+/**
+ * Glide加载封面缩略图时使用的模型，由CoverThumbnailLoader从CoverThumbnailStore中读取。
+ * 同时作为Glide内存缓存的键，包含封面的修改时间，与仓库一样在封面文件被替换后失效
+ */
+public final class CoverThumbnail {
+    private final String mangaPath;
+    private final String coverPath;
+    private final long coverModified;
+    private final int width;
+    private final int height;
+
+    public CoverThumbnail(String mangaPath, String coverPath, long coverModified, int width, int height) {
+        this.mangaPath = mangaPath;
+        this.coverPath = coverPath;
+        this.coverModified = coverModified;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getMangaPath() {
+        return mangaPath;
+    }
+
+    public String getCoverPath() {
+        return coverPath;
+    }
+
+    public long getCoverModified() {
+        return coverModified;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CoverThumbnail)) {
+            return false;
+        }
+        CoverThumbnail other = (CoverThumbnail) o;
+        return coverModified == other.coverModified && width == other.width && height == other.height
+                && mangaPath.equals(other.mangaPath) && coverPath.equals(other.coverPath);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mangaPath.hashCode();
+        result = 31 * result + coverPath.hashCode();
+        result = 31 * result + (int) (coverModified ^ (coverModified >>> 32));
+        result = 31 * result + width;
+        result = 31 * result + height;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CoverThumbnail{" + mangaPath + ", " + width + "x" + height + "}";
+    }
+}
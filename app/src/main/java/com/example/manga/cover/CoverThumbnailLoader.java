@@ -0,0 +1,97 @@
+package com.example.manga.cover;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 让Glide从CoverThumbnailStore读取封面缩略图：在Glide的后台线程中取出打包文件中的数据，
+ * 还没有缩略图时渲染一次并保存。在MangaGlideModule中注册
+ */
+public class CoverThumbnailLoader implements ModelLoader<CoverThumbnail, ByteBuffer> {
+    private final CoverThumbnailStore store;
+
+    public CoverThumbnailLoader(CoverThumbnailStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public LoadData<ByteBuffer> buildLoadData(@NonNull CoverThumbnail model, int width, int height,
+                                              @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model), new Fetcher(store, model));
+    }
+
+    @Override
+    public boolean handles(@NonNull CoverThumbnail model) {
+        return true;
+    }
+
+    private static final class Fetcher implements DataFetcher<ByteBuffer> {
+        private final CoverThumbnailStore store;
+        private final CoverThumbnail model;
+
+        Fetcher(CoverThumbnailStore store, CoverThumbnail model) {
+            this.store = store;
+            this.model = model;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super ByteBuffer> callback) {
+            ByteBuffer data = store.getOrRender(model.getMangaPath(), model.getCoverPath(),
+                    model.getWidth(), model.getHeight());
+            if (data != null) {
+                callback.onDataReady(data);
+            } else {
+                callback.onLoadFailed(new IOException("无法生成封面缩略图: " + model.getCoverPath()));
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @NonNull
+        @Override
+        public Class<ByteBuffer> getDataClass() {
+            return ByteBuffer.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+
+    public static class Factory implements ModelLoaderFactory<CoverThumbnail, ByteBuffer> {
+        private final CoverThumbnailStore store;
+
+        public Factory(CoverThumbnailStore store) {
+            this.store = store;
+        }
+
+        @NonNull
+        @Override
+        public ModelLoader<CoverThumbnail, ByteBuffer> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new CoverThumbnailLoader(store);
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.manga.cover;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 封面缩略图仓库：每部漫画的封面只按书架大小渲染一次，压缩为WebP后追加到同一个打包文件中。
+ * 索引文件是追加写入的记录（漫画路径、缩略图尺寸、封面修改时间、偏移、长度），打开时读入内存，后面的记录覆盖前面的。
+ * 同一部漫画的不同尺寸分别保存，旋转屏幕后书架宽度变化时不会继续使用旧尺寸的缩略图。
+ * 读取时直接返回打包文件内存映射中的对应区域，不需要打开封面原图。
+ * 封面变化后重新渲染，旧数据留在打包文件中，废弃的数据超过一半时在下次打开时整理。线程安全。
+ */
+public class CoverThumbnailStore {
+    private static final String TAG = "CoverThumbnailStore";
+    private static final String DIRECTORY = "cover_thumbnails";
+    private static final String PACK_FILE = "covers.pack";
+    private static final String INDEX_FILE = "covers.idx";
+    private static final int INDEX_MAGIC = 0x4d434f56;
+    private static final int INDEX_VERSION = 2;
+    // WebP压缩质量
+    private static final int QUALITY = 80;
+    // 废弃数据超过这个大小且超过一半时整理
+    private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+
+    private static volatile CoverThumbnailStore INSTANCE;
+
+    private final File packFile;
+    private final File indexFile;
+    // 漫画路径和尺寸 -> 缩略图在打包文件中的位置
+    private final Map<String, Entry> index = new HashMap<>();
+    private RandomAccessFile pack;
+    private DataOutputStream indexOut;
+    private MappedByteBuffer mapped;
+    private long wastedBytes;
+
+    public static CoverThumbnailStore getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (CoverThumbnailStore.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new CoverThumbnailStore(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public CoverThumbnailStore(File directory) {
+        directory.mkdirs();
+        packFile = new File(directory, PACK_FILE);
+        indexFile = new File(directory, INDEX_FILE);
+    }
+
+    // 取出指定尺寸的缩略图，没有或封面已经变化时返回null。返回的是只读的内存映射区域
+    public synchronized ByteBuffer get(String mangaPath, long coverModified, int width, int height) {
+        try {
+            open();
+            Entry entry = index.get(key(mangaPath, width, height));
+            if (entry == null || entry.coverModified != coverModified) {
+                return null;
+            }
+            // 打开之后追加的数据不在当前映射中，重新映射整个文件
+            if (mapped == null || entry.offset + entry.length > mapped.capacity()) {
+                mapped = pack.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, pack.length());
+            }
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int) entry.offset);
+            buffer.limit((int) (entry.offset + entry.length));
+            return buffer.slice().asReadOnlyBuffer();
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "读取封面缩略图出错: " + mangaPath, e);
+            return null;
+        }
+    }
+
+    // 保存缩略图，替换这部漫画原有的同尺寸缩略图
+    public synchronized void put(String mangaPath, long coverModified, int width, int height, byte[] data) {
+        try {
+            open();
+            long offset = pack.length();
+            pack.seek(offset);
+            pack.write(data);
+
+            // 数据写入后才写索引，中途退出时索引不会指向不完整的数据
+            Entry entry = new Entry(mangaPath, width, height, coverModified, offset, data.length);
+            writeRecord(indexOut, entry);
+            indexOut.flush();
+
+            Entry previous = index.put(key(mangaPath, width, height), entry);
+            if (previous != null) {
+                wastedBytes += previous.length;
+            }
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "保存封面缩略图出错: " + mangaPath, e);
+        }
+    }
+
+    // 取出缩略图，没有时从封面原图渲染并保存。在后台线程中调用
+    public ByteBuffer getOrRender(String mangaPath, String coverPath, int width, int height) {
+        long coverModified = new File(coverPath).lastModified();
+        if (coverModified == 0) {
+            return null;
+        }
+        ByteBuffer cached = get(mangaPath, coverModified, width, height);
+        if (cached != null) {
+            return cached;
+        }
+
+        // 渲染比较慢，不持有锁
+        byte[] data = render(coverPath, width, height);
+        if (data == null) {
+            return null;
+        }
+        put(mangaPath, coverModified, width, height, data);
+        return ByteBuffer.wrap(data);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    // 第一次使用时读取索引并打开打包文件
+    private void open() throws IOException {
+        if (pack != null) {
+            return;
+        }
+        loadIndex();
+        if (wastedBytes > MIN_COMPACT_BYTES && wastedBytes > packFile.length() / 2) {
+            compact();
+        }
+
+        pack = new RandomAccessFile(packFile, "rw");
+        boolean newIndex = !indexFile.exists() || indexFile.length() == 0;
+        indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+        if (newIndex) {
+            indexOut.writeInt(INDEX_MAGIC);
+            indexOut.writeInt(INDEX_VERSION);
+            indexOut.flush();
+        }
+        android.util.Log.d(TAG, "封面缩略图: " + index.size() + " 个, 打包文件 " + (packFile.length() / 1024) + "KB");
+    }
+
+    private void loadIndex() {
+        index.clear();
+        wastedBytes = 0;
+        if (!indexFile.exists() || !packFile.exists()) {
+            indexFile.delete();
+            packFile.delete();
+            return;
+        }
+
+        long packLength = packFile.length();
+        try {
+            byte[] bytes = Files.readAllBytes(indexFile.toPath());
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                throw new IOException("索引文件格式不匹配");
+            }
+            // 最后一条完整记录的结束位置
+            int validLength = bytes.length - in.available();
+            while (in.available() > 0) {
+                Entry entry;
+                try {
+                    entry = readRecord(in);
+                } catch (EOFException e) {
+                    // 最后一条记录可能没有写完整
+                    break;
+                }
+                if (entry.offset + entry.length > packLength) {
+                    break;
+                }
+                Entry previous = index.put(key(entry.mangaPath, entry.width, entry.height), entry);
+                if (previous != null) {
+                    wastedBytes += previous.length;
+                }
+                validLength = bytes.length - in.available();
+            }
+
+            // 截掉不完整的记录，之后追加的记录才能紧接在最后一条完整记录后面被读到
+            if (validLength < bytes.length) {
+                android.util.Log.w(TAG, "封面缩略图索引末尾有 " + (bytes.length - validLength) + " 字节不完整的记录，已截断");
+                try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+                    file.setLength(validLength);
+                }
+            }
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "读取封面缩略图索引出错，重新生成", e);
+            index.clear();
+            wastedBytes = 0;
+            indexFile.delete();
+            packFile.delete();
+        }
+    }
+
+    // 只保留有效的缩略图，写入新文件后替换。已经映射的旧文件在释放前仍然可以读取
+    private void compact() {
+        File newPack = new File(packFile.getPath() + ".tmp");
+        File newIndex = new File(indexFile.getPath() + ".tmp");
+        Map<String, Entry> compacted = new HashMap<>();
+        try (RandomAccessFile in = new RandomAccessFile(packFile, "r");
+             FileOutputStream packOut = new FileOutputStream(newPack);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newIndex)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            long offset = 0;
+            for (Map.Entry<String, Entry> item : index.entrySet()) {
+                Entry entry = item.getValue();
+                byte[] data = new byte[entry.length];
+                in.seek(entry.offset);
+                in.readFully(data);
+                packOut.write(data);
+                Entry moved = new Entry(entry.mangaPath, entry.width, entry.height,
+                        entry.coverModified, offset, entry.length);
+                writeRecord(out, moved);
+                compacted.put(item.getKey(), moved);
+                offset += entry.length;
+            }
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "整理封面缩略图出错", e);
+            newPack.delete();
+            newIndex.delete();
+            return;
+        }
+
+        if (newPack.renameTo(packFile) && newIndex.renameTo(indexFile)) {
+            android.util.Log.d(TAG, "已整理封面缩略图，释放 " + (wastedBytes / 1024) + "KB");
+            index.clear();
+            index.putAll(compacted);
+            wastedBytes = 0;
+        } else {
+            // 只替换了一半时两个文件不再对应，全部重新生成
+            android.util.Log.e(TAG, "替换封面缩略图文件失败，重新生成");
+            index.clear();
+            wastedBytes = 0;
+            packFile.delete();
+            indexFile.delete();
+            newPack.delete();
+            newIndex.delete();
+        }
+    }
+
+    // 按width x height居中裁剪封面并压缩为WebP，失败时返回null
+    public static byte[] render(String coverPath, int width, int height) {
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(coverPath, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0 || width <= 0 || height <= 0) {
+                return null;
+            }
+
+            // 缩小后两个方向都不小于缩略图的尺寸
+            int inSampleSize = 1;
+            while (options.outWidth / (inSampleSize * 2) >= width && options.outHeight / (inSampleSize * 2) >= height) {
+                inSampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = inSampleSize;
+            Bitmap source = BitmapFactory.decodeFile(coverPath, options);
+            if (source == null) {
+                return null;
+            }
+
+            float scale = Math.max((float) width / source.getWidth(), (float) height / source.getHeight());
+            Matrix matrix = new Matrix();
+            matrix.setScale(scale, scale);
+            matrix.postTranslate((width - source.getWidth() * scale) / 2f, (height - source.getHeight() * scale) / 2f);
+            Bitmap thumbnail = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            new Canvas(thumbnail).drawBitmap(source, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+            source.recycle();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            thumbnail.compress(Bitmap.CompressFormat.WEBP_LOSSY, QUALITY, out);
+            thumbnail.recycle();
+            return out.toByteArray();
+        } catch (Throwable e) {
+            android.util.Log.e(TAG, "生成封面缩略图出错: " + coverPath, e);
+            return null;
+        }
+    }
+
+    private static String key(String mangaPath, int width, int height) {
+        return mangaPath + '\n' + width + 'x' + height;
+    }
+
+    private static void writeRecord(DataOutputStream out, Entry entry) throws IOException {
+        out.writeUTF(entry.mangaPath);
+        out.writeInt(entry.width);
+        out.writeInt(entry.height);
+        out.writeLong(entry.coverModified);
+        out.writeLong(entry.offset);
+        out.writeInt(entry.length);
+    }
+
+    private static Entry readRecord(DataInputStream in) throws IOException {
+        return new Entry(in.readUTF(), in.readInt(), in.readInt(), in.readLong(), in.readLong(), in.readInt());
+    }
+
+    private static final class Entry {
+        final String mangaPath;
+        final int width;
+        final int height;
+        final long coverModified;
+        final long offset;
+        final int length;
+
+        Entry(String mangaPath, int width, int height, long coverModified, long offset, int length) {
+            this.mangaPath = mangaPath;
+            this.width = width;
+            this.height = height;
+            this.coverModified = coverModified;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
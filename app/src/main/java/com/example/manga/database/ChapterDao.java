@@ -1,49 +1,142 @@
 package com.example.manga.database;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.example.manga.model.Chapter;
+import com.example.manga.model.ChapterSummary;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
 public interface ChapterDao {
+    // SQL与QueryPlanTest共用，测试检查每条语句都使用索引
+    String SELECT_BY_PATH = "SELECT * FROM chapter_table WHERE path = :path";
+    String SELECT_BY_PATHS = "SELECT * FROM chapter_table WHERE path IN (:paths)";
+    String SELECT_BY_MANGA = "SELECT * FROM chapter_table WHERE mangaPath = :mangaPath ORDER BY sortOrder ASC";
+    String SELECT_SUMMARIES_BY_MANGA = "SELECT path, title, chapterNumber, lastReadPage, lastReadTime, totalPages FROM chapter_table "
+            + "WHERE mangaPath = :mangaPath ORDER BY sortOrder ASC";
+    String SELECT_PATHS_BY_MANGA = "SELECT path FROM chapter_table WHERE mangaPath = :mangaPath";
+    String DELETE_BY_PATHS = "DELETE FROM chapter_table WHERE path IN (:paths)";
+    String DELETE_BY_MANGA_PATHS = "DELETE FROM chapter_table WHERE mangaPath IN (:mangaPaths)";
+    String SELECT_ALL_BY_MANGA = "SELECT * FROM chapter_table ORDER BY mangaPath, sortOrder ASC";
+    String SELECT_RECENT = "SELECT * FROM chapter_table ORDER BY lastReadTime DESC LIMIT 10";
+    String UPDATE_READ_PROGRESS = "UPDATE chapter_table SET lastReadPage = :page, lastReadTime = :timestamp WHERE path = :path";
+    String UPDATE_TOTAL_PAGES = "UPDATE chapter_table SET totalPages = :totalPages WHERE path = :path";
+    String UPDATE_SORT_ORDER = "UPDATE chapter_table SET sortOrder = :sortOrder WHERE path = :path";
+    String SELECT_LAST_READ_BY_MANGA = "SELECT * FROM chapter_table WHERE mangaPath = :mangaPath ORDER BY lastReadTime DESC LIMIT 1";
+    String SELECT_PREVIOUS = "SELECT * FROM chapter_table WHERE mangaPath = :mangaPath AND sortOrder < :currentSortOrder ORDER BY sortOrder DESC LIMIT 1";
+    String SELECT_NEXT = "SELECT * FROM chapter_table WHERE mangaPath = :mangaPath AND sortOrder > :currentSortOrder ORDER BY sortOrder ASC LIMIT 1";
+    
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(Chapter chapter);
     
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<Chapter> chapters);
+    
     @Update
     void update(Chapter chapter);
     
     @Delete
     void delete(Chapter chapter);
     
-    @Query("SELECT * FROM chapter_table WHERE path = :path")
+    @Query(SELECT_BY_PATH)
     Chapter getChapterByPath(String path);
     
-    @Query("SELECT * FROM chapter_table WHERE mangaPath = :mangaPath ORDER BY chapterNumber ASC")
+    // paths 数量不能超过 MangaDatabase.MAX_BATCH_SIZE
+    @Query(SELECT_BY_PATHS)
+    List<Chapter> getChaptersByPaths(List<String> paths);
+    
+    @Query(SELECT_BY_MANGA)
     LiveData<List<Chapter>> getChaptersByManga(String mangaPath);
     
-    @Query("SELECT * FROM chapter_table ORDER BY mangaPath, chapterNumber ASC")
+    // 详情页章节列表使用的分页查询，只读取列表显示需要的列
+    @Query(SELECT_SUMMARIES_BY_MANGA)
+    PagingSource<Integer, ChapterSummary> getChapterSummariesByManga(String mangaPath);
+    
+    @Query(SELECT_PATHS_BY_MANGA)
+    List<String> getChapterPathsByManga(String mangaPath);
+    
+    @Query(DELETE_BY_PATHS)
+    void deleteByPaths(List<String> paths);
+    
+    @Query(DELETE_BY_MANGA_PATHS)
+    void deleteByMangaPaths(List<String> mangaPaths);
+    
+    @Query(SELECT_ALL_BY_MANGA)
     LiveData<List<Chapter>> getAllChapters();
     
-    @Query("SELECT * FROM chapter_table ORDER BY lastReadTime DESC LIMIT 10")
+    @Query(SELECT_RECENT)
     LiveData<List<Chapter>> getRecentChapters();
     
-    @Query("UPDATE chapter_table SET lastReadPage = :page, lastReadTime = :timestamp WHERE path = :path")
+    @Query(UPDATE_READ_PROGRESS)
     void updateReadProgress(String path, int page, long timestamp);
     
-    @Query("SELECT * FROM chapter_table WHERE mangaPath = :mangaPath ORDER BY lastReadTime DESC LIMIT 1")
+    @Query(UPDATE_TOTAL_PAGES)
+    void updateTotalPages(String path, int totalPages);
+    
+    @Query(UPDATE_SORT_ORDER)
+    void updateSortOrder(String path, int sortOrder);
+    
+    @Query(SELECT_LAST_READ_BY_MANGA)
     Chapter getLastReadChapterForManga(String mangaPath);
     
-    @Query("SELECT * FROM chapter_table WHERE mangaPath = :mangaPath AND chapterNumber < :currentChapterNumber ORDER BY chapterNumber DESC LIMIT 1")
-    Chapter getPreviousChapter(String mangaPath, int currentChapterNumber);
+    // 上一章/下一章按排序位置查找，与章节列表的顺序一致
+    @Query(SELECT_PREVIOUS)
+    Chapter getPreviousChapter(String mangaPath, int currentSortOrder);
+    
+    @Query(SELECT_NEXT)
+    Chapter getNextChapter(String mangaPath, int currentSortOrder);
+    
+    // 批量写入扫描到的章节，保留已有记录中的阅读进度
+    @Transaction
+    default void upsertPreservingProgress(List<Chapter> chapters) {
+        for (int start = 0; start < chapters.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+            List<Chapter> batch = chapters.subList(start, Math.min(start + MangaDatabase.MAX_BATCH_SIZE, chapters.size()));
+            
+            List<String> paths = new ArrayList<>(batch.size());
+            for (Chapter chapter : batch) {
+                paths.add(chapter.getPath());
+            }
+            Map<String, Chapter> existing = new HashMap<>();
+            for (Chapter chapter : getChaptersByPaths(paths)) {
+                existing.put(chapter.getPath(), chapter);
+            }
+            
+            for (Chapter chapter : batch) {
+                Chapter existingChapter = existing.get(chapter.getPath());
+                if (existingChapter != null) {
+                    chapter.setLastReadPage(existingChapter.getLastReadPage());
+                    chapter.setLastReadTime(existingChapter.getLastReadTime());
+                }
+            }
+            insertAll(batch);
+        }
+    }
+    
+    // 批量更新章节页数：章节路径 -> 页数
+    @Transaction
+    default void updateTotalPagesBatch(Map<String, Integer> totalPagesByPath) {
+        for (Map.Entry<String, Integer> entry : totalPagesByPath.entrySet()) {
+            updateTotalPages(entry.getKey(), entry.getValue());
+        }
+    }
     
-    @Query("SELECT * FROM chapter_table WHERE mangaPath = :mangaPath AND chapterNumber > :currentChapterNumber ORDER BY chapterNumber ASC LIMIT 1")
-    Chapter getNextChapter(String mangaPath, int currentChapterNumber);
-} 
\ No newline at end of file
+    // 批量更新章节的排序位置：章节路径 -> 位置
+    @Transaction
+    default void updateSortOrderBatch(Map<String, Integer> sortOrderByPath) {
+        for (Map.Entry<String, Integer> entry : sortOrderByPath.entrySet()) {
+            updateSortOrder(entry.getKey(), entry.getValue());
+        }
+    }
+}
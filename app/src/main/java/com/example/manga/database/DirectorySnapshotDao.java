@@ -0,0 +1,70 @@
+package com.example.manga.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.manga.model.DirectorySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Dao
+public interface DirectorySnapshotDao {
+    // SQL与QueryPlanTest共用，测试检查每条语句都使用索引，整表读取和清空除外
+    String SELECT_ALL = "SELECT * FROM directory_snapshot_table"; // 增量扫描读取所有快照
+    String SELECT_BY_PATH = "SELECT * FROM directory_snapshot_table WHERE path = :path";
+    String SELECT_BY_PATHS = "SELECT * FROM directory_snapshot_table WHERE path IN (:paths)";
+    String SELECT_BY_PARENT_PATHS = "SELECT * FROM directory_snapshot_table WHERE parentPath IN (:parentPaths)";
+    String DELETE_BY_PATHS = "DELETE FROM directory_snapshot_table WHERE path IN (:paths)";
+    String DELETE_ALL = "DELETE FROM directory_snapshot_table"; // 完整扫描前清空
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<DirectorySnapshot> snapshots);
+
+    @Query(SELECT_ALL)
+    List<DirectorySnapshot> getAll();
+
+    @Query(SELECT_BY_PATH)
+    DirectorySnapshot getByPath(String path);
+
+    @Query(SELECT_BY_PATHS)
+    List<DirectorySnapshot> getByPaths(List<String> paths);
+
+    @Query(SELECT_BY_PARENT_PATHS)
+    List<DirectorySnapshot> getByParentPaths(List<String> parentPaths);
+
+    // 获取指定目录及其直接子目录的快照。分成两条查询，每条的参数不超过MAX_BATCH_SIZE
+    @Transaction
+    default List<DirectorySnapshot> getByPathsOrParents(List<String> paths) {
+        List<DirectorySnapshot> snapshots = new ArrayList<>();
+        for (int start = 0; start < paths.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+            List<String> batch = paths.subList(start, Math.min(start + MangaDatabase.MAX_BATCH_SIZE, paths.size()));
+            snapshots.addAll(getByPaths(batch));
+            snapshots.addAll(getByParentPaths(batch));
+        }
+        return snapshots;
+    }
+
+    @Query(DELETE_BY_PATHS)
+    void deleteByPaths(List<String> paths);
+
+    @Query(DELETE_ALL)
+    void deleteAll();
+
+    // 在同一个事务中写入变化的快照并删除已消失目录的快照
+    @Transaction
+    default void applyChanges(List<DirectorySnapshot> changed, List<String> removedPaths) {
+        if (changed != null && !changed.isEmpty()) {
+            insertAll(changed);
+        }
+        if (removedPaths != null) {
+            for (int start = 0; start < removedPaths.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+                int end = Math.min(start + MangaDatabase.MAX_BATCH_SIZE, removedPaths.size());
+                deleteByPaths(removedPaths.subList(start, end));
+            }
+        }
+    }
+}
@@ -1,43 +1,128 @@
 package com.example.manga.database;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.example.manga.model.Manga;
+import com.example.manga.model.MangaSummary;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Dao
 public interface MangaDao {
+    // SQL与QueryPlanTest共用，测试检查每条语句都使用索引
+    String SELECT_BY_PATH = "SELECT * FROM manga_table WHERE path = :path";
+    String SELECT_BY_PATHS = "SELECT * FROM manga_table WHERE path IN (:paths)";
+    String DELETE_BY_PATHS = "DELETE FROM manga_table WHERE path IN (:paths)";
+    String SELECT_ALL_PATHS = "SELECT path FROM manga_table";
+    String SELECT_BY_LAST_READ = "SELECT * FROM manga_table WHERE lastReadTime > 0 ORDER BY lastReadTime DESC";
+    String SELECT_FAVORITES = "SELECT * FROM manga_table WHERE isFavorite = 1 ORDER BY title ASC";
+    String SELECT_ALPHABETICALLY = "SELECT * FROM manga_table ORDER BY title ASC";
+    String SELECT_SUMMARIES_BY_LAST_READ = "SELECT path, title, coverPath FROM manga_table WHERE lastReadTime > 0 ORDER BY lastReadTime DESC";
+    String SELECT_FAVORITE_SUMMARIES = "SELECT path, title, coverPath FROM manga_table WHERE isFavorite = 1 ORDER BY title ASC";
+    String SELECT_SUMMARIES_ALPHABETICALLY = "SELECT path, title, coverPath FROM manga_table ORDER BY title ASC";
+    String UPDATE_FAVORITE = "UPDATE manga_table SET isFavorite = :isFavorite WHERE path = :path";
+    String UPDATE_LAST_READ_TIME = "UPDATE manga_table SET lastReadTime = :timestamp WHERE path = :path";
+    
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insert(Manga manga);
     
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<Manga> mangaList);
+    
     @Update
     void update(Manga manga);
     
     @Delete
     void delete(Manga manga);
     
-    @Query("SELECT * FROM manga_table WHERE path = :path")
+    @Query(SELECT_BY_PATH)
     Manga getMangaByPath(String path);
     
-    @Query("SELECT * FROM manga_table WHERE lastReadTime > 0 ORDER BY lastReadTime DESC")
+    // 详情页观察的一部漫画，收藏状态和阅读时间变化时更新
+    @Query(SELECT_BY_PATH)
+    LiveData<Manga> observeMangaByPath(String path);
+    
+    // paths 数量不能超过 MangaDatabase.MAX_BATCH_SIZE
+    @Query(SELECT_BY_PATHS)
+    List<Manga> getMangaByPaths(List<String> paths);
+    
+    @Query(DELETE_BY_PATHS)
+    void deleteByPaths(List<String> paths);
+    
+    // 完整扫描结束后找出目录已不存在的漫画
+    @Query(SELECT_ALL_PATHS)
+    List<String> getAllMangaPaths();
+    
+    @Query(SELECT_BY_LAST_READ)
     LiveData<List<Manga>> getAllMangaByLastRead();
     
-    @Query("SELECT * FROM manga_table WHERE isFavorite = 1 ORDER BY title ASC")
+    @Query(SELECT_FAVORITES)
     LiveData<List<Manga>> getFavoriteManga();
     
-    @Query("SELECT * FROM manga_table ORDER BY title ASC")
+    @Query(SELECT_ALPHABETICALLY)
     LiveData<List<Manga>> getAllMangaAlphabetically();
     
-    @Query("UPDATE manga_table SET isFavorite = :isFavorite WHERE path = :path")
+    // 书架使用的分页查询，只读取网格显示需要的列，表变化时只重新读取已加载的几页
+    @Query(SELECT_SUMMARIES_BY_LAST_READ)
+    PagingSource<Integer, MangaSummary> getMangaSummariesByLastRead();
+    
+    @Query(SELECT_FAVORITE_SUMMARIES)
+    PagingSource<Integer, MangaSummary> getFavoriteMangaSummaries();
+    
+    @Query(SELECT_SUMMARIES_ALPHABETICALLY)
+    PagingSource<Integer, MangaSummary> getMangaSummariesAlphabetically();
+    
+    @Query(UPDATE_FAVORITE)
     void updateFavoriteStatus(String path, boolean isFavorite);
     
-    @Query("UPDATE manga_table SET lastReadTime = :timestamp WHERE path = :path")
+    @Query(UPDATE_LAST_READ_TIME)
     void updateLastReadTime(String path, long timestamp);
+    
+    // 批量查询漫画，按 MAX_BATCH_SIZE 分段
+    @Transaction
+    default List<Manga> getMangaByPathsBatched(List<String> paths) {
+        List<Manga> result = new ArrayList<>();
+        for (int start = 0; start < paths.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+            int end = Math.min(start + MangaDatabase.MAX_BATCH_SIZE, paths.size());
+            result.addAll(getMangaByPaths(paths.subList(start, end)));
+        }
+        return result;
+    }
+    
+    // 批量写入扫描到的漫画，保留已有记录中的收藏状态和阅读时间，章节数以本次扫描为准
+    @Transaction
+    default void upsertPreservingUserData(List<Manga> mangaList) {
+        for (int start = 0; start < mangaList.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+            List<Manga> batch = mangaList.subList(start, Math.min(start + MangaDatabase.MAX_BATCH_SIZE, mangaList.size()));
+            
+            List<String> paths = new ArrayList<>(batch.size());
+            for (Manga manga : batch) {
+                paths.add(manga.getPath());
+            }
+            Map<String, Manga> existing = new HashMap<>();
+            for (Manga manga : getMangaByPaths(paths)) {
+                existing.put(manga.getPath(), manga);
+            }
+            
+            for (Manga manga : batch) {
+                Manga existingManga = existing.get(manga.getPath());
+                if (existingManga != null) {
+                    manga.setFavorite(existingManga.isFavorite());
+                    manga.setLastReadTime(existingManga.getLastReadTime());
+                }
+            }
+            insertAll(batch);
+        }
+    }
 } 
\ No newline at end of file
@@ -9,13 +9,20 @@ import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.example.manga.model.Chapter;
+import com.example.manga.model.DirectorySnapshot;
 import com.example.manga.model.Manga;
+import com.example.manga.model.Page;
 
-@Database(entities = {Manga.class, Chapter.class}, version = 2, exportSchema = false)
+@Database(entities = {Manga.class, Chapter.class, DirectorySnapshot.class, Page.class}, version = 8, exportSchema = false)
 public abstract class MangaDatabase extends RoomDatabase {
     
+    // SQLite 单条语句的参数数量上限为 999，批量查询和删除按该大小分段
+    public static final int MAX_BATCH_SIZE = 500;
+    
     public abstract MangaDao mangaDao();
     public abstract ChapterDao chapterDao();
+    public abstract DirectorySnapshotDao directorySnapshotDao();
+    public abstract PageDao pageDao();
     
     private static volatile MangaDatabase INSTANCE;
     
@@ -28,7 +35,7 @@ public abstract class MangaDatabase extends RoomDatabase {
                             MangaDatabase.class,
                             "manga_database"
                     )
-                    .addMigrations(MIGRATION_1_2)
+                    .addMigrations(MIGRATIONS)
                     .build();
                 }
             }
@@ -43,4 +50,92 @@ public abstract class MangaDatabase extends RoomDatabase {
             database.execSQL("ALTER TABLE manga_table ADD COLUMN totalChapters INTEGER NOT NULL DEFAULT 0");
         }
     };
-} 
\ No newline at end of file
+    
+    private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 添加目录快照表，用于增量扫描
+            database.execSQL("CREATE TABLE IF NOT EXISTS `directory_snapshot_table` ("
+                    + "`path` TEXT NOT NULL, "
+                    + "`parentPath` TEXT, "
+                    + "`lastModified` INTEGER NOT NULL, "
+                    + "`childCount` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`path`))");
+        }
+    };
+    
+    private static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 添加页面表，打开章节时直接读取页面列表
+            database.execSQL("CREATE TABLE IF NOT EXISTS `page_table` ("
+                    + "`chapterPath` TEXT NOT NULL, "
+                    + "`pageIndex` INTEGER NOT NULL, "
+                    + "`fileName` TEXT, "
+                    + "`size` INTEGER NOT NULL, "
+                    + "`lastModified` INTEGER NOT NULL, "
+                    + "`width` INTEGER NOT NULL, "
+                    + "`height` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`chapterPath`, `pageIndex`))");
+        }
+    };
+    
+    private static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 添加页面的黑白检测结果，已有的页面为未检测
+            database.execSQL("ALTER TABLE page_table ADD COLUMN colorMode INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    private static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 为章节和漫画的查询添加索引，索引名与Room按@Index生成的名称一致
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_chapter_table_mangaPath_chapterNumber` "
+                    + "ON `chapter_table` (`mangaPath`, `chapterNumber`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_chapter_table_mangaPath_lastReadTime` "
+                    + "ON `chapter_table` (`mangaPath`, `lastReadTime`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_chapter_table_lastReadTime` "
+                    + "ON `chapter_table` (`lastReadTime`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_manga_table_lastReadTime` "
+                    + "ON `manga_table` (`lastReadTime`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_manga_table_isFavorite_title` "
+                    + "ON `manga_table` (`isFavorite`, `title`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_manga_table_title` "
+                    + "ON `manga_table` (`title`)");
+        }
+    };
+    
+    private static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 定向重建索引时按父目录读取章节快照
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_directory_snapshot_table_parentPath` "
+                    + "ON `directory_snapshot_table` (`parentPath`)");
+        }
+    };
+    
+    private static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // 章节按扫描时的排序位置排列，整数章节号无法区分小数章节和不同卷的章节
+            database.execSQL("ALTER TABLE chapter_table ADD COLUMN sortOrder INTEGER NOT NULL DEFAULT 0");
+            // 先按原来的章节号顺序给已有章节编号，保证同一漫画中的位置不重复
+            database.execSQL("UPDATE chapter_table SET sortOrder = (SELECT COUNT(*) FROM chapter_table AS other "
+                    + "WHERE other.mangaPath = chapter_table.mangaPath "
+                    + "AND (other.chapterNumber < chapter_table.chapterNumber "
+                    + "OR (other.chapterNumber = chapter_table.chapterNumber AND other.path < chapter_table.path)))");
+            database.execSQL("DROP INDEX IF EXISTS `index_chapter_table_mangaPath_chapterNumber`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_chapter_table_mangaPath_sortOrder` "
+                    + "ON `chapter_table` (`mangaPath`, `sortOrder`)");
+            // 清空目录快照，下次增量扫描会重新遍历所有漫画，按章节名称重新计算排序位置
+            database.execSQL("DELETE FROM directory_snapshot_table");
+        }
+    };
+    
+    // 所有版本升级，测试中也用于从旧版本升级
+    static final Migration[] MIGRATIONS = {
+            MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8
+    };
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.example.manga.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.example.manga.model.Page;
+
+import java.util.List;
+
+@Dao
+public interface PageDao {
+    // SQL与QueryPlanTest共用，测试检查每条语句都使用索引，整表读取和清空除外
+    String SELECT_BY_CHAPTER = "SELECT * FROM page_table WHERE chapterPath = :chapterPath ORDER BY pageIndex ASC";
+    String UPDATE_SIZE = "UPDATE page_table SET width = :width, height = :height WHERE chapterPath = :chapterPath AND pageIndex = :pageIndex";
+    String UPDATE_COLOR_MODE = "UPDATE page_table SET colorMode = :colorMode WHERE chapterPath = :chapterPath AND fileName = :fileName";
+    String DELETE_BY_CHAPTER_PATHS = "DELETE FROM page_table WHERE chapterPath IN (:chapterPaths)";
+    String DELETE_ALL = "DELETE FROM page_table"; // 完整扫描前清空
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<Page> pages);
+
+    // 按主键(chapterPath, pageIndex)的顺序读取，不需要额外排序
+    @Query(SELECT_BY_CHAPTER)
+    List<Page> getPages(String chapterPath);
+
+    // 记录解码前读取到的图片尺寸
+    @Query(UPDATE_SIZE)
+    void updateSize(String chapterPath, int pageIndex, int width, int height);
+
+    // 记录第一次解码时检测到的黑白/彩色结果
+    @Query(UPDATE_COLOR_MODE)
+    void updateColorMode(String chapterPath, String fileName, int colorMode);
+
+    @Query(DELETE_BY_CHAPTER_PATHS)
+    void deleteByChapterPaths(List<String> chapterPaths);
+
+    @Query(DELETE_ALL)
+    void deleteAll();
+
+    @Transaction
+    default void updateSizes(List<Page> pages) {
+        for (Page page : pages) {
+            updateSize(page.getChapterPath(), page.getPageIndex(), page.getWidth(), page.getHeight());
+        }
+    }
+
+    // 用新的页面列表替换这些章节原有的页面，pages中只能包含chapterPaths中的章节
+    @Transaction
+    default void replacePages(List<String> chapterPaths, List<Page> pages) {
+        for (int start = 0; start < chapterPaths.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+            deleteByChapterPaths(chapterPaths.subList(start,
+                    Math.min(start + MangaDatabase.MAX_BATCH_SIZE, chapterPaths.size())));
+        }
+        if (!pages.isEmpty()) {
+            insertAll(pages);
+        }
+    }
+}
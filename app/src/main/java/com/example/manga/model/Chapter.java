@@ -3,10 +3,18 @@ package com.example.manga.model;
 import android.os.Parcel;
 import android.os.Parcelable;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 
-@Entity(tableName = "chapter_table")
+// 章节列表、上一章/下一章按(mangaPath, sortOrder)查找并排序，
+// 继续阅读按(mangaPath, lastReadTime)，最近阅读按lastReadTime，都不需要全表扫描和临时排序
+@Entity(tableName = "chapter_table",
+        indices = {
+                @Index(value = {"mangaPath", "sortOrder"}),
+                @Index(value = {"mangaPath", "lastReadTime"}),
+                @Index(value = {"lastReadTime"})
+        })
 public class Chapter implements Parcelable {
     @PrimaryKey
     @NonNull
@@ -14,6 +22,7 @@ public class Chapter implements Parcelable {
     private String mangaPath; // 所属漫画的路径
     private String title; // 章节标题
     private int chapterNumber; // 章节号
+    private int sortOrder; // 章节在漫画中按章节名称排序的位置，同一漫画中不重复
     private int lastReadPage; // 上次阅读的页码
     private long lastReadTime; // 最后阅读时间
     private int totalPages; // 总页数
@@ -34,6 +43,7 @@ public class Chapter implements Parcelable {
         mangaPath = in.readString();
         title = in.readString();
         chapterNumber = in.readInt();
+        sortOrder = in.readInt();
         lastReadPage = in.readInt();
         lastReadTime = in.readLong();
         totalPages = in.readInt();
@@ -84,6 +94,14 @@ public class Chapter implements Parcelable {
         this.chapterNumber = chapterNumber;
     }
 
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(int sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+
     public int getLastReadPage() {
         return lastReadPage;
     }
@@ -119,6 +137,7 @@ public class Chapter implements Parcelable {
         dest.writeString(mangaPath);
         dest.writeString(title);
         dest.writeInt(chapterNumber);
+        dest.writeInt(sortOrder);
         dest.writeInt(lastReadPage);
         dest.writeLong(lastReadTime);
         dest.writeInt(totalPages);
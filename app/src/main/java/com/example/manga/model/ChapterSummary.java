@@ -0,0 +1,72 @@
+package com.example.manga.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * 章节列表使用的章节投影，只包含标题、章节号和阅读进度。
+ * 打开阅读器时按路径读取完整的Chapter。
+ */
+public class ChapterSummary {
+    @NonNull
+    private final String path; // 章节文件夹的完整路径
+    private final String title; // 章节标题
+    private final int chapterNumber; // 章节号
+    private final int lastReadPage; // 上次阅读的页码
+    private final long lastReadTime; // 最后阅读时间
+    private final int totalPages; // 总页数
+
+    public ChapterSummary(@NonNull String path, String title, int chapterNumber,
+                          int lastReadPage, long lastReadTime, int totalPages) {
+        this.path = path;
+        this.title = title;
+        this.chapterNumber = chapterNumber;
+        this.lastReadPage = lastReadPage;
+        this.lastReadTime = lastReadTime;
+        this.totalPages = totalPages;
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    public int getLastReadPage() {
+        return lastReadPage;
+    }
+
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChapterSummary that = (ChapterSummary) o;
+        return chapterNumber == that.chapterNumber
+                && lastReadPage == that.lastReadPage
+                && lastReadTime == that.lastReadTime
+                && totalPages == that.totalPages
+                && path.equals(that.path)
+                && Objects.equals(title, that.title);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, title, chapterNumber, lastReadPage, lastReadTime, totalPages);
+    }
+}
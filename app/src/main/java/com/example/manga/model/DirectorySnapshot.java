@@ -0,0 +1,61 @@
+package com.example.manga.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 目录快照，记录上次扫描时漫画/章节文件夹的修改时间和子项数量，
+ * 用于增量扫描时判断目录是否发生变化
+ */
+@Entity(tableName = "directory_snapshot_table",
+        indices = {@Index(value = {"parentPath"})})
+public class DirectorySnapshot {
+    @PrimaryKey
+    @NonNull
+    private String path; // 目录的完整路径
+    private String parentPath; // 父目录路径（漫画目录的父目录为根目录，章节目录的父目录为漫画目录）
+    private long lastModified; // 上次扫描时目录的修改时间
+    private int childCount; // 漫画目录记录章节文件夹数量，章节目录记录图片数量
+
+    public DirectorySnapshot(@NonNull String path, String parentPath, long lastModified, int childCount) {
+        this.path = path;
+        this.parentPath = parentPath;
+        this.lastModified = lastModified;
+        this.childCount = childCount;
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(@NonNull String path) {
+        this.path = path;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public void setParentPath(String parentPath) {
+        this.parentPath = parentPath;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+
+    public void setChildCount(int childCount) {
+        this.childCount = childCount;
+    }
+}
@@ -3,10 +3,17 @@ package com.example.manga.model;
 import android.os.Parcel;
 import android.os.Parcelable;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 
-@Entity(tableName = "manga_table")
+// 书架的三种排序：最近阅读按lastReadTime，收藏按(isFavorite, title)，全部按title
+@Entity(tableName = "manga_table",
+        indices = {
+                @Index(value = {"lastReadTime"}),
+                @Index(value = {"isFavorite", "title"}),
+                @Index(value = {"title"})
+        })
 public class Manga implements Parcelable {
     @PrimaryKey
     @NonNull
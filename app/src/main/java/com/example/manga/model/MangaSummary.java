@@ -0,0 +1,50 @@
+package com.example.manga.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * 书架网格使用的漫画投影，只包含显示封面和标题需要的列。
+ * 打开详情页时按路径读取完整的Manga。
+ */
+public class MangaSummary {
+    @NonNull
+    private final String path; // 漫画文件夹的完整路径
+    private final String title; // 漫画标题
+    private final String coverPath; // 封面图片路径
+
+    public MangaSummary(@NonNull String path, String title, String coverPath) {
+        this.path = path;
+        this.title = title;
+        this.coverPath = coverPath;
+    }
+
+    @NonNull
+    public String getPath() {
+        return path;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getCoverPath() {
+        return coverPath;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MangaSummary that = (MangaSummary) o;
+        return path.equals(that.path)
+                && Objects.equals(title, that.title)
+                && Objects.equals(coverPath, that.coverPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, title, coverPath);
+    }
+}
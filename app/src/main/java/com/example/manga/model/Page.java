@@ -0,0 +1,108 @@
+package com.example.manga.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import java.io.File;
+
+/**
+ * 章节中的一页图片，扫描时写入，打开章节时不再需要列出目录
+ */
+@Entity(tableName = "page_table", primaryKeys = {"chapterPath", "pageIndex"})
+public class Page {
+    // 黑白检测结果
+    public static final int COLOR_MODE_UNKNOWN = 0;
+    public static final int COLOR_MODE_GRAYSCALE = 1;
+    public static final int COLOR_MODE_COLOR = 2;
+
+    @NonNull
+    private String chapterPath; // 所属章节的路径
+    private int pageIndex; // 页面在章节中的顺序，从0开始
+    private String fileName; // 图片文件名
+    private long size; // 文件大小（字节）
+    private long lastModified; // 文件修改时间
+    private int width; // 图片宽度，未解码前为0
+    private int height; // 图片高度，未解码前为0
+    private int colorMode; // 是否为黑白图片，第一次解码时检测，见COLOR_MODE_*
+
+    public Page(@NonNull String chapterPath, int pageIndex, String fileName, long size, long lastModified) {
+        this.chapterPath = chapterPath;
+        this.pageIndex = pageIndex;
+        this.fileName = fileName;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.width = 0;
+        this.height = 0;
+        this.colorMode = COLOR_MODE_UNKNOWN;
+    }
+
+    // 图片的完整路径
+    public String getFilePath() {
+        return chapterPath + File.separator + fileName;
+    }
+
+    @NonNull
+    public String getChapterPath() {
+        return chapterPath;
+    }
+
+    public void setChapterPath(@NonNull String chapterPath) {
+        this.chapterPath = chapterPath;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public void setPageIndex(int pageIndex) {
+        this.pageIndex = pageIndex;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public int getColorMode() {
+        return colorMode;
+    }
+
+    public void setColorMode(int colorMode) {
+        this.colorMode = colorMode;
+    }
+}
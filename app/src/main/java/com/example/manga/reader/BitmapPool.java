@@ -0,0 +1,142 @@
+package com.example.manga.reader;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 可复用Bitmap的池，解码时通过BitmapFactory.Options.inBitmap复用已不再显示的页面，
+ * 避免每次翻页都分配新的大块内存。
+ * 按Bitmap实际占用的字节数分桶，取出时选择不小于所需字节数的最小Bitmap，
+ * 超过所需大小两倍的不复用，避免小图片占用大块内存。线程安全。
+ */
+public class BitmapPool {
+    private static final String TAG = "BitmapPool";
+    // 可复用的Bitmap最多为所需大小的倍数
+    private static final int MAX_SIZE_MULTIPLE = 2;
+
+    private final long maxBytes;
+    // 字节数 -> 该大小的Bitmap，每个桶内先放入的先取出
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+    // 所有Bitmap按放入顺序排列，超出容量时从最早放入的开始丢弃
+    private final ArrayDeque<Bitmap> insertionOrder = new ArrayDeque<>();
+
+    private long bytesHeld;
+    private int hitCount;
+    private int missCount;
+    private int putCount;
+    private int evictionCount;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // 放入一个不再使用的Bitmap，不可变或已回收的Bitmap会被忽略
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()
+                || bitmap.getAllocationByteCount() > maxBytes) {
+            return;
+        }
+
+        int size = bitmap.getAllocationByteCount();
+        ArrayDeque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(size, bucket);
+        }
+        bucket.addLast(bitmap);
+        insertionOrder.addLast(bitmap);
+        bytesHeld += size;
+        putCount++;
+
+        while (bytesHeld > maxBytes && !insertionOrder.isEmpty()) {
+            Bitmap oldest = insertionOrder.pollFirst();
+            removeFromBucket(oldest);
+            evictionCount++;
+        }
+    }
+
+    // 取出一个至少能容纳byteCount字节的Bitmap，没有合适的返回null
+    public synchronized Bitmap get(int byteCount) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.ceilingEntry(byteCount);
+        if (entry == null || entry.getKey() > (long) byteCount * MAX_SIZE_MULTIPLE) {
+            missCount++;
+            return null;
+        }
+
+        Bitmap bitmap = entry.getValue().pollFirst();
+        if (entry.getValue().isEmpty()) {
+            buckets.remove(entry.getKey());
+        }
+        insertionOrder.remove(bitmap);
+        bytesHeld -= entry.getKey();
+        hitCount++;
+        return bitmap;
+    }
+
+    private void removeFromBucket(Bitmap bitmap) {
+        int size = bitmap.getAllocationByteCount();
+        ArrayDeque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null) {
+            return;
+        }
+        Iterator<Bitmap> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == bitmap) {
+                iterator.remove();
+                bytesHeld -= size;
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(size);
+        }
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+        insertionOrder.clear();
+        bytesHeld = 0;
+    }
+
+    public synchronized long getBytesHeld() {
+        return bytesHeld;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    // 复用命中率，还没有请求时为0
+    public synchronized float getHitRate() {
+        int requests = hitCount + missCount;
+        return requests > 0 ? (float) hitCount / requests : 0f;
+    }
+
+    public synchronized int getPutCount() {
+        return putCount;
+    }
+
+    public synchronized int getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return TAG + "{hits=" + hitCount + ", misses=" + missCount
+                + ", hitRate=" + Math.round(getHitRate() * 100) + "%"
+                + ", puts=" + putCount + ", evictions=" + evictionCount
+                + ", held=" + (bytesHeld / 1024) + "KB/" + (maxBytes / 1024) + "KB}";
+    }
+}
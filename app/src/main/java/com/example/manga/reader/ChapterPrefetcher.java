@@ -0,0 +1,134 @@
+package com.example.manga.reader;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.manga.model.Chapter;
+import com.example.manga.viewmodel.MangaViewModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 跨章节预加载：读到距离章节末尾threshold页以内时，查询下一章、读取它的页面列表，
+ * 并把开头几页解码到PageCache中。翻到下一章时直接使用准备好的页面列表，
+ * 不需要再查询数据库，第一页也已经在缓存中。
+ * 除构造函数外的方法都只能在主线程中调用。
+ */
+public class ChapterPrefetcher {
+    private static final String TAG = "ChapterPrefetcher";
+    // 距离章节末尾多少页时开始准备下一章
+    public static final int DEFAULT_THRESHOLD = 3;
+    // 下一章预先解码的页数
+    public static final int DEFAULT_FIRST_PAGES = 2;
+
+    private final MangaViewModel viewModel;
+    private final PageCache cache;
+    private final int threshold;
+    private final int firstPages;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ChapterPrefetcher");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 正在为哪一章准备下一章
+    private String preparingFor;
+    // 每次换章加一，之前的查询结果直接丢弃
+    private volatile int generation;
+    private Chapter nextChapter;
+    private List<String> nextPages;
+
+    public ChapterPrefetcher(MangaViewModel viewModel, PageCache cache) {
+        this(viewModel, cache, DEFAULT_THRESHOLD, DEFAULT_FIRST_PAGES);
+    }
+
+    public ChapterPrefetcher(MangaViewModel viewModel, PageCache cache, int threshold, int firstPages) {
+        this.viewModel = viewModel;
+        this.cache = cache;
+        this.threshold = Math.max(0, threshold);
+        this.firstPages = Math.max(1, firstPages);
+    }
+
+    // 翻到chapter的position页后调用，接近末尾时开始准备下一章，每章只准备一次
+    public void onPageChanged(String mangaPath, Chapter chapter, int position, int totalPages,
+                              final int reqWidth, final int reqHeight) {
+        if (chapter == null || totalPages <= 0 || totalPages - 1 - position > threshold) {
+            return;
+        }
+        if (chapter.getPath().equals(preparingFor)) {
+            return;
+        }
+
+        reset();
+        preparingFor = chapter.getPath();
+        final int requestGeneration = generation;
+        viewModel.getNextChapter(mangaPath, chapter.getSortOrder(), next -> {
+            if (next == null) {
+                return;
+            }
+            viewModel.getChapterPages(next.getPath(), pages -> mainHandler.post(() -> {
+                if (requestGeneration != generation || pages == null || pages.isEmpty()) {
+                    return;
+                }
+                nextChapter = next;
+                nextPages = new ArrayList<>(pages);
+                android.util.Log.d(TAG, "已准备下一章: " + next.getTitle() + ", 页数: " + pages.size());
+                prefetchFirstPages(requestGeneration, reqWidth, reqHeight);
+            }));
+        });
+    }
+
+    // 下一章开头几页按阅读器的显示尺寸解码到缓存中，从上次阅读的位置继续时也解码那一页
+    private void prefetchFirstPages(final int requestGeneration, final int reqWidth, final int reqHeight) {
+        List<String> targets = new ArrayList<>();
+        int lastReadPage = nextChapter.getLastReadPage();
+        if (lastReadPage > 0 && lastReadPage < nextPages.size()) {
+            targets.add(nextPages.get(lastReadPage));
+        }
+        for (int i = 0; i < firstPages && i < nextPages.size(); i++) {
+            targets.add(nextPages.get(i));
+        }
+
+        for (final String path : targets) {
+            executor.execute(() -> {
+                String key = PageCache.key(path, reqWidth, reqHeight);
+                if (requestGeneration != generation || cache.contains(key)) {
+                    return;
+                }
+                Bitmap bitmap = PageDecoder.decodePage(path, reqWidth, reqHeight, cache);
+                if (bitmap != null) {
+                    cache.put(key, bitmap);
+                    android.util.Log.d(TAG, "预加载下一章页面: " + path);
+                }
+            });
+        }
+    }
+
+    // 已经准备好的下一章，必须是chapter的下一章，否则返回null
+    public Chapter getNextChapter(Chapter chapter) {
+        return chapter != null && chapter.getPath().equals(preparingFor) ? nextChapter : null;
+    }
+
+    // 已经准备好的下一章的页面列表，与getNextChapter对应
+    public List<String> getNextPages(Chapter chapter) {
+        return getNextChapter(chapter) != null ? nextPages : null;
+    }
+
+    // 放弃准备好的下一章，还没完成的查询和预加载结果会被丢弃
+    public void reset() {
+        generation++;
+        preparingFor = null;
+        nextChapter = null;
+        nextPages = null;
+    }
+
+    public void shutdown() {
+        reset();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.manga.reader;
+
+import android.graphics.Bitmap;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.drawable.BitmapDrawable;
+import android.widget.ImageView;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 黑白页面的检测、单通道存储和显示。
+ * 黑白页面只保存亮度，放在ALPHA_8 Bitmap的alpha通道中，每个像素1字节，是ARGB_8888的1/4。
+ * 直接显示ALPHA_8时画出的是带透明度的画笔颜色，需要用颜色滤镜把alpha换成灰度，
+ * 所有显示页面的ImageView都通过setImageBitmap设置页面。
+ */
+public final class GrayscalePages {
+    private static final String TAG = "GrayscalePages";
+    // 黑白检测时每个方向最多采样的点数
+    private static final int SAMPLES = 32;
+    // RGB三个分量的最大差值不超过这个值的像素按灰色处理，允许JPEG压缩带来的色偏
+    private static final int TOLERANCE = 24;
+    // 彩色像素不超过采样点的这个比例（1/N）时按黑白页面处理
+    private static final int COLOR_FRACTION = 100;
+
+    // ALPHA_8按画笔颜色（黑色）和alpha绘制，输入为(0, 0, 0, a)，输出不透明的(a, a, a)
+    private static final ColorMatrixColorFilter LUMINANCE_FILTER = new ColorMatrixColorFilter(new float[]{
+            0, 0, 0, 1, 0,
+            0, 0, 0, 1, 0,
+            0, 0, 0, 1, 0,
+            0, 0, 0, 0, 255
+    });
+
+    private GrayscalePages() {
+    }
+
+    // 在图片上均匀取最多SAMPLES x SAMPLES个点，彩色的点很少时认为是黑白图片
+    public static boolean isGrayscale(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int stepX = Math.max(1, width / SAMPLES);
+        int stepY = Math.max(1, height / SAMPLES);
+        int samples = 0;
+        int colored = 0;
+        for (int y = stepY / 2; y < height; y += stepY) {
+            for (int x = stepX / 2; x < width; x += stepX) {
+                int pixel = bitmap.getPixel(x, y);
+                int r = (pixel >> 16) & 0xff;
+                int g = (pixel >> 8) & 0xff;
+                int b = pixel & 0xff;
+                int max = Math.max(r, Math.max(g, b));
+                int min = Math.min(r, Math.min(g, b));
+                if (max - min > TOLERANCE) {
+                    colored++;
+                }
+                samples++;
+            }
+        }
+        return samples > 0 && colored * COLOR_FRACTION <= samples;
+    }
+
+    // 把黑白图片的亮度转存为ALPHA_8，source之后放入pool。转换失败时返回source
+    public static Bitmap toLuminance(Bitmap source, BitmapPool pool) {
+        if (source.getConfig() == Bitmap.Config.ALPHA_8) {
+            return source;
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        Bitmap target = obtainAlpha8(width, height, pool);
+        if (target == null) {
+            return source;
+        }
+
+        int rowBytes = target.getRowBytes();
+        byte[] luminance = new byte[rowBytes * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            source.getPixels(row, 0, width, 0, y, width, 1);
+            int offset = y * rowBytes;
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                // BT.601亮度，系数放大256倍取整
+                luminance[offset + x] = (byte) ((((pixel >> 16) & 0xff) * 77
+                        + ((pixel >> 8) & 0xff) * 150 + (pixel & 0xff) * 29) >> 8);
+            }
+        }
+        target.copyPixelsFromBuffer(ByteBuffer.wrap(luminance));
+        if (pool != null) {
+            pool.put(source);
+        }
+        return target;
+    }
+
+    // 优先从复用池中取出足够大的Bitmap改为ALPHA_8
+    private static Bitmap obtainAlpha8(int width, int height, BitmapPool pool) {
+        Bitmap reused = pool != null ? pool.get(width * height) : null;
+        if (reused != null) {
+            try {
+                reused.reconfigure(width, height, Bitmap.Config.ALPHA_8);
+                return reused;
+            } catch (IllegalArgumentException e) {
+                pool.put(reused);
+            }
+        }
+        try {
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        } catch (OutOfMemoryError e) {
+            android.util.Log.e(TAG, "分配单通道页面时内存不足", e);
+            return null;
+        }
+    }
+
+    // 显示页面，ALPHA_8保存的黑白页面加上颜色滤镜后按灰度显示
+    public static void setImageBitmap(ImageView imageView, Bitmap bitmap) {
+        if (bitmap != null && bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+            BitmapDrawable drawable = new BitmapDrawable(imageView.getResources(), bitmap);
+            drawable.setColorFilter(LUMINANCE_FILTER);
+            imageView.setImageDrawable(drawable);
+        } else {
+            imageView.setImageBitmap(bitmap);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.manga.reader;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import com.example.manga.SettingsActivity;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 已解码页面的内存缓存，ReaderActivity和MangaReaderActivity共用。
+ * 按Bitmap实际占用的字节数（getAllocationByteCount）限制大小，
+ * 键包含解码时的目标尺寸，同一张图片按不同尺寸解码的结果分开缓存。
+ * 被淘汰且没有在显示的页面放入BitmapPool，供之后的解码复用；
+ * 正在显示的页面需要通过pin/unpin标记，避免被复用后画面错乱。
+ * 所有解码路径按这里记录的解码方式（SettingsActivity.DECODE_PROFILE_*）选择Bitmap.Config。
+ */
+public class PageCache {
+    private static final String TAG = "PageCache";
+    // 默认使用最大堆内存的1/4
+    private static final int DEFAULT_MEMORY_FRACTION = 4;
+    // 复用池的大小为缓存大小的1/4
+    private static final int POOL_FRACTION = 4;
+    // 最多记住多少张图片的黑白检测结果
+    private static final int MAX_GRAYSCALE_ENTRIES = 2048;
+
+    private static volatile PageCache INSTANCE;
+
+    private final LruCache<String, Bitmap> cache;
+    private final BitmapPool bitmapPool;
+    // 正在显示的页面及其引用次数
+    private final Map<Bitmap, Integer> pinned = new IdentityHashMap<>();
+    // 当前在缓存中的页面
+    private final Set<Bitmap> cached = Collections.newSetFromMap(new IdentityHashMap<>());
+    // 自动解码方式下检测过的图片是否为黑白图片，按图片路径记录
+    private final LruCache<String, Boolean> grayscalePages = new LruCache<>(MAX_GRAYSCALE_ENTRIES);
+    private volatile int decodeProfile = SettingsActivity.DECODE_PROFILE_AUTO;
+    private volatile GrayscaleListener grayscaleListener;
+
+    public interface GrayscaleListener {
+        // 解码时检测到一张图片的黑白结果，在解码线程中调用
+        void onGrayscaleDetected(String path, boolean grayscale);
+    }
+
+    public static PageCache getInstance() {
+        if (INSTANCE == null) {
+            synchronized (PageCache.class) {
+                if (INSTANCE == null) {
+                    long maxMemory = Runtime.getRuntime().maxMemory();
+                    INSTANCE = new PageCache((int) Math.min(Integer.MAX_VALUE, maxMemory / DEFAULT_MEMORY_FRACTION));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public PageCache(int maxBytes) {
+        bitmapPool = new BitmapPool(maxBytes / POOL_FRACTION);
+        cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    release(oldValue);
+                }
+            }
+        };
+        android.util.Log.d(TAG, "Page cache size: " + (maxBytes / 1024 / 1024) + " MB");
+    }
+
+    public static String key(String path, int reqWidth, int reqHeight) {
+        return path + "@" + reqWidth + "x" + reqHeight;
+    }
+
+    public Bitmap get(String key) {
+        return cache.get(key);
+    }
+
+    // 取出页面并标记为使用中，调用方不再显示时调用unpin。查找和标记在release使用的同一个锁中完成，
+    // 否则两步之间页面可能被其他线程的put淘汰并放入复用池，又被下一次解码作为inBitmap覆盖
+    public synchronized Bitmap getAndPin(String key) {
+        Bitmap bitmap = cache.get(key);
+        pin(bitmap);
+        return bitmap;
+    }
+
+    public boolean contains(String key) {
+        // get会把条目移到最近使用的位置，预加载窗口内的页面因此不会被优先淘汰
+        return cache.get(key) != null;
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        if (key != null && bitmap != null) {
+            synchronized (this) {
+                cached.add(bitmap);
+            }
+            cache.put(key, bitmap);
+        }
+    }
+
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    // 阅读器打开时按设置调用。解码方式变化后清空缓存，已缓存的页面是按原来的方式解码的
+    public void setDecodeProfile(int profile) {
+        if (decodeProfile == profile) {
+            return;
+        }
+        decodeProfile = profile;
+        clear();
+        android.util.Log.d(TAG, "Decode profile changed: " + profile);
+    }
+
+    public int getDecodeProfile() {
+        return decodeProfile;
+    }
+
+    // 图片是否为黑白图片，还没有检测过时返回null
+    public Boolean isGrayscale(String path) {
+        return grayscalePages.get(path);
+    }
+
+    // 解码时检测到的结果，同时通知GrayscaleListener
+    public void setGrayscale(String path, boolean grayscale) {
+        grayscalePages.put(path, grayscale);
+        GrayscaleListener listener = grayscaleListener;
+        if (listener != null) {
+            listener.onGrayscaleDetected(path, grayscale);
+        }
+    }
+
+    // 从页面表读回之前检测过的结果，不通知GrayscaleListener
+    public void restoreGrayscale(String path, boolean grayscale) {
+        grayscalePages.put(path, grayscale);
+    }
+
+    public void setGrayscaleListener(GrayscaleListener listener) {
+        grayscaleListener = listener;
+    }
+
+    public GrayscaleListener getGrayscaleListener() {
+        return grayscaleListener;
+    }
+
+    // 页面开始显示时调用，显示期间即使被缓存淘汰也不会被复用
+    public synchronized void pin(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        Integer count = pinned.get(bitmap);
+        pinned.put(bitmap, count != null ? count + 1 : 1);
+    }
+
+    // 页面不再显示时调用，已不在缓存中的页面放入复用池
+    public synchronized void unpin(Bitmap bitmap) {
+        Integer count = bitmap != null ? pinned.get(bitmap) : null;
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            pinned.put(bitmap, count - 1);
+            return;
+        }
+        pinned.remove(bitmap);
+        if (!cached.contains(bitmap)) {
+            bitmapPool.put(bitmap);
+        }
+    }
+
+    // 离开缓存的页面，没有在显示时放入复用池
+    private synchronized void release(Bitmap bitmap) {
+        cached.remove(bitmap);
+        if (!pinned.containsKey(bitmap)) {
+            bitmapPool.put(bitmap);
+        }
+    }
+
+    public void clear() {
+        cache.evictAll();
+        bitmapPool.clear();
+    }
+
+    // 由阅读器的onTrimMemory调用：进入后台时清空，运行中内存不足时减半
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    public int getSizeBytes() {
+        return cache.size();
+    }
+
+    public int getMaxSizeBytes() {
+        return cache.maxSize();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    @Override
+    public String toString() {
+        return TAG + "{size=" + (cache.size() / 1024) + "KB/" + (cache.maxSize() / 1024) + "KB"
+                + ", hits=" + cache.hitCount() + ", misses=" + cache.missCount()
+                + ", evictions=" + cache.evictionCount() + ", " + bitmapPool + "}";
+    }
+}
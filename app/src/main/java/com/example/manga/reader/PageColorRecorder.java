@@ -0,0 +1,61 @@
+package com.example.manga.reader;
+
+import com.example.manga.model.Page;
+import com.example.manga.viewmodel.MangaViewModel;
+
+import java.util.List;
+
+/**
+ * 把解码时检测到的黑白结果写入页面表（Page.colorMode），打开章节时再读回PageCache，
+ * 同一页以后直接按黑白页面解码，不需要先解码为ARGB_8888再检测。
+ * 阅读器在onCreate中attach、onDestroy中detach，restore可以在任意线程中调用。
+ */
+public class PageColorRecorder implements PageCache.GrayscaleListener {
+    private static final String TAG = "PageColorRecorder";
+
+    private final MangaViewModel viewModel;
+    private final PageCache cache;
+
+    public PageColorRecorder(MangaViewModel viewModel, PageCache cache) {
+        this.viewModel = viewModel;
+        this.cache = cache;
+    }
+
+    public void attach() {
+        cache.setGrayscaleListener(this);
+    }
+
+    // 另一个阅读器已经替换了监听器时不清除
+    public void detach() {
+        if (cache.getGrayscaleListener() == this) {
+            cache.setGrayscaleListener(null);
+        }
+    }
+
+    // 读取章节中已经检测过的页面
+    public void loadChapter(String chapterPath) {
+        viewModel.getStoredPages(chapterPath, this::restore);
+    }
+
+    // 页面信息已经读取时直接使用，例如连续滚动阅读的getChapterPageInfo结果
+    public void restore(List<Page> pages) {
+        if (pages == null) {
+            return;
+        }
+        int restored = 0;
+        for (Page page : pages) {
+            if (page.getColorMode() != Page.COLOR_MODE_UNKNOWN) {
+                cache.restoreGrayscale(page.getFilePath(), page.getColorMode() == Page.COLOR_MODE_GRAYSCALE);
+                restored++;
+            }
+        }
+        if (restored > 0) {
+            android.util.Log.d(TAG, "已读取页面黑白检测结果: " + restored + "/" + pages.size());
+        }
+    }
+
+    @Override
+    public void onGrayscaleDetected(String path, boolean grayscale) {
+        viewModel.updatePageColorMode(path, grayscale ? Page.COLOR_MODE_GRAYSCALE : Page.COLOR_MODE_COLOR);
+    }
+}
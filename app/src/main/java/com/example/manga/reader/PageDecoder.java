@@ -0,0 +1,290 @@
+package com.example.manga.reader;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.manga.SettingsActivity;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 漫画页面解码器。
+ * 先只读取图片尺寸（inJustDecodeBounds），再根据显示区域计算inSampleSize，
+ * 在后台线程中按缩小后的尺寸解码，结果回到主线程交给调用方。
+ * 解码结果保存在PageCache中，已缓存的页面直接在调用线程中回调。
+ * 回调收到的页面已标记为使用中，由调用方在不再显示时unpin。
+ * 翻页时取消上一次未完成的请求，被取消的请求不会回调。
+ * 连续滚动阅读中长条漫画的分段用BitmapRegionDecoder只解码对应的区域。
+ * 解码格式由PageCache中的解码方式决定：RGB_565每个像素只占2字节；硬件位图的像素在显存中，
+ * 但不可变，不能作为inBitmap也不会放入复用池；自动方式下黑白页面只保存亮度（ALPHA_8，见GrayscalePages）。
+ */
+public class PageDecoder {
+    private static final String TAG = "PageDecoder";
+
+    public interface Callback {
+        // 在主线程中调用，解码失败时bitmap为null。bitmap已在PageCache中标记为使用中，
+        // 调用方接管这次标记，不再显示（或不使用）时调用PageCache.unpin
+        void onPageDecoded(String path, Bitmap bitmap);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PageDecoder");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PageCache cache;
+    // 上一次分段解码使用的图片，同一张长图的各段通常连续解码。只在解码线程中访问
+    private BitmapRegionDecoder regionDecoder;
+    private String regionDecoderPath;
+
+    public PageDecoder() {
+        this(PageCache.getInstance());
+    }
+
+    public PageDecoder(PageCache cache) {
+        this.cache = cache;
+    }
+
+    // 异步解码一页，reqWidth/reqHeight为显示区域的大小。只能在主线程中调用
+    public Request decode(final String path, final int reqWidth, final int reqHeight, final Callback callback) {
+        return submit(path, PageCache.key(path, reqWidth, reqHeight),
+                () -> decodePage(path, reqWidth, reqHeight, cache), callback);
+    }
+
+    // 异步解码连续滚动阅读中的一项，整页与decode(String, ...)相同。只能在主线程中调用
+    public Request decode(final PageSegment segment, final int reqWidth, final int reqHeight, final Callback callback) {
+        if (segment.isWholePage()) {
+            return decode(segment.getPath(), reqWidth, reqHeight, callback);
+        }
+        return submit(segment.getPath(), segment.cacheKey(reqWidth, reqHeight),
+                () -> decodeSegment(segment, reqWidth, reqHeight), callback);
+    }
+
+    private interface Loader {
+        // 在解码线程中调用，失败时返回null
+        Bitmap load();
+    }
+
+    private Request submit(final String path, final String key, final Loader loader, final Callback callback) {
+        final Request request = new Request();
+        Bitmap cached = cache.getAndPin(key);
+        if (cached != null) {
+            callback.onPageDecoded(path, cached);
+            return request;
+        }
+
+        request.future = executor.submit(() -> {
+            if (request.cancelled) {
+                return;
+            }
+            // 可能已经被预加载
+            Bitmap bitmap = cache.getAndPin(key);
+            if (bitmap == null) {
+                bitmap = loader.load();
+                // 先标记为使用中，回调之前被缓存淘汰也不会被复用
+                cache.pin(bitmap);
+                cache.put(key, bitmap);
+            }
+            final Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                // 翻页后才解码完成的页面留在缓存中，不再回调
+                if (!request.cancelled) {
+                    callback.onPageDecoded(path, result);
+                } else {
+                    cache.unpin(result);
+                }
+            });
+        });
+        return request;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // 按屏幕宽度解码长图中的一段，只在解码线程中调用
+    private Bitmap decodeSegment(PageSegment segment, int reqWidth, int reqHeight) {
+        try {
+            if (regionDecoder == null || !segment.getPath().equals(regionDecoderPath)) {
+                if (regionDecoder != null) {
+                    regionDecoder.recycle();
+                    regionDecoder = null;
+                }
+                regionDecoder = BitmapRegionDecoder.newInstance(segment.getPath(), false);
+                regionDecoderPath = segment.getPath();
+            }
+
+            Rect region = new Rect(0, segment.getTop(), regionDecoder.getWidth(),
+                    Math.min(segment.getBottom(), regionDecoder.getHeight()));
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = calculateInSampleSize(region.width(), region.height(), reqWidth, reqHeight);
+            options.inPreferredConfig = preferredConfig(cache.getDecodeProfile(), cache.isGrayscale(segment.getPath()));
+            // 解码结果需要可变才能在之后放入复用池，硬件位图只能是不可变的
+            options.inMutable = options.inPreferredConfig != Bitmap.Config.HARDWARE;
+            Bitmap bitmap = regionDecoder.decodeRegion(region, options);
+            return cache.getDecodeProfile() == SettingsActivity.DECODE_PROFILE_AUTO
+                    ? applyAutoProfile(segment.getPath(), bitmap, cache) : bitmap;
+        } catch (Throwable e) {
+            android.util.Log.e(TAG, "分段解码图片出错: " + segment.getPath() + " #" + segment.getSegmentIndex(), e);
+            return null;
+        }
+    }
+
+    // 按cache中的解码方式同步解码一页，复用cache的复用池。只能在后台线程中调用
+    public static Bitmap decodePage(String path, int reqWidth, int reqHeight, PageCache cache) {
+        int profile = cache.getDecodeProfile();
+        Bitmap.Config config = preferredConfig(profile, cache.isGrayscale(path));
+        Bitmap bitmap = decodeSampled(path, reqWidth, reqHeight, config, cache.getBitmapPool());
+        return profile == SettingsActivity.DECODE_PROFILE_AUTO ? applyAutoProfile(path, bitmap, cache) : bitmap;
+    }
+
+    // 解码方式对应的Bitmap.Config，grayscale为图片是否为黑白图片，还没有检测过时为null。
+    // 自动方式下黑白图片先按RGB_565解码，整页和分段再转为ALPHA_8，分块显示的图块保持RGB_565
+    public static Bitmap.Config preferredConfig(int profile, Boolean grayscale) {
+        switch (profile) {
+            case SettingsActivity.DECODE_PROFILE_HARDWARE:
+                return Bitmap.Config.HARDWARE;
+            case SettingsActivity.DECODE_PROFILE_RGB_565:
+                return Bitmap.Config.RGB_565;
+            case SettingsActivity.DECODE_PROFILE_AUTO:
+            default:
+                return Boolean.TRUE.equals(grayscale) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        }
+    }
+
+    // 自动方式的后处理：第一次解码的图片按ARGB_8888解码后检测是否为黑白图片，结果记录在cache中，
+    // 之后再解码这张图片时直接使用RGB_565。黑白图片最后只保存亮度（ALPHA_8），原来的Bitmap放入复用池
+    private static Bitmap applyAutoProfile(String path, Bitmap bitmap, PageCache cache) {
+        if (bitmap == null) {
+            return null;
+        }
+        Boolean grayscale = cache.isGrayscale(path);
+        if (grayscale == null) {
+            grayscale = GrayscalePages.isGrayscale(bitmap);
+            cache.setGrayscale(path, grayscale);
+        }
+        return grayscale ? GrayscalePages.toLuminance(bitmap, cache.getBitmapPool()) : bitmap;
+    }
+
+    // 同步解码，只能在后台线程中调用
+    public static Bitmap decodeSampled(String path, int reqWidth, int reqHeight) {
+        return decodeSampled(path, reqWidth, reqHeight, null);
+    }
+
+    // 同步解码为ARGB_8888，pool不为空时尽量复用其中的Bitmap。只能在后台线程中调用
+    public static Bitmap decodeSampled(String path, int reqWidth, int reqHeight, BitmapPool pool) {
+        return decodeSampled(path, reqWidth, reqHeight, Bitmap.Config.ARGB_8888, pool);
+    }
+
+    // 按config同步解码，pool不为空时尽量复用其中的Bitmap，硬件位图不复用。只能在后台线程中调用
+    public static Bitmap decodeSampled(String path, int reqWidth, int reqHeight, Bitmap.Config config, BitmapPool pool) {
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(path, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                android.util.Log.e(TAG, "无法读取图片尺寸: " + path);
+                return null;
+            }
+
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+            options.inPreferredConfig = config;
+            // 解码结果需要可变才能在之后放入复用池，硬件位图只能是不可变的
+            options.inMutable = config != Bitmap.Config.HARDWARE;
+            if (config == Bitmap.Config.HARDWARE) {
+                pool = null;
+            }
+            try {
+                return decodeWithReuse(path, options, pool);
+            } catch (OutOfMemoryError e) {
+                // 内存不足时降低一半分辨率再试一次
+                android.util.Log.e(TAG, "解码图片时内存不足，降低分辨率重试: " + path, e);
+                options.inSampleSize *= 2;
+                return decodeWithReuse(path, options, pool);
+            }
+        } catch (Throwable e) {
+            android.util.Log.e(TAG, "解码图片出错: " + path, e);
+            return null;
+        }
+    }
+
+    // 从复用池中取出足够大的Bitmap作为inBitmap，复用失败时放回池中并重新分配
+    private static Bitmap decodeWithReuse(String path, BitmapFactory.Options options, BitmapPool pool) {
+        options.inBitmap = null;
+        if (pool != null) {
+            int width = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+            int height = (options.outHeight + options.inSampleSize - 1) / options.inSampleSize;
+            options.inBitmap = pool.get(width * height * bytesPerPixel(options.inPreferredConfig));
+        }
+        if (options.inBitmap == null) {
+            return BitmapFactory.decodeFile(path, options);
+        }
+
+        try {
+            return BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            android.util.Log.w(TAG, "无法复用Bitmap，重新分配: " + path);
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    // 各解码格式每个像素的字节数，硬件位图按ARGB_8888计算
+    static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565) {
+            return 2;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+
+    // 图片按FIT_CENTER显示在reqWidth x reqHeight的区域中，
+    // 取缩小后仍不小于显示尺寸的最大2的幂作为采样率
+    public static int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        if (reqWidth <= 0 || reqHeight <= 0 || srcWidth <= 0 || srcHeight <= 0) {
+            return 1;
+        }
+
+        float scale = Math.min((float) reqWidth / srcWidth, (float) reqHeight / srcHeight);
+        if (scale >= 1f) {
+            return 1;
+        }
+
+        int displayWidth = Math.round(srcWidth * scale);
+        int displayHeight = Math.round(srcHeight * scale);
+        int inSampleSize = 1;
+        while (srcWidth / (inSampleSize * 2) >= displayWidth && srcHeight / (inSampleSize * 2) >= displayHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    // 一次解码请求，翻页时调用cancel
+    public static final class Request {
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        // 只能在主线程中调用，调用后不会再收到回调
+        public void cancel() {
+            cancelled = true;
+            Future<?> pending = future;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
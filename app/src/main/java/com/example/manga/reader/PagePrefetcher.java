@@ -0,0 +1,151 @@
+package com.example.manga.reader;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阅读时的预加载窗口：当前页之后forward页、之前backward页提前解码到PageCache中。
+ * 所有预加载任务在同一个单线程执行器中排队，翻页时取消已经离开窗口的任务。
+ * 向后的窗口按预加载页面的平均大小扩大，最多为forward的MAX_FORWARD_MULTIPLE倍，
+ * 只保存亮度的黑白页面只有彩色页面的1/4，同样的缓存可以预加载更多页。
+ * 除构造函数外的方法都只能在主线程中调用。
+ */
+public class PagePrefetcher {
+    private static final String TAG = "PagePrefetcher";
+    public static final int DEFAULT_FORWARD = 3;
+    public static final int DEFAULT_BACKWARD = 1;
+    // 向后的窗口最多扩大到forward的倍数
+    private static final int MAX_FORWARD_MULTIPLE = 4;
+    // 向后预加载的页面最多占用缓存的比例（1/N）
+    private static final int WINDOW_CACHE_FRACTION = 2;
+
+    private final PageCache cache;
+    private final int forward;
+    private final int backward;
+    private final int maxForward;
+    private final ThreadPoolExecutor executor;
+    // 已提交但可能还未完成的任务：页码 -> 任务
+    private final Map<Integer, Future<?>> pending = new HashMap<>();
+
+    private List<String> pages = new ArrayList<>();
+    // 最近预加载的页面平均占用的字节数，在预加载线程中更新
+    private volatile long averagePageBytes;
+
+    public PagePrefetcher(PageCache cache) {
+        this(cache, DEFAULT_FORWARD, DEFAULT_BACKWARD);
+    }
+
+    public PagePrefetcher(PageCache cache, int forward, int backward) {
+        this.cache = cache;
+        this.forward = Math.max(0, forward);
+        this.backward = Math.max(0, backward);
+        this.maxForward = this.forward * MAX_FORWARD_MULTIPLE;
+        // 队列长度不超过窗口大小，队列已满时拒绝新任务（见prefetch）
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(this.maxForward + this.backward + 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "PagePrefetcher");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    // 切换章节时设置新的页面列表，取消上一章未完成的预加载
+    public void setPages(List<String> pages) {
+        cancelAll();
+        this.pages = pages != null ? new ArrayList<>(pages) : new ArrayList<>();
+    }
+
+    // 翻到position页后调用：取消窗口外的任务，按距离从近到远提交窗口内未缓存的页面，向后的页面优先
+    public void onPageChanged(int position, int reqWidth, int reqHeight) {
+        int window = currentForward();
+        int first = Math.max(0, position - backward);
+        int last = Math.min(pages.size() - 1, position + window);
+
+        Iterator<Map.Entry<Integer, Future<?>>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Future<?>> entry = iterator.next();
+            int index = entry.getKey();
+            if (entry.getValue().isDone() || index < first || index > last) {
+                entry.getValue().cancel(false);
+                iterator.remove();
+            }
+        }
+        // 从队列中移除已取消的任务
+        executor.purge();
+
+        for (int distance = 1; distance <= window; distance++) {
+            prefetch(position + distance, reqWidth, reqHeight);
+        }
+        for (int distance = 1; distance <= backward; distance++) {
+            prefetch(position - distance, reqWidth, reqHeight);
+        }
+    }
+
+    private void prefetch(int index, final int reqWidth, final int reqHeight) {
+        if (index < 0 || index >= pages.size() || pending.containsKey(index)) {
+            return;
+        }
+        final String path = pages.get(index);
+        final String key = PageCache.key(path, reqWidth, reqHeight);
+        if (cache.contains(key)) {
+            return;
+        }
+        // 被拒绝的任务不记入pending，下次翻页时重新提交。
+        // 被丢弃的任务不会完成，记入pending后这一页会一直被当作正在预加载
+        try {
+            pending.put(index, executor.submit(() -> {
+                if (cache.contains(key)) {
+                    return;
+                }
+                Bitmap bitmap = PageDecoder.decodePage(path, reqWidth, reqHeight, cache);
+                if (bitmap != null) {
+                    recordPageBytes(bitmap.getAllocationByteCount());
+                    cache.put(key, bitmap);
+                    android.util.Log.d(TAG, "预加载页面: " + path);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            android.util.Log.d(TAG, "预加载队列已满，跳过: " + path);
+        }
+    }
+
+    // 向后窗口的页数：按平均大小能放进缓存1/WINDOW_CACHE_FRACTION的页数，在forward和maxForward之间
+    private int currentForward() {
+        long pageBytes = averagePageBytes;
+        if (pageBytes <= 0) {
+            return forward;
+        }
+        long fit = cache.getMaxSizeBytes() / WINDOW_CACHE_FRACTION / pageBytes;
+        return (int) Math.max(forward, Math.min(maxForward, fit));
+    }
+
+    // 最近几页的加权平均，切换到彩色章节后窗口很快缩小
+    private void recordPageBytes(long bytes) {
+        long previous = averagePageBytes;
+        averagePageBytes = previous <= 0 ? bytes : (previous * 3 + bytes) / 4;
+    }
+
+    public void cancelAll() {
+        for (Future<?> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        executor.purge();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+}
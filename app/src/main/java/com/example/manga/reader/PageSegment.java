@@ -0,0 +1,102 @@
+package com.example.manga.reader;
+
+import com.example.manga.model.Page;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连续滚动阅读中的一项。普通页面是一整页，比屏幕更长的页面（长条漫画）
+ * 按屏幕的宽高比切成多段，每段用BitmapRegionDecoder单独解码，内存占用与整页的高度无关。
+ * 显示高度在切分时按原图尺寸算好，解码完成前的占位与解码后的页面一样高，滚动时不会跳动。
+ */
+public final class PageSegment {
+    private final String path;
+    private final int pageIndex;
+    private final int segmentIndex;
+    private final int segmentCount;
+    // 这一段在原图中的范围，整页时为0到原图高度
+    private final int top;
+    private final int bottom;
+    private final int sourceWidth;
+    // 按屏幕宽度显示时的高度
+    private final int displayHeight;
+
+    PageSegment(String path, int pageIndex, int segmentIndex, int segmentCount,
+                int top, int bottom, int sourceWidth, int displayHeight) {
+        this.path = path;
+        this.pageIndex = pageIndex;
+        this.segmentIndex = segmentIndex;
+        this.segmentCount = segmentCount;
+        this.top = top;
+        this.bottom = bottom;
+        this.sourceWidth = sourceWidth;
+        this.displayHeight = displayHeight;
+    }
+
+    // 按displayWidth x displayHeight的屏幕切分页面。尺寸未知的页面不切分，先按一屏的高度占位
+    public static List<PageSegment> split(List<Page> pages, int displayWidth, int displayHeight) {
+        List<PageSegment> segments = new ArrayList<>(pages.size());
+        for (Page page : pages) {
+            int width = page.getWidth();
+            int height = page.getHeight();
+            if (width <= 0 || height <= 0 || displayWidth <= 0 || displayHeight <= 0) {
+                segments.add(new PageSegment(page.getFilePath(), page.getPageIndex(), 0, 1,
+                        0, height, width, displayHeight));
+                continue;
+            }
+
+            // 每段在原图中的高度，按屏幕宽度显示时正好是一屏
+            int segmentHeight = (int) Math.max(1, (long) width * displayHeight / displayWidth);
+            int count = (height + segmentHeight - 1) / segmentHeight;
+            for (int i = 0; i < count; i++) {
+                int top = i * segmentHeight;
+                int bottom = Math.min(height, top + segmentHeight);
+                segments.add(new PageSegment(page.getFilePath(), page.getPageIndex(), i, count,
+                        top, bottom, width, Math.round((float) (bottom - top) * displayWidth / width)));
+            }
+        }
+        return segments;
+    }
+
+    // 整页与其他阅读器使用相同的缓存键，分段按段号区分
+    public String cacheKey(int reqWidth, int reqHeight) {
+        return PageCache.key(isWholePage() ? path : path + "#" + segmentIndex, reqWidth, reqHeight);
+    }
+
+    public boolean isWholePage() {
+        return segmentCount == 1;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    public int getDisplayHeight() {
+        return displayHeight;
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.manga.reader;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.LruCache;
+import android.view.View;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 超大页面（长条漫画、高分辨率扫描）的分块显示，覆盖在PhotoView之上，大小和位置与PhotoView相同。
+ * PhotoView中仍然是按屏幕尺寸缩小解码的整页，放大后整页的分辨率不够时，
+ * 按当前缩放比例选择采样率，用BitmapRegionDecoder只解码屏幕上可见的图块并画在对应位置，
+ * 还没解码完成的图块露出下面的整页。图块缓存按字节数限制，单页占用的内存与原图大小无关。
+ * 图块按PageCache的解码方式选择Bitmap.Config，与整页相同。
+ * 本身不处理触摸事件，手势仍由下面的PhotoView处理。除构造函数外的方法都只能在主线程中调用。
+ */
+public class TiledPageView extends View {
+    private static final String TAG = "TiledPageView";
+    // 解码后图块的边长
+    private static final int TILE_SIZE = 512;
+    // 图块缓存的大小
+    private static final int MAX_CACHE_BYTES = 24 * 1024 * 1024;
+    // 采样率按缩放比例取整时的容差，图块的分辨率在屏幕分辨率的2/3到4/3之间
+    private static final float SAMPLE_TOLERANCE = 1.5f;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TiledPageView");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> tiles = new LruCache<String, Bitmap>(MAX_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+            return bitmap.getAllocationByteCount();
+        }
+    };
+    // 已提交但还没解码完成的图块
+    private final Set<String> loading = new HashSet<>();
+    // 当前可见的图块，后台线程解码前检查，已经滚出屏幕的图块直接跳过
+    private volatile Set<String> visibleTiles = Collections.emptySet();
+    // 每次切换页面加一，旧页面的解码结果直接丢弃
+    private volatile int generation;
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    // PhotoView中图片的显示区域，由OnMatrixChangedListener更新
+    private final RectF displayRect = new RectF();
+    private boolean hasDisplayRect;
+    private final Rect visibleRect = new Rect();
+    private final RectF drawRect = new RectF();
+
+    private String path;
+    private BitmapRegionDecoder decoder;
+    private int sourceWidth;
+    private int sourceHeight;
+    // PhotoView中整页的采样率，图块的采样率比它小时才需要分块显示
+    private int baseSampleSize;
+    // 图块的解码格式，切换页面时按解码方式确定
+    private Bitmap.Config tileConfig = Bitmap.Config.ARGB_8888;
+
+    public TiledPageView(Context context) {
+        super(context);
+    }
+
+    public TiledPageView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    // 显示新的页面，reqWidth/reqHeight与PageDecoder解码整页时相同。
+    // 按这个尺寸解码不需要缩小的页面不启用分块
+    public void setPage(final String path, final int reqWidth, final int reqHeight) {
+        if (path == null) {
+            clear();
+            return;
+        }
+        if (path.equals(this.path)) {
+            return;
+        }
+        clear();
+        this.path = path;
+        PageCache cache = PageCache.getInstance();
+        tileConfig = PageDecoder.preferredConfig(cache.getDecodeProfile(), cache.isGrayscale(path));
+
+        final int pageGeneration = generation;
+        executor.execute(() -> {
+            if (pageGeneration != generation) {
+                return;
+            }
+            final BitmapRegionDecoder regionDecoder = openDecoder(path, reqWidth, reqHeight);
+            if (regionDecoder == null) {
+                return;
+            }
+            final int sampleSize = PageDecoder.calculateInSampleSize(
+                    regionDecoder.getWidth(), regionDecoder.getHeight(), reqWidth, reqHeight);
+            mainHandler.post(() -> {
+                if (pageGeneration != generation) {
+                    executor.execute(regionDecoder::recycle);
+                    return;
+                }
+                decoder = regionDecoder;
+                sourceWidth = regionDecoder.getWidth();
+                sourceHeight = regionDecoder.getHeight();
+                baseSampleSize = sampleSize;
+                updateTiles();
+            });
+        });
+    }
+
+    // 清空当前页面，翻页动画期间和切换章节时调用
+    public void clear() {
+        generation++;
+        path = null;
+        tiles.evictAll();
+        loading.clear();
+        visibleTiles = Collections.emptySet();
+        final BitmapRegionDecoder oldDecoder = decoder;
+        decoder = null;
+        if (oldDecoder != null) {
+            // 排在已提交的图块之后回收，不会和正在进行的解码冲突
+            executor.execute(oldDecoder::recycle);
+        }
+        invalidate();
+    }
+
+    // 作为PhotoView的OnMatrixChangedListener，缩放和滚动时更新可见的图块
+    public void setDisplayRect(RectF rect) {
+        if (rect == null) {
+            hasDisplayRect = false;
+        } else {
+            displayRect.set(rect);
+            hasDisplayRect = true;
+        }
+        updateTiles();
+        invalidate();
+    }
+
+    // 阅读器关闭时调用
+    public void release() {
+        clear();
+        executor.shutdown();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateTiles();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int sampleSize = currentSampleSize();
+        if (sampleSize <= 0) {
+            return;
+        }
+
+        float scale = displayRect.width() / sourceWidth;
+        int tileSource = TILE_SIZE * sampleSize;
+        for (int row = visibleRect.top / tileSource; row <= (visibleRect.bottom - 1) / tileSource; row++) {
+            for (int col = visibleRect.left / tileSource; col <= (visibleRect.right - 1) / tileSource; col++) {
+                Bitmap tile = tiles.get(tileKey(sampleSize, col, row));
+                if (tile == null) {
+                    continue;
+                }
+                drawRect.set(displayRect.left + col * tileSource * scale,
+                        displayRect.top + row * tileSource * scale,
+                        displayRect.left + Math.min(sourceWidth, (col + 1) * tileSource) * scale,
+                        displayRect.top + Math.min(sourceHeight, (row + 1) * tileSource) * scale);
+                canvas.drawBitmap(tile, null, drawRect, paint);
+            }
+        }
+    }
+
+    // 计算当前可见的图块，提交还没有缓存的图块
+    private void updateTiles() {
+        int sampleSize = currentSampleSize();
+        if (sampleSize <= 0) {
+            visibleTiles = Collections.emptySet();
+            return;
+        }
+
+        int tileSource = TILE_SIZE * sampleSize;
+        int firstRow = visibleRect.top / tileSource;
+        int lastRow = (visibleRect.bottom - 1) / tileSource;
+        int firstCol = visibleRect.left / tileSource;
+        int lastCol = (visibleRect.right - 1) / tileSource;
+
+        Set<String> visible = new HashSet<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                visible.add(tileKey(sampleSize, col, row));
+            }
+        }
+        visibleTiles = visible;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                String key = tileKey(sampleSize, col, row);
+                if (!loading.contains(key) && tiles.get(key) == null) {
+                    loadTile(key, sampleSize, col, row);
+                }
+            }
+        }
+    }
+
+    private void loadTile(final String key, final int sampleSize, int col, int row) {
+        final BitmapRegionDecoder regionDecoder = decoder;
+        final int pageGeneration = generation;
+        final Bitmap.Config config = tileConfig;
+        int tileSource = TILE_SIZE * sampleSize;
+        final Rect region = new Rect(col * tileSource, row * tileSource,
+                Math.min(sourceWidth, (col + 1) * tileSource),
+                Math.min(sourceHeight, (row + 1) * tileSource));
+
+        loading.add(key);
+        executor.execute(() -> {
+            Bitmap tile = null;
+            // 解码前已经切换页面或滚出屏幕的图块跳过
+            if (pageGeneration == generation && visibleTiles.contains(key)) {
+                tile = decodeTile(regionDecoder, region, sampleSize, config);
+            }
+            final Bitmap result = tile;
+            mainHandler.post(() -> {
+                if (pageGeneration != generation) {
+                    return;
+                }
+                loading.remove(key);
+                if (result != null) {
+                    tiles.put(key, result);
+                    invalidate();
+                }
+            });
+        });
+    }
+
+    // 当前缩放比例下图块的采样率，同时更新visibleRect。不需要分块显示时返回0
+    private int currentSampleSize() {
+        if (decoder == null || !hasDisplayRect || getWidth() == 0 || getHeight() == 0) {
+            return 0;
+        }
+        // 屏幕上一个原图像素的大小
+        float scale = displayRect.width() / sourceWidth;
+        if (scale <= 0) {
+            return 0;
+        }
+
+        visibleRect.set(
+                Math.max(0, (int) Math.floor(-displayRect.left / scale)),
+                Math.max(0, (int) Math.floor(-displayRect.top / scale)),
+                Math.min(sourceWidth, (int) Math.ceil((getWidth() - displayRect.left) / scale)),
+                Math.min(sourceHeight, (int) Math.ceil((getHeight() - displayRect.top) / scale)));
+        if (visibleRect.right <= visibleRect.left || visibleRect.bottom <= visibleRect.top) {
+            return 0;
+        }
+
+        int sampleSize = 1;
+        while (sampleSize * 2 <= SAMPLE_TOLERANCE / scale) {
+            sampleSize *= 2;
+        }
+        // 可见的图块放不进一半的缓存时降低分辨率，避免图块互相淘汰后反复解码
+        while (sampleSize < baseSampleSize && visibleTileBytes(sampleSize) > MAX_CACHE_BYTES / 2) {
+            sampleSize *= 2;
+        }
+        return sampleSize < baseSampleSize ? sampleSize : 0;
+    }
+
+    private long visibleTileBytes(int sampleSize) {
+        int tileSource = TILE_SIZE * sampleSize;
+        long cols = (visibleRect.right - 1) / tileSource - visibleRect.left / tileSource + 1;
+        long rows = (visibleRect.bottom - 1) / tileSource - visibleRect.top / tileSource + 1;
+        return cols * rows * TILE_SIZE * TILE_SIZE * PageDecoder.bytesPerPixel(tileConfig);
+    }
+
+    private static String tileKey(int sampleSize, int col, int row) {
+        return sampleSize + ":" + col + ":" + row;
+    }
+
+    // 读取图片尺寸，按reqWidth x reqHeight解码整页需要缩小时才创建BitmapRegionDecoder
+    private static BitmapRegionDecoder openDecoder(String path, int reqWidth, int reqHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0
+                || PageDecoder.calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight) <= 1) {
+            return null;
+        }
+
+        try {
+            return BitmapRegionDecoder.newInstance(path, false);
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "无法分块解码图片: " + path, e);
+            return null;
+        }
+    }
+
+    private static Bitmap decodeTile(BitmapRegionDecoder decoder, Rect region, int sampleSize, Bitmap.Config config) {
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = config;
+            return decoder.decodeRegion(region, options);
+        } catch (Throwable e) {
+            android.util.Log.e(TAG, "解码图块出错: " + region.left + "," + region.top, e);
+            return null;
+        }
+    }
+}
@@ -4,28 +4,102 @@ import android.app.Application;
 import android.os.AsyncTask;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import com.example.manga.database.ChapterDao;
+import com.example.manga.database.DirectorySnapshotDao;
 import com.example.manga.database.MangaDao;
 import com.example.manga.database.MangaDatabase;
+import com.example.manga.database.PageDao;
 import com.example.manga.model.Chapter;
+import com.example.manga.model.ChapterSummary;
+import com.example.manga.model.DirectorySnapshot;
 import com.example.manga.model.Manga;
+import com.example.manga.model.MangaSummary;
+import com.example.manga.model.Page;
+import com.example.manga.scan.ChapterScan;
+import com.example.manga.scan.MangaScan;
+import com.example.manga.scan.PageFile;
+import com.example.manga.scan.ParallelLibraryScanner;
+import com.example.manga.scan.ScanPipeline;
 import com.example.manga.util.MangaFileUtils;
 
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class MangaRepository {
+    // 每个事务最多写入的章节数
+    private static final int SCAN_BATCH_SIZE = 2000;
+    // 每个事务最多写入的页面数
+    private static final int PAGE_BATCH_SIZE = 20000;
+    // 书架和章节列表每次从数据库读取的条数，未加载的位置显示占位
+    private static final int LIBRARY_PAGE_SIZE = 60;
+    private static final int CHAPTER_PAGE_SIZE = 100;
+    
+    private final MangaDatabase database;
     private final MangaDao mangaDao;
     private final ChapterDao chapterDao;
+    private final DirectorySnapshotDao snapshotDao;
+    private final PageDao pageDao;
     private final ExecutorService executorService;
+    private final ReadProgressRecorder progressRecorder;
+    
+    // 阅读进度在整个进程中只合并写入一次，所有MangaRepository共用
+    private static volatile ReadProgressRecorder PROGRESS_RECORDER;
     
     public MangaRepository(Application application) {
-        MangaDatabase database = MangaDatabase.getDatabase(application);
+        database = MangaDatabase.getDatabase(application);
         mangaDao = database.mangaDao();
         chapterDao = database.chapterDao();
+        snapshotDao = database.directorySnapshotDao();
+        pageDao = database.pageDao();
         executorService = Executors.newFixedThreadPool(4);
+        progressRecorder = getProgressRecorder(database);
+    }
+    
+    private static ReadProgressRecorder getProgressRecorder(final MangaDatabase database) {
+        if (PROGRESS_RECORDER == null) {
+            synchronized (MangaRepository.class) {
+                if (PROGRESS_RECORDER == null) {
+                    final ChapterDao chapterDao = database.chapterDao();
+                    final MangaDao mangaDao = database.mangaDao();
+                    PROGRESS_RECORDER = new ReadProgressRecorder((chapterProgress, mangaReadTimes) -> {
+                        try {
+                            database.runInTransaction(() -> {
+                                for (Map.Entry<String, ReadProgressRecorder.Progress> entry : chapterProgress.entrySet()) {
+                                    chapterDao.updateReadProgress(entry.getKey(),
+                                            entry.getValue().getPage(), entry.getValue().getTimestamp());
+                                }
+                                for (Map.Entry<String, Long> entry : mangaReadTimes.entrySet()) {
+                                    mangaDao.updateLastReadTime(entry.getKey(), entry.getValue());
+                                }
+                            });
+                            android.util.Log.d("MangaRepository", "已写入阅读进度: " + chapterProgress.size()
+                                    + " 个章节, " + mangaReadTimes.size() + " 部漫画");
+                        } catch (RuntimeException e) {
+                            android.util.Log.e("MangaRepository", "写入阅读进度出错，稍后重试: " + e.getMessage(), e);
+                            throw e;
+                        }
+                    }, Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "ReadProgressRecorder");
+                        thread.setDaemon(true);
+                        return thread;
+                    }));
+                }
+            }
+        }
+        return PROGRESS_RECORDER;
     }
     
     // 漫画相关操作
@@ -41,6 +115,28 @@ public class MangaRepository {
         return mangaDao.getAllMangaAlphabetically();
     }
     
+    // 书架的分页列表，只包含网格显示需要的列，需要在ViewModel中cachedIn后再观察
+    public LiveData<PagingData<MangaSummary>> getMangaSummariesAlphabetically() {
+        return PagingLiveData.getLiveData(new Pager<>(libraryPagingConfig(), mangaDao::getMangaSummariesAlphabetically));
+    }
+    
+    public LiveData<PagingData<MangaSummary>> getMangaSummariesByLastRead() {
+        return PagingLiveData.getLiveData(new Pager<>(libraryPagingConfig(), mangaDao::getMangaSummariesByLastRead));
+    }
+    
+    public LiveData<PagingData<MangaSummary>> getFavoriteMangaSummaries() {
+        return PagingLiveData.getLiveData(new Pager<>(libraryPagingConfig(), mangaDao::getFavoriteMangaSummaries));
+    }
+    
+    // 详情页使用的完整漫画记录
+    public LiveData<Manga> observeMangaByPath(String mangaPath) {
+        return mangaDao.observeMangaByPath(mangaPath);
+    }
+    
+    private static PagingConfig libraryPagingConfig() {
+        return new PagingConfig(LIBRARY_PAGE_SIZE, LIBRARY_PAGE_SIZE / 2, true, LIBRARY_PAGE_SIZE * 2);
+    }
+    
     public void insertManga(Manga manga) {
         executorService.execute(() -> mangaDao.insert(manga));
     }
@@ -57,8 +153,9 @@ public class MangaRepository {
         executorService.execute(() -> mangaDao.updateFavoriteStatus(mangaPath, isFavorite));
     }
     
+    // 与阅读进度一起延迟合并写入
     public void updateLastReadTime(String mangaPath, long timestamp) {
-        executorService.execute(() -> mangaDao.updateLastReadTime(mangaPath, timestamp));
+        progressRecorder.recordMangaReadTime(mangaPath, timestamp);
     }
     
     // 章节相关操作
@@ -66,6 +163,12 @@ public class MangaRepository {
         return chapterDao.getChaptersByManga(mangaPath);
     }
     
+    // 章节的分页列表，只包含列表显示需要的列，阅读进度写入后只重新读取已加载的几页
+    public LiveData<PagingData<ChapterSummary>> getChapterSummariesByManga(String mangaPath) {
+        PagingConfig config = new PagingConfig(CHAPTER_PAGE_SIZE, CHAPTER_PAGE_SIZE / 2, true, CHAPTER_PAGE_SIZE * 2);
+        return PagingLiveData.getLiveData(new Pager<>(config, () -> chapterDao.getChapterSummariesByManga(mangaPath)));
+    }
+    
     public LiveData<List<Chapter>> getAllChapters() {
         return chapterDao.getAllChapters();
     }
@@ -82,19 +185,46 @@ public class MangaRepository {
         executorService.execute(() -> chapterDao.update(chapter));
     }
     
+    // 只记在内存中，由ReadProgressRecorder定时合并写入
     public void updateReadProgress(String chapterPath, int page, long timestamp) {
-        executorService.execute(() -> {
-            android.util.Log.d("MangaRepository", "Updating read progress for chapter: " + chapterPath 
-                    + ", page: " + page + ", timestamp: " + timestamp);
-            chapterDao.updateReadProgress(chapterPath, page, timestamp);
-        });
+        progressRecorder.recordChapter(chapterPath, page, timestamp);
+    }
+    
+    // 立即写入还没写入的阅读进度，离开阅读器和内存不足时调用
+    public void flushReadProgress() {
+        progressRecorder.flush();
+    }
+    
+    // 查询章节之前先写入还没写入的阅读进度，查询结果与最新的进度一致。只在后台线程中调用
+    private void awaitPendingProgress() {
+        if (!progressRecorder.hasPending()) {
+            return;
+        }
+        try {
+            progressRecorder.flush().get();
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "等待阅读进度写入时出错: " + e.getMessage(), e);
+        }
     }
     
     // 文件系统操作
     public void scanMangaDirectory(String directoryPath, final Callback<List<Manga>> callback) {
+        scanMangaDirectory(directoryPath, false, callback);
+    }
+    
+    // incremental为true时根据目录快照只处理发生变化的漫画和章节
+    public void scanMangaDirectory(String directoryPath, boolean incremental, final Callback<List<Manga>> callback) {
+        scanMangaDirectory(directoryPath, incremental, null, callback);
+    }
+    
+    // 流式扫描：漫画遍历完成后分批写入数据库，观察数据库的LiveData会逐步收到结果；
+    // progressListener在扫描线程中接收进度，callback在全部写入完成后调用
+    public void scanMangaDirectory(String directoryPath, boolean incremental,
+                                   final ScanPipeline.ProgressListener progressListener,
+                                   final Callback<List<Manga>> callback) {
         executorService.execute(() -> {
             try {
-                android.util.Log.d("MangaRepository", "开始扫描漫画目录: " + directoryPath);
+                android.util.Log.d("MangaRepository", "开始扫描漫画目录: " + directoryPath + ", 增量: " + incremental);
                 
                 if (directoryPath == null || directoryPath.isEmpty()) {
                     android.util.Log.e("MangaRepository", "无效的目录路径: null或空");
@@ -104,111 +234,9 @@ public class MangaRepository {
                     return;
                 }
                 
-                // 扫描文件系统获取漫画列表
-                List<Manga> mangaList = MangaFileUtils.scanMangaDirectory(directoryPath);
-                
-                if (mangaList == null) {
-                    android.util.Log.e("MangaRepository", "扫描返回null结果，创建空列表");
-                    mangaList = new java.util.ArrayList<>();
-                    if (callback != null) {
-                        callback.onComplete(mangaList);
-                    }
-                    return;
-                }
-                
-                android.util.Log.d("MangaRepository", "扫描到 " + mangaList.size() + " 本漫画");
-                
-                // 保存扫描到的漫画到数据库
-                for (Manga manga : mangaList) {
-                    try {
-                        if (manga == null || manga.getPath() == null) {
-                            android.util.Log.e("MangaRepository", "忽略无效的漫画对象");
-                            continue;
-                        }
-                        
-                        // 检查数据库中是否已存在该漫画
-                        Manga existingManga = null;
-                        try {
-                            existingManga = mangaDao.getMangaByPath(manga.getPath());
-                        } catch (Exception e) {
-                            android.util.Log.e("MangaRepository", "获取现有漫画时出错: " + e.getMessage(), e);
-                        }
-                        
-                        if (existingManga != null) {
-                            // 更新现有漫画的信息，但保留用户设置如收藏状态和阅读历史
-                            manga.setFavorite(existingManga.isFavorite());
-                            manga.setLastReadTime(existingManga.getLastReadTime());
-                            manga.setTotalChapters(existingManga.getTotalChapters());
-                            try {
-                                mangaDao.update(manga);
-                                android.util.Log.d("MangaRepository", "更新现有漫画: " + manga.getTitle());
-                            } catch (Exception e) {
-                                android.util.Log.e("MangaRepository", "更新漫画时出错: " + e.getMessage(), e);
-                            }
-                        } else {
-                            // 插入新漫画
-                            try {
-                                mangaDao.insert(manga);
-                                android.util.Log.d("MangaRepository", "添加新漫画: " + manga.getTitle());
-                            } catch (Exception e) {
-                                android.util.Log.e("MangaRepository", "插入漫画时出错: " + e.getMessage(), e);
-                            }
-                        }
-                        
-                        // 扫描并保存章节信息
-                        List<Chapter> chapters = null;
-                        try {
-                            chapters = MangaFileUtils.getChapters(manga.getPath());
-                        } catch (Exception e) {
-                            android.util.Log.e("MangaRepository", "获取章节时出错: " + e.getMessage(), e);
-                            chapters = new java.util.ArrayList<>();
-                        }
-                        
-                        if (chapters == null) {
-                            android.util.Log.e("MangaRepository", "章节列表为null，创建空列表");
-                            chapters = new java.util.ArrayList<>();
-                        }
-                        
-                        for (Chapter chapter : chapters) {
-                            try {
-                                if (chapter == null || chapter.getPath() == null) {
-                                    android.util.Log.e("MangaRepository", "忽略无效的章节对象");
-                                    continue;
-                                }
-                                
-                                // 检查数据库中是否已存在该章节
-                                Chapter existingChapter = null;
-                                try {
-                                    existingChapter = chapterDao.getChapterByPath(chapter.getPath());
-                                } catch (Exception e) {
-                                    android.util.Log.e("MangaRepository", "获取现有章节时出错: " + e.getMessage(), e);
-                                }
-                                
-                                if (existingChapter != null) {
-                                    // 更新现有章节的信息，但保留阅读进度
-                                    chapter.setLastReadPage(existingChapter.getLastReadPage());
-                                    chapter.setLastReadTime(existingChapter.getLastReadTime());
-                                    try {
-                                        chapterDao.update(chapter);
-                                    } catch (Exception e) {
-                                        android.util.Log.e("MangaRepository", "更新章节时出错: " + e.getMessage(), e);
-                                    }
-                                } else {
-                                    // 插入新章节
-                                    try {
-                                        chapterDao.insert(chapter);
-                                    } catch (Exception e) {
-                                        android.util.Log.e("MangaRepository", "插入章节时出错: " + e.getMessage(), e);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                android.util.Log.e("MangaRepository", "处理章节时出错: " + e.getMessage(), e);
-                            }
-                        }
-                    } catch (Exception e) {
-                        android.util.Log.e("MangaRepository", "处理漫画时出错: " + e.getMessage(), e);
-                    }
-                }
+                List<Manga> mangaList = incremental
+                        ? scanIncremental(directoryPath, progressListener)
+                        : scanFull(directoryPath, progressListener);
                 
                 android.util.Log.d("MangaRepository", "漫画目录扫描完成");
                 
@@ -224,17 +252,497 @@ public class MangaRepository {
         });
     }
     
+    // 完整扫描：重新遍历所有漫画和章节，重建目录快照和页面表，
+    // 并删除目录已不存在的漫画和不再扫描到的章节（快照清空后增量扫描无法再发现它们）
+    private List<Manga> scanFull(final String directoryPath, ScanPipeline.ProgressListener progressListener) {
+        // 发现阶段：只列出根目录
+        List<File> mangaFolders = MangaFileUtils.listMangaFolders(directoryPath);
+        
+        android.util.Log.d("MangaRepository", "发现 " + mangaFolders.size() + " 个漫画文件夹");
+        
+        // 快照和页面随扫描结果一起重新写入
+        try {
+            database.runInTransaction(() -> {
+                snapshotDao.deleteAll();
+                pageDao.deleteAll();
+            });
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "清空目录快照时出错: " + e.getMessage(), e);
+        }
+        
+        // 遍历与写入阶段：每本漫画的目录树只遍历一次，遍历完成的漫画分批保存到数据库
+        final List<Manga> mangaList = new java.util.ArrayList<>();
+        newPipeline().run(mangaFolders, null, MangaFileUtils::logScanError, scans -> {
+            ScanBatch batch = new ScanBatch();
+            for (MangaScan scan : scans) {
+                Manga manga = MangaFileUtils.toManga(scan);
+                List<Chapter> chapters = MangaFileUtils.toChapters(scan);
+                batch.add(manga, chapters);
+                batch.removeMissingChapters(manga.getPath(), chapters);
+                batch.addPages(scan);
+                batch.addSnapshots(MangaFileUtils.toSnapshots(scan, directoryPath));
+                mangaList.add(manga);
+                if (batch.isFull()) {
+                    batch.commit();
+                }
+            }
+            batch.commit();
+        }, progressListener);
+        
+        removeVanishedManga(directoryPath, mangaList);
+        
+        android.util.Log.d("MangaRepository", "扫描到 " + mangaList.size() + " 本漫画");
+        
+        return mangaList;
+    }
+    
+    // 删除数据库中有但完整扫描没有找到、目录也已不存在的漫画。
+    // 遍历出错的漫画目录仍然存在，保留它的记录；漫画根目录不可用时不删除任何记录
+    private void removeVanishedManga(String directoryPath, List<Manga> scannedManga) {
+        if (!new File(directoryPath).isDirectory()) {
+            return;
+        }
+        try {
+            Set<String> scannedPaths = new HashSet<>();
+            for (Manga manga : scannedManga) {
+                scannedPaths.add(manga.getPath());
+            }
+            List<String> removedManga = new java.util.ArrayList<>();
+            for (String mangaPath : mangaDao.getAllMangaPaths()) {
+                if (!scannedPaths.contains(mangaPath) && !new File(mangaPath).isDirectory()) {
+                    removedManga.add(mangaPath);
+                }
+            }
+            if (!removedManga.isEmpty()) {
+                removeIndexedPaths(removedManga, Collections.<String>emptyList());
+                android.util.Log.d("MangaRepository", "移除 " + removedManga.size() + " 本已不存在的漫画");
+            }
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "移除已不存在的漫画时出错: " + e.getMessage(), e);
+        }
+    }
+    
+    // 增量扫描：跳过修改时间未变化的目录，只更新变化的漫画和章节
+    private List<Manga> scanIncremental(String directoryPath, ScanPipeline.ProgressListener progressListener) {
+        Map<String, DirectorySnapshot> snapshots = new HashMap<>();
+        try {
+            for (DirectorySnapshot snapshot : snapshotDao.getAll()) {
+                snapshots.put(snapshot.getPath(), snapshot);
+            }
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "读取目录快照时出错: " + e.getMessage(), e);
+        }
+        
+        // 发现阶段：列出根目录，找出需要重新遍历的漫画
+        MangaFileUtils.IncrementalScanResult result = MangaFileUtils.planIncrementalScan(directoryPath, snapshots);
+        
+        List<Manga> mangaList = applyIncrementalScan(result, snapshots, progressListener);
+        
+        android.util.Log.d("MangaRepository", "增量扫描到 " + mangaList.size() + " 本漫画，其中变化 "
+                + result.getChangedManga().size() + " 本，快照更新 " + result.getChangedSnapshots().size() + " 条");
+        
+        return mangaList;
+    }
+    
+    // 遍历增量扫描中发生变化的漫画并写入数据库，更新目录快照，返回涉及的所有漫画
+    private List<Manga> applyIncrementalScan(final MangaFileUtils.IncrementalScanResult result,
+                                             Map<String, DirectorySnapshot> snapshots,
+                                             ScanPipeline.ProgressListener progressListener) {
+        // 遍历与写入阶段：新增或变化的漫画遍历完成后分批保存
+        final List<Manga> mangaList = new java.util.ArrayList<>();
+        newPipeline().run(result.getChangedFolders(), result.getChapterFilters(), MangaFileUtils::logScanError,
+                scans -> {
+                    ScanBatch batch = new ScanBatch();
+                    for (MangaScan scan : scans) {
+                        Manga manga = MangaFileUtils.addChangedManga(scan, result);
+                        batch.add(manga, result.getChapters(manga.getPath()));
+                        batch.addSortOrders(scan);
+                        batch.addPages(scan);
+                        mangaList.add(manga);
+                        if (batch.isFull()) {
+                            batch.commit();
+                        }
+                    }
+                    batch.commit();
+                }, progressListener);
+        
+        // 未变化漫画中只更新页数发生变化的章节和它们的页面
+        if (!result.getChangedChapterPages().isEmpty()) {
+            try {
+                database.runInTransaction(() -> {
+                    chapterDao.updateTotalPagesBatch(result.getChangedChapterPages());
+                    ScanBatch pageBatch = new ScanBatch();
+                    for (Map.Entry<String, List<PageFile>> entry : result.getChangedChapterPageFiles().entrySet()) {
+                        pageBatch.addPages(entry.getKey(), entry.getValue());
+                    }
+                    pageBatch.commit();
+                });
+            } catch (Exception e) {
+                android.util.Log.e("MangaRepository", "更新章节页数时出错: " + e.getMessage(), e);
+            }
+        }
+        
+        // 未变化的漫画直接使用数据库中的记录
+        try {
+            mangaList.addAll(mangaDao.getMangaByPathsBatched(result.getUnchangedMangaPaths()));
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "获取现有漫画时出错: " + e.getMessage(), e);
+        }
+        
+        // 已消失的目录：父目录是漫画根目录或不在快照中的是漫画，其余是章节。
+        // 快照删除后再也无法发现这些记录，所以漫画、章节和页面要和快照一起删除。
+        // 遍历出错的漫画也不在seenPaths中，只删除确实已不存在的目录，保留它们的记录和阅读进度；
+        // 漫画根目录不可用（例如存储卡未挂载）时不删除任何记录
+        final List<String> removedPaths = new java.util.ArrayList<>();
+        final List<String> removedManga = new java.util.ArrayList<>();
+        boolean libraryAvailable = new File(result.getDirectoryPath()).isDirectory();
+        for (DirectorySnapshot snapshot : snapshots.values()) {
+            if (!libraryAvailable || result.getSeenPaths().contains(snapshot.getPath())
+                    || new File(snapshot.getPath()).isDirectory()) {
+                continue;
+            }
+            removedPaths.add(snapshot.getPath());
+            String parentPath = snapshot.getParentPath();
+            if (parentPath == null || parentPath.equals(result.getDirectoryPath()) || !snapshots.containsKey(parentPath)) {
+                removedManga.add(snapshot.getPath());
+            }
+        }
+        final List<String> removedChapters = new java.util.ArrayList<>(result.getEmptyChapterPaths());
+        Set<String> removedMangaSet = new HashSet<>(removedManga);
+        for (String path : removedPaths) {
+            DirectorySnapshot snapshot = snapshots.get(path);
+            if (!removedMangaSet.contains(path) && !removedMangaSet.contains(snapshot.getParentPath())) {
+                removedChapters.add(path);
+            }
+        }
+        
+        // 写入新快照，在同一个事务中删除已消失目录的快照和索引记录
+        try {
+            database.runInTransaction(() -> {
+                removeIndexedPaths(removedManga, removedChapters);
+                snapshotDao.applyChanges(result.getChangedSnapshots(), removedPaths);
+            });
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "保存目录快照时出错: " + e.getMessage(), e);
+        }
+        if (!removedManga.isEmpty() || !removedChapters.isEmpty()) {
+            android.util.Log.d("MangaRepository", "移除 " + removedManga.size() + " 本漫画和 "
+                    + removedChapters.size() + " 个章节");
+        }
+        
+        return mangaList;
+    }
+    
+    // 定向重建索引：只重新检查指定的漫画文件夹，已删除的漫画和章节会从数据库中移除。
+    // 供文件监听服务在目录变化后调用，避免整库扫描
+    public void reindexManga(String directoryPath, Collection<String> mangaPaths,
+                             final Callback<List<Manga>> callback) {
+        executorService.execute(() -> {
+            List<Manga> mangaList = new java.util.ArrayList<>();
+            try {
+                android.util.Log.d("MangaRepository", "重建漫画索引: " + mangaPaths);
+                
+                List<String> paths = new java.util.ArrayList<>(mangaPaths);
+                List<File> existingFolders = new java.util.ArrayList<>();
+                List<String> removedManga = new java.util.ArrayList<>();
+                for (String path : paths) {
+                    File folder = new File(path);
+                    if (folder.isDirectory()) {
+                        existingFolders.add(folder);
+                    } else {
+                        removedManga.add(path);
+                    }
+                }
+                
+                // 只读取这些漫画及其章节的快照
+                Map<String, DirectorySnapshot> snapshots = new HashMap<>();
+                for (DirectorySnapshot snapshot : snapshotDao.getByPathsOrParents(paths)) {
+                    snapshots.put(snapshot.getPath(), snapshot);
+                }
+                
+                MangaFileUtils.IncrementalScanResult result =
+                        MangaFileUtils.planIncrementalScan(directoryPath, existingFolders, snapshots);
+                mangaList = applyIncrementalScan(result, snapshots, null);
+                
+                // 有快照的目录已在applyIncrementalScan中移除，这里只清理没有快照的漫画和章节记录。
+                // 遍历出错的漫画不在seenPaths中，跳过它以保留已有的章节记录
+                List<String> removedChapters = new java.util.ArrayList<>();
+                for (File folder : existingFolders) {
+                    if (!result.getSeenPaths().contains(folder.getAbsolutePath())) {
+                        continue;
+                    }
+                    for (String chapterPath : chapterDao.getChapterPathsByManga(folder.getAbsolutePath())) {
+                        if (!result.getSeenPaths().contains(chapterPath) && !new File(chapterPath).isDirectory()) {
+                            removedChapters.add(chapterPath);
+                        }
+                    }
+                }
+                removeIndexedPaths(removedManga, removedChapters);
+                
+                android.util.Log.d("MangaRepository", "重建索引完成，更新 " + result.getChangedManga().size() + " 本漫画");
+            } catch (Exception e) {
+                android.util.Log.e("MangaRepository", "重建漫画索引时出错: " + e.getMessage(), e);
+            }
+            
+            if (callback != null) {
+                callback.onComplete(mangaList);
+            }
+        });
+    }
+    
+    // 在同一个事务中删除漫画（连同章节）和单独的章节记录，以及这些章节的页面
+    private void removeIndexedPaths(final List<String> removedManga, final List<String> removedChapters) {
+        if (removedManga.isEmpty() && removedChapters.isEmpty()) {
+            return;
+        }
+        database.runInTransaction(() -> {
+            List<String> removedPages = new java.util.ArrayList<>(removedChapters);
+            for (String mangaPath : removedManga) {
+                removedPages.addAll(chapterDao.getChapterPathsByManga(mangaPath));
+            }
+            for (int start = 0; start < removedManga.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+                List<String> batch = removedManga.subList(start, Math.min(start + MangaDatabase.MAX_BATCH_SIZE, removedManga.size()));
+                chapterDao.deleteByMangaPaths(batch);
+                mangaDao.deleteByPaths(batch);
+            }
+            for (int start = 0; start < removedChapters.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+                chapterDao.deleteByPaths(removedChapters.subList(start,
+                        Math.min(start + MangaDatabase.MAX_BATCH_SIZE, removedChapters.size())));
+            }
+            for (int start = 0; start < removedPages.size(); start += MangaDatabase.MAX_BATCH_SIZE) {
+                pageDao.deleteByChapterPaths(removedPages.subList(start,
+                        Math.min(start + MangaDatabase.MAX_BATCH_SIZE, removedPages.size())));
+            }
+        });
+    }
+    
+    private ScanPipeline newPipeline() {
+        return new ScanPipeline(new ParallelLibraryScanner(ParallelLibraryScanner.DEFAULT_PARALLELISM));
+    }
+    
+    // 扫描结果的写入批次，一个批次中的漫画、章节、页面和快照在同一个事务中提交，
+    // 已有记录的收藏状态、阅读时间和阅读进度会被保留
+    private class ScanBatch {
+        private final List<Manga> mangaList = new java.util.ArrayList<>();
+        private final List<Chapter> chapters = new java.util.ArrayList<>();
+        private final List<String> pageChapterPaths = new java.util.ArrayList<>();
+        private final List<Page> pages = new java.util.ArrayList<>();
+        private final List<DirectorySnapshot> snapshots = new java.util.ArrayList<>();
+        private final Map<String, Integer> sortOrders = new HashMap<>();
+        private final List<String> removedChapters = new java.util.ArrayList<>();
+        
+        void add(Manga manga, List<Chapter> mangaChapters) {
+            if (manga == null || manga.getPath() == null) {
+                android.util.Log.e("MangaRepository", "忽略无效的漫画对象");
+                return;
+            }
+            mangaList.add(manga);
+            if (mangaChapters != null) {
+                chapters.addAll(mangaChapters);
+            }
+        }
+        
+        // 写入漫画中所有进入过的章节的页面，没有图片的章节会清空原有页面
+        void addPages(MangaScan scan) {
+            for (ChapterScan chapterScan : scan.getChapters()) {
+                if (chapterScan.isScanned()) {
+                    addPages(chapterScan.getPath(), chapterScan.getPageFiles());
+                }
+            }
+        }
+        
+        void addPages(String chapterPath, List<PageFile> pageFiles) {
+            pageChapterPaths.add(chapterPath);
+            pages.addAll(MangaFileUtils.toPages(chapterPath, pageFiles));
+        }
+        
+        // 变化的漫画中增删章节后，未重新遍历的章节只更新排序位置
+        void addSortOrders(MangaScan scan) {
+            for (ChapterScan chapterScan : scan.getChapters()) {
+                if (!chapterScan.isScanned()) {
+                    sortOrders.put(chapterScan.getPath(), chapterScan.getSortOrder());
+                }
+            }
+        }
+        
+        // 完整扫描中漫画已有记录但本次没有扫描到的章节（目录已删除或不再有图片），与扫描结果一起删除
+        void removeMissingChapters(String mangaPath, List<Chapter> mangaChapters) {
+            Set<String> scannedPaths = new HashSet<>();
+            for (Chapter chapter : mangaChapters) {
+                scannedPaths.add(chapter.getPath());
+            }
+            for (String chapterPath : chapterDao.getChapterPathsByManga(mangaPath)) {
+                if (!scannedPaths.contains(chapterPath)) {
+                    removedChapters.add(chapterPath);
+                }
+            }
+        }
+        
+        void addSnapshots(List<DirectorySnapshot> mangaSnapshots) {
+            snapshots.addAll(mangaSnapshots);
+        }
+        
+        boolean isFull() {
+            return chapters.size() >= SCAN_BATCH_SIZE || pages.size() >= PAGE_BATCH_SIZE;
+        }
+        
+        void commit() {
+            if (mangaList.isEmpty() && chapters.isEmpty() && sortOrders.isEmpty()
+                    && pageChapterPaths.isEmpty() && snapshots.isEmpty() && removedChapters.isEmpty()) {
+                return;
+            }
+            try {
+                database.runInTransaction(() -> {
+                    mangaDao.upsertPreservingUserData(mangaList);
+                    chapterDao.upsertPreservingProgress(chapters);
+                    chapterDao.updateSortOrderBatch(sortOrders);
+                    pageDao.replacePages(pageChapterPaths, pages);
+                    snapshotDao.insertAll(snapshots);
+                    removeIndexedPaths(Collections.<String>emptyList(), removedChapters);
+                });
+                android.util.Log.d("MangaRepository", "已保存 " + mangaList.size() + " 本漫画，"
+                        + chapters.size() + " 个章节");
+            } catch (Exception e) {
+                android.util.Log.e("MangaRepository", "批量保存扫描结果时出错: " + e.getMessage(), e);
+            }
+            mangaList.clear();
+            chapters.clear();
+            sortOrders.clear();
+            pageChapterPaths.clear();
+            pages.clear();
+            snapshots.clear();
+            removedChapters.clear();
+        }
+    }
+    
+    // 获取章节的页面列表：章节目录的修改时间未变时直接读取页面表，否则重新列出目录并更新页面表
     public void getChapterPages(String chapterPath, final Callback<List<String>> callback) {
         executorService.execute(() -> {
-            List<String> pages = MangaFileUtils.getChapterPages(chapterPath);
+            List<String> pages = loadChapterPages(chapterPath);
+            if (callback != null) {
+                callback.onComplete(pages);
+            }
+        });
+    }
+    
+    // 获取章节的页面及图片尺寸，供连续滚动阅读预先确定每页的高度。
+    // 还没有尺寸的页面读取文件头后写回页面表，之后打开同一章节不需要再读取
+    public void getChapterPageInfo(String chapterPath, final Callback<List<Page>> callback) {
+        executorService.execute(() -> {
+            List<Page> pages = loadChapterPageInfo(chapterPath);
+            if (callback != null) {
+                callback.onComplete(pages);
+            }
+        });
+    }
+    
+    // 读取页面表中已经记录的页面信息（尺寸和黑白检测结果），不检查章节目录是否变化
+    public void getStoredPages(String chapterPath, final Callback<List<Page>> callback) {
+        executorService.execute(() -> {
+            List<Page> pages;
+            try {
+                pages = pageDao.getPages(chapterPath);
+            } catch (Exception e) {
+                android.util.Log.e("MangaRepository", "读取页面表时出错: " + e.getMessage(), e);
+                pages = Collections.emptyList();
+            }
             if (callback != null) {
                 callback.onComplete(pages);
             }
         });
     }
     
+    // 记录图片的黑白检测结果，imagePath为图片的完整路径
+    public void updatePageColorMode(String imagePath, int colorMode) {
+        executorService.execute(() -> {
+            File file = new File(imagePath);
+            try {
+                pageDao.updateColorMode(file.getParent(), file.getName(), colorMode);
+            } catch (Exception e) {
+                android.util.Log.e("MangaRepository", "记录页面黑白检测结果时出错: " + e.getMessage(), e);
+            }
+        });
+    }
+    
+    private List<Page> loadChapterPageInfo(final String chapterPath) {
+        // 先确保页面表与目录一致
+        List<String> pagePaths = loadChapterPages(chapterPath);
+        try {
+            List<Page> pages = pageDao.getPages(chapterPath);
+            if (pages.size() == pagePaths.size()) {
+                List<Page> measured = new java.util.ArrayList<>();
+                for (Page page : pages) {
+                    if ((page.getWidth() <= 0 || page.getHeight() <= 0) && MangaFileUtils.readImageSize(page)) {
+                        measured.add(page);
+                    }
+                }
+                if (!measured.isEmpty()) {
+                    pageDao.updateSizes(measured);
+                    android.util.Log.d("MangaRepository", "已记录页面尺寸: " + chapterPath + ", 页数: " + measured.size());
+                }
+                return pages;
+            }
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "读取页面尺寸时出错: " + e.getMessage(), e);
+        }
+        
+        // 页面表不可用时直接读取图片尺寸，不写入数据库
+        List<Page> pages = new java.util.ArrayList<>(pagePaths.size());
+        for (int i = 0; i < pagePaths.size(); i++) {
+            File file = new File(pagePaths.get(i));
+            Page page = new Page(chapterPath, i, file.getName(), file.length(), file.lastModified());
+            MangaFileUtils.readImageSize(page);
+            pages.add(page);
+        }
+        return pages;
+    }
+    
+    private List<String> loadChapterPages(final String chapterPath) {
+        try {
+            File chapterFolder = new File(chapterPath);
+            final long lastModified = chapterFolder.lastModified();
+            if (lastModified == 0) {
+                return MangaFileUtils.getChapterPages(chapterPath);
+            }
+            
+            DirectorySnapshot snapshot = snapshotDao.getByPath(chapterPath);
+            if (snapshot != null && snapshot.getLastModified() == lastModified) {
+                List<Page> pages = pageDao.getPages(chapterPath);
+                if (pages.size() == snapshot.getChildCount()) {
+                    List<String> pagePaths = new java.util.ArrayList<>(pages.size());
+                    for (Page page : pages) {
+                        pagePaths.add(page.getFilePath());
+                    }
+                    return pagePaths;
+                }
+            }
+            
+            // 目录发生变化或还没有页面记录，重新列出并写入
+            final List<PageFile> pageFiles = MangaFileUtils.getChapterPageFiles(chapterPath);
+            final String mangaPath = chapterFolder.getParent();
+            database.runInTransaction(() -> {
+                pageDao.replacePages(Collections.singletonList(chapterPath),
+                        MangaFileUtils.toPages(chapterPath, pageFiles));
+                snapshotDao.insertAll(Collections.singletonList(
+                        new DirectorySnapshot(chapterPath, mangaPath, lastModified, pageFiles.size())));
+                chapterDao.updateTotalPages(chapterPath, pageFiles.size());
+            });
+            android.util.Log.d("MangaRepository", "已更新章节页面表: " + chapterPath + ", 页数: " + pageFiles.size());
+            
+            List<String> pagePaths = new java.util.ArrayList<>(pageFiles.size());
+            for (PageFile pageFile : pageFiles) {
+                pagePaths.add(pageFile.getPath());
+            }
+            return pagePaths;
+        } catch (Exception e) {
+            android.util.Log.e("MangaRepository", "读取章节页面表时出错: " + e.getMessage(), e);
+            return MangaFileUtils.getChapterPages(chapterPath);
+        }
+    }
+    
     public void getLastReadChapter(String mangaPath, final Callback<Chapter> callback) {
         executorService.execute(() -> {
+            awaitPendingProgress();
             Chapter chapter = chapterDao.getLastReadChapterForManga(mangaPath);
             if (callback != null) {
                 callback.onComplete(chapter);
@@ -244,6 +752,7 @@ public class MangaRepository {
     
     public void getChapterByPath(String chapterPath, final Callback<Chapter> callback) {
         executorService.execute(() -> {
+            awaitPendingProgress();
             Chapter chapter = chapterDao.getChapterByPath(chapterPath);
             android.util.Log.d("MangaRepository", "Getting chapter by path: " + chapterPath 
                     + ", result: " + (chapter != null ? "found" : "not found"));
@@ -253,11 +762,12 @@ public class MangaRepository {
         });
     }
     
-    public void getPreviousChapter(String mangaPath, int currentChapterNumber, final Callback<Chapter> callback) {
+    public void getPreviousChapter(String mangaPath, int currentSortOrder, final Callback<Chapter> callback) {
         executorService.execute(() -> {
-            Chapter chapter = chapterDao.getPreviousChapter(mangaPath, currentChapterNumber);
+            awaitPendingProgress();
+            Chapter chapter = chapterDao.getPreviousChapter(mangaPath, currentSortOrder);
             android.util.Log.d("MangaRepository", "Getting previous chapter for manga: " + mangaPath 
-                    + ", current chapter: " + currentChapterNumber
+                    + ", current sort order: " + currentSortOrder
                     + ", result: " + (chapter != null ? "found - " + chapter.getTitle() : "not found"));
             if (callback != null) {
                 callback.onComplete(chapter);
@@ -265,11 +775,12 @@ public class MangaRepository {
         });
     }
     
-    public void getNextChapter(String mangaPath, int currentChapterNumber, final Callback<Chapter> callback) {
+    public void getNextChapter(String mangaPath, int currentSortOrder, final Callback<Chapter> callback) {
         executorService.execute(() -> {
-            Chapter chapter = chapterDao.getNextChapter(mangaPath, currentChapterNumber);
+            awaitPendingProgress();
+            Chapter chapter = chapterDao.getNextChapter(mangaPath, currentSortOrder);
             android.util.Log.d("MangaRepository", "Getting next chapter for manga: " + mangaPath 
-                    + ", current chapter: " + currentChapterNumber
+                    + ", current sort order: " + currentSortOrder
                     + ", result: " + (chapter != null ? "found - " + chapter.getTitle() : "not found"));
             if (callback != null) {
                 callback.onComplete(chapter);
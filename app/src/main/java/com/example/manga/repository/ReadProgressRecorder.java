@@ -0,0 +1,162 @@
+package com.example.manga.repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阅读进度的延迟合并写入。翻页、拖动进度条时只在内存中记下每个章节最新的(页码, 时间)
+ * 和每部漫画最新的阅读时间，定时或在flush时交给Writer在一个事务中一起写入，
+ * 拖动进度条经过200页也只写一次。
+ * 写入失败时这一批保留在内存中，写入期间记录的更新比失败的这批新，不会被覆盖，之后重试。
+ * 查询阅读进度之前需要先flush，否则可能读到旧的进度。
+ * 所有写入在同一个单线程执行器中进行，按顺序完成。线程安全。
+ */
+public class ReadProgressRecorder {
+    // 记录后多久写入
+    public static final long DEFAULT_FLUSH_DELAY_MS = 3000;
+
+    public interface Writer {
+        // 在一个事务中写入所有进度，抛出异常表示整批都没有写入
+        void write(Map<String, Progress> chapterProgress, Map<String, Long> mangaReadTimes) throws Exception;
+    }
+
+    // 一个章节的阅读进度
+    public static final class Progress {
+        private final int page;
+        private final long timestamp;
+
+        public Progress(int page, long timestamp) {
+            this.page = page;
+            this.timestamp = timestamp;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    private final Writer writer;
+    private final ScheduledExecutorService executor;
+    private final long flushDelayMs;
+
+    private final Object lock = new Object();
+    // 章节路径 -> 还没写入的最新进度
+    private Map<String, Progress> pendingChapters = new LinkedHashMap<>();
+    // 漫画路径 -> 还没写入的最新阅读时间
+    private Map<String, Long> pendingManga = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    // 正在写入一批进度
+    private boolean writing;
+    private int writeCount;
+    private int failureCount;
+
+    public ReadProgressRecorder(Writer writer, ScheduledExecutorService executor) {
+        this(writer, executor, DEFAULT_FLUSH_DELAY_MS);
+    }
+
+    public ReadProgressRecorder(Writer writer, ScheduledExecutorService executor, long flushDelayMs) {
+        this.writer = writer;
+        this.executor = executor;
+        this.flushDelayMs = flushDelayMs;
+    }
+
+    public void recordChapter(String chapterPath, int page, long timestamp) {
+        synchronized (lock) {
+            pendingChapters.put(chapterPath, new Progress(page, timestamp));
+            scheduleLocked();
+        }
+    }
+
+    public void recordMangaReadTime(String mangaPath, long timestamp) {
+        synchronized (lock) {
+            pendingManga.put(mangaPath, timestamp);
+            scheduleLocked();
+        }
+    }
+
+    // 有还没写入或正在写入的进度
+    public boolean hasPending() {
+        synchronized (lock) {
+            return writing || !pendingChapters.isEmpty() || !pendingManga.isEmpty();
+        }
+    }
+
+    // 立即写入所有还没写入的进度，离开阅读器和内存不足时调用。返回的Future在写入结束后完成
+    public Future<?> flush() {
+        return executor.submit(this::writePending);
+    }
+
+    public int getWriteCount() {
+        synchronized (lock) {
+            return writeCount;
+        }
+    }
+
+    public int getFailureCount() {
+        synchronized (lock) {
+            return failureCount;
+        }
+    }
+
+    private void scheduleLocked() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::writePending, flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 只在执行器线程中调用
+    private void writePending() {
+        Map<String, Progress> chapters;
+        Map<String, Long> manga;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pendingChapters.isEmpty() && pendingManga.isEmpty()) {
+                return;
+            }
+            chapters = pendingChapters;
+            manga = pendingManga;
+            pendingChapters = new LinkedHashMap<>();
+            pendingManga = new LinkedHashMap<>();
+            writing = true;
+        }
+
+        boolean written = false;
+        try {
+            writer.write(Collections.unmodifiableMap(chapters), Collections.unmodifiableMap(manga));
+            written = true;
+        } catch (Exception e) {
+            // 在finally中放回内存，稍后重试
+        } finally {
+            synchronized (lock) {
+                writing = false;
+                if (written) {
+                    writeCount++;
+                } else {
+                    failureCount++;
+                    restoreLocked(chapters, manga);
+                    scheduleLocked();
+                }
+            }
+        }
+    }
+
+    // 写入失败的一批放回内存，写入期间又记录过的章节和漫画保留新的值
+    private void restoreLocked(Map<String, Progress> chapters, Map<String, Long> manga) {
+        Map<String, Progress> restoredChapters = new LinkedHashMap<>(chapters);
+        restoredChapters.putAll(pendingChapters);
+        pendingChapters = restoredChapters;
+
+        Map<String, Long> restoredManga = new LinkedHashMap<>(manga);
+        restoredManga.putAll(pendingManga);
+        pendingManga = restoredManga;
+    }
+}
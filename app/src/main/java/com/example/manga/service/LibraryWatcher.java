@@ -0,0 +1,212 @@
+package com.example.manga.service;
+
+import android.os.FileObserver;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 漫画目录监听器。
+ * 在根目录、漫画目录和章节目录三层上注册FileObserver，把创建、删除和移动事件
+ * 归并为发生变化的漫画路径，经过防抖后一次性通知，由调用方只重建这些漫画的索引。
+ * 除构造外的所有状态只在handler所在的线程中访问。
+ */
+public class LibraryWatcher {
+    private static final String TAG = "LibraryWatcher";
+
+    // 最后一个事件之后等待的时间，批量复制时事件会被合并
+    static final long DEBOUNCE_MILLIS = 1500;
+    // 事件持续不断时，最多等待这么久也要通知一次
+    static final long MAX_DELAY_MILLIS = 10000;
+    // inotify的监听数量有限，超过该数量时不再监听章节目录（章节的增删仍由漫画目录的监听发现）
+    static final int MAX_WATCHED_DIRECTORIES = 4096;
+
+    private static final int LEVEL_ROOT = 0;
+    private static final int LEVEL_MANGA = 1;
+    private static final int LEVEL_CHAPTER = 2;
+
+    // FileObserver事件中表示目标是目录的标志位（inotify的IN_ISDIR）
+    private static final int IS_DIRECTORY = 0x40000000;
+
+    private static final int DIRECTORY_EVENTS = FileObserver.CREATE | FileObserver.DELETE
+            | FileObserver.MOVED_FROM | FileObserver.MOVED_TO;
+    private static final int CHAPTER_EVENTS = DIRECTORY_EVENTS | FileObserver.CLOSE_WRITE;
+
+    // 防抖后的回调，在handler所在的线程中调用
+    public interface Listener {
+        void onMangaChanged(Set<String> mangaPaths);
+    }
+
+    private final File root;
+    private final Handler handler;
+    private final Listener listener;
+    private final Map<String, DirectoryObserver> observers = new HashMap<>();
+    private final Set<String> dirtyManga = new HashSet<>();
+    private long firstDirtyTime;
+    private final Runnable flushRunnable = this::flush;
+
+    public LibraryWatcher(File root, Handler handler, Listener listener) {
+        this.root = root.getAbsoluteFile();
+        this.handler = handler;
+        this.listener = listener;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public void start() {
+        handler.post(this::watchLibrary);
+    }
+
+    public void stop() {
+        handler.post(() -> {
+            handler.removeCallbacks(flushRunnable);
+            dirtyManga.clear();
+            for (DirectoryObserver observer : observers.values()) {
+                observer.stopWatching();
+            }
+            observers.clear();
+            Log.d(TAG, "Stopped watching: " + root);
+        });
+    }
+
+    private void watchLibrary() {
+        watch(root, LEVEL_ROOT);
+        File[] mangaFolders = root.listFiles(File::isDirectory);
+        if (mangaFolders != null) {
+            for (File mangaFolder : mangaFolders) {
+                watchManga(mangaFolder);
+            }
+        }
+        Log.d(TAG, "Watching " + observers.size() + " directories under: " + root);
+    }
+
+    // 监听漫画目录及其下的章节目录，已监听的目录会被跳过
+    private void watchManga(File mangaFolder) {
+        watch(mangaFolder, LEVEL_MANGA);
+        File[] chapterFolders = mangaFolder.listFiles(File::isDirectory);
+        if (chapterFolders != null) {
+            for (File chapterFolder : chapterFolders) {
+                watch(chapterFolder, LEVEL_CHAPTER);
+            }
+        }
+    }
+
+    private void watch(File directory, int level) {
+        String path = directory.getAbsolutePath();
+        if (observers.containsKey(path)) {
+            return;
+        }
+        if (level == LEVEL_CHAPTER && observers.size() >= MAX_WATCHED_DIRECTORIES) {
+            return;
+        }
+
+        DirectoryObserver observer = new DirectoryObserver(directory, level);
+        observer.startWatching();
+        observers.put(path, observer);
+    }
+
+    // 停止监听已不存在的目录：path本身或path下已被删除的子目录
+    private void unwatchMissing(String path) {
+        String prefix = path + File.separator;
+        Iterator<Map.Entry<String, DirectoryObserver>> iterator = observers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, DirectoryObserver> entry = iterator.next();
+            String watchedPath = entry.getKey();
+            if ((watchedPath.equals(path) || watchedPath.startsWith(prefix)) && !new File(watchedPath).isDirectory()) {
+                entry.getValue().stopWatching();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void onDirectoryEvent(String directory, int level, int event, String name) {
+        switch (level) {
+            case LEVEL_ROOT:
+                // 根目录中只关心漫画文件夹的增删和移动
+                if ((event & IS_DIRECTORY) != 0) {
+                    markDirty(directory + File.separator + name);
+                }
+                break;
+            case LEVEL_MANGA:
+                // 章节文件夹或漫画目录下的封面图片发生变化
+                markDirty(directory);
+                break;
+            case LEVEL_CHAPTER:
+                markDirty(new File(directory).getParent());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void markDirty(String mangaPath) {
+        if (mangaPath == null) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        if (dirtyManga.isEmpty()) {
+            firstDirtyTime = now;
+        }
+        dirtyManga.add(mangaPath);
+
+        // 每个新事件都推迟通知，但不超过第一个事件之后的最长等待时间
+        long delay = Math.min(DEBOUNCE_MILLIS, Math.max(0, firstDirtyTime + MAX_DELAY_MILLIS - now));
+        handler.removeCallbacks(flushRunnable);
+        handler.postDelayed(flushRunnable, delay);
+    }
+
+    private void flush() {
+        if (dirtyManga.isEmpty()) {
+            return;
+        }
+        Set<String> changed = new HashSet<>(dirtyManga);
+        dirtyManga.clear();
+
+        // 先同步监听：新出现的目录开始监听，消失的目录停止监听
+        List<String> removed = new ArrayList<>();
+        for (String mangaPath : changed) {
+            File mangaFolder = new File(mangaPath);
+            unwatchMissing(mangaPath);
+            if (mangaFolder.isDirectory()) {
+                watchManga(mangaFolder);
+            } else {
+                removed.add(mangaPath);
+            }
+        }
+
+        Log.d(TAG, "Library changed, manga: " + changed.size() + ", removed: " + removed.size());
+        listener.onMangaChanged(changed);
+    }
+
+    private class DirectoryObserver extends FileObserver {
+        private final String path;
+        private final int level;
+
+        DirectoryObserver(File directory, int level) {
+            super(directory, level == LEVEL_CHAPTER ? CHAPTER_EVENTS : DIRECTORY_EVENTS);
+            this.path = directory.getAbsolutePath();
+            this.level = level;
+        }
+
+        @Override
+        public void onEvent(int event, String name) {
+            if (name == null) {
+                return;
+            }
+            // FileObserver在自己的线程中回调，转到handler线程处理
+            final int type = event & (FileObserver.ALL_EVENTS | IS_DIRECTORY);
+            handler.post(() -> onDirectoryEvent(path, level, type, name));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.manga.service;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.util.Log;
+
+import com.example.manga.MainActivity;
+import com.example.manga.R;
+import com.example.manga.repository.MangaRepository;
+
+import java.io.File;
+
+/**
+ * 在后台监听漫画目录，目录变化时只重建受影响的漫画和章节的索引，
+ * 正常使用时不再需要整库扫描。
+ * 以前台服务运行，应用退到后台后系统不会停止监听。
+ */
+public class LibraryWatcherService extends Service {
+    private static final String TAG = "LibraryWatcherService";
+    public static final String EXTRA_ROOT_PATH = "root_path";
+    private static final String CHANNEL_ID = "library_watcher";
+    private static final int NOTIFICATION_ID = 1;
+
+    private HandlerThread watcherThread;
+    private MangaRepository repository;
+    private LibraryWatcher watcher;
+
+    // 开始监听指定的漫画根目录，已在监听同一目录时不做任何事
+    public static void start(Context context, String rootPath) {
+        Intent intent = new Intent(context, LibraryWatcherService.class);
+        intent.putExtra(EXTRA_ROOT_PATH, rootPath);
+        try {
+            context.startForegroundService(intent);
+        } catch (Exception e) {
+            // 应用不在前台时系统不允许启动前台服务，下次回到前台时会重新启动
+            Log.e(TAG, "Unable to start watcher service: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        watcherThread = new HandlerThread("LibraryWatcher");
+        watcherThread.start();
+        repository = new MangaRepository(getApplication());
+        // startForegroundService之后需要尽快调用startForeground，被系统重启时同样经过这里
+        startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+    }
+
+    private Notification buildNotification() {
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null && manager.getNotificationChannel(CHANNEL_ID) == null) {
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.library_watcher_channel), NotificationManager.IMPORTANCE_MIN));
+        }
+
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        return new Notification.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_library)
+                .setContentTitle(getString(R.string.library_watcher_notification))
+                .setContentIntent(contentIntent)
+                .setOngoing(true)
+                .build();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String rootPath = intent != null ? intent.getStringExtra(EXTRA_ROOT_PATH) : null;
+        if (rootPath == null || rootPath.isEmpty()) {
+            Log.e(TAG, "No manga directory to watch");
+            if (watcher == null) {
+                stopSelf(startId);
+            }
+            return START_NOT_STICKY;
+        }
+
+        File root = new File(rootPath).getAbsoluteFile();
+        if (watcher != null && watcher.getRoot().equals(root)) {
+            return START_REDELIVER_INTENT;
+        }
+        if (watcher != null) {
+            watcher.stop();
+        }
+
+        Log.d(TAG, "Watching manga directory: " + rootPath);
+        watcher = new LibraryWatcher(root, new Handler(watcherThread.getLooper()),
+                mangaPaths -> repository.reindexManga(rootPath, mangaPaths, null));
+        watcher.start();
+        return START_REDELIVER_INTENT;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+        }
+        watcherThread.quitSafely();
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+}
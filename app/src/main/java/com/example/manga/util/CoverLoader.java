@@ -0,0 +1,72 @@
+package com.example.manga.util;
+
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.signature.ObjectKey;
+import com.example.manga.R;
+import com.example.manga.SettingsActivity;
+import com.example.manga.cover.CoverThumbnail;
+
+import java.io.File;
+
+/**
+ * 封面加载。书架中的封面从CoverThumbnailStore读取预先渲染好的缩略图；
+ * 其他位置按显示尺寸缩小并裁剪，缩小后的结果写入磁盘缓存（DiskCacheStrategy.RESOURCE），
+ * 再次显示时不需要解码原图。原图本来就在本地，不缓存原始数据。
+ * 页面解码方式设置为RGB_565时封面也使用RGB_565，其他方式使用Glide的默认格式
+ * （Glide在可以时已经使用硬件位图）。
+ */
+public class CoverLoader {
+
+    // 书架中的封面：按widthPx x heightPx渲染一次后保存在缩略图仓库中，之后直接读取缩略图
+    public static void loadThumbnail(ImageView imageView, String mangaPath, String coverPath, int widthPx, int heightPx) {
+        if (mangaPath == null || coverPath == null) {
+            load(imageView, null, widthPx, heightPx);
+            return;
+        }
+
+        // 修改时间是内存缓存键的一部分，封面文件被替换后重新读取缩略图
+        long coverModified = new File(coverPath).lastModified();
+        applyFormat(imageView, Glide.with(imageView)
+                .load(new CoverThumbnail(mangaPath, coverPath, coverModified, widthPx, heightPx)))
+                .override(widthPx, heightPx)
+                // 缩略图仓库本身就是磁盘缓存
+                .diskCacheStrategy(DiskCacheStrategy.NONE)
+                .placeholder(R.drawable.ic_manga_placeholder)
+                .error(R.drawable.ic_manga_placeholder)
+                .into(imageView);
+    }
+
+    // widthPx/heightPx为封面视图的显示尺寸，coverPath为null时显示占位图
+    public static void load(ImageView imageView, String coverPath, int widthPx, int heightPx) {
+        if (coverPath == null) {
+            Glide.with(imageView).clear(imageView);
+            imageView.setImageResource(R.drawable.ic_manga_placeholder);
+            return;
+        }
+
+        File coverFile = new File(coverPath);
+        applyFormat(imageView, Glide.with(imageView)
+                .load(coverFile))
+                .override(widthPx, heightPx)
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                // 封面文件被替换后重新生成缓存
+                .signature(new ObjectKey(coverFile.lastModified()))
+                .placeholder(R.drawable.ic_manga_placeholder)
+                .error(R.drawable.ic_manga_placeholder)
+                .into(imageView);
+    }
+
+    private static RequestBuilder<Drawable> applyFormat(ImageView imageView, RequestBuilder<Drawable> request) {
+        if (SettingsActivity.getDecodeProfile(imageView.getContext()) == SettingsActivity.DECODE_PROFILE_RGB_565) {
+            return request.format(DecodeFormat.PREFER_RGB_565);
+        }
+        return request;
+    }
+}
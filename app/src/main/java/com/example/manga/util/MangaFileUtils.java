@@ -1,419 +1,272 @@
 package com.example.manga.util;
 
-import android.content.Context;
+import android.graphics.BitmapFactory;
 import android.util.Log;
 
 import com.example.manga.model.Chapter;
+import com.example.manga.model.DirectorySnapshot;
 import com.example.manga.model.Manga;
+import com.example.manga.model.Page;
+import com.example.manga.scan.ChapterScan;
+import com.example.manga.scan.DirectoryState;
+import com.example.manga.scan.IncrementalPlan;
+import com.example.manga.scan.LibraryIndexer;
+import com.example.manga.scan.LibraryWalker;
+import com.example.manga.scan.MangaScan;
+import com.example.manga.scan.PageFile;
+import com.example.manga.scan.ParallelLibraryScanner;
+import com.example.manga.scan.ScanLogger;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
+/**
+ * 扫描核心（core模块的LibraryIndexer）的Android适配层：
+ * 日志输出到android.util.Log，扫描结果转换为Room实体
+ */
 public class MangaFileUtils {
     private static final String TAG = "MangaFileUtils";
-    private static final Pattern CHAPTER_PATTERN = Pattern.compile("第(\\d+)章");
-    private static final Pattern CHAPTER_NUMBER_PATTERN = Pattern.compile("\\d+");
-    private static final String[] SUPPORTED_IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".webp", ".gif"};
+    
+    private static final LibraryIndexer INDEXER = new LibraryIndexer(new ScanLogger() {
+        @Override
+        public void debug(String message) {
+            Log.d(TAG, message);
+        }
+        
+        @Override
+        public void error(String message, Throwable error) {
+            Log.e(TAG, message, error);
+        }
+    });
 
     // 扫描指定目录下的所有漫画
     public static List<Manga> scanMangaDirectory(String directoryPath) {
         List<Manga> mangaList = new ArrayList<>();
-        
-        try {
-            Log.d(TAG, "Scanning manga directory: " + directoryPath);
-            
-            if (directoryPath == null || directoryPath.isEmpty()) {
-                Log.e(TAG, "Invalid directory path: null or empty");
-                return mangaList;
-            }
-            
-            File directory = new File(directoryPath);
-            if (!directory.exists()) {
-                Log.e(TAG, "Manga directory does not exist: " + directoryPath);
-                return mangaList;
-            }
-            
-            if (!directory.isDirectory()) {
-                Log.e(TAG, "Path is not a directory: " + directoryPath);
-                return mangaList;
-            }
-            
-            if (!directory.canRead()) {
-                Log.e(TAG, "Cannot read directory (permission denied): " + directoryPath);
-                return mangaList;
-            }
-            
-            File[] mangaFolders = directory.listFiles();
-            Log.d(TAG, "Files in directory: " + (mangaFolders != null ? mangaFolders.length : 0));
-            
-            if (mangaFolders == null || mangaFolders.length == 0) {
-                Log.e(TAG, "No files found in: " + directoryPath);
-                return mangaList;
-            }
-            
-            // 过滤出目录
-            List<File> mangaDirectories = new ArrayList<>();
-            for (File file : mangaFolders) {
-                if (file != null && file.exists() && file.isDirectory()) {
-                    mangaDirectories.add(file);
-                    Log.d(TAG, "Found potential manga directory: " + file.getName());
-                } else if (file != null) {
-                    Log.d(TAG, "Skipping non-directory file: " + file.getName());
-                }
-            }
-            
-            if (mangaDirectories.isEmpty()) {
-                Log.e(TAG, "No manga folders found in: " + directoryPath);
-                return mangaList;
-            }
-            
-            for (File mangaFolder : mangaDirectories) {
-                try {
-                    Log.d(TAG, "Processing manga folder: " + mangaFolder.getName());
-                    String coverPath = findCoverImage(mangaFolder.getAbsolutePath());
-                    Log.d(TAG, "Cover path: " + (coverPath != null ? coverPath : "null"));
-                    
-                    Manga manga = new Manga(
-                            mangaFolder.getAbsolutePath(),
-                            mangaFolder.getName(),
-                            coverPath
-                    );
-                    // 设置章节数量
-                    int chapterCount = countChapters(mangaFolder.getAbsolutePath());
-                    manga.setTotalChapters(chapterCount);
-                    
-                    mangaList.add(manga);
-                } catch (Exception e) {
-                    // 单个漫画处理错误不应该影响其他漫画
-                    Log.e(TAG, "Error processing manga folder: " + mangaFolder.getPath(), e);
-                }
-            }
-            
-            Log.d(TAG, "Total manga found: " + mangaList.size());
-        } catch (Exception e) {
-            Log.e(TAG, "Unexpected error scanning manga directory: " + directoryPath, e);
+        for (MangaScan scan : scanLibrary(directoryPath)) {
+            mangaList.add(toManga(scan));
         }
-        
         return mangaList;
     }
     
-    // 计算章节数量
-    private static int countChapters(String mangaPath) {
-        if (mangaPath == null || mangaPath.isEmpty()) {
-            return 0;
-        }
-        
-        try {
-            File mangaFolder = new File(mangaPath);
-            if (!mangaFolder.exists() || !mangaFolder.isDirectory()) {
-                return 0;
+    // 扫描指定目录下的所有漫画，使用默认的并行度
+    public static List<MangaScan> scanLibrary(String directoryPath) {
+        return scanLibrary(directoryPath, ParallelLibraryScanner.DEFAULT_PARALLELISM);
+    }
+    
+    // 扫描指定目录下的所有漫画，parallelism为同时读取目录的线程数，小于等于1时顺序扫描
+    public static List<MangaScan> scanLibrary(String directoryPath, int parallelism) {
+        return INDEXER.scanLibrary(directoryPath, parallelism);
+    }
+    
+    // 发现阶段：列出根目录下的漫画文件夹，目录不可读时返回空列表
+    public static List<File> listMangaFolders(String directoryPath) {
+        return INDEXER.listMangaFolders(directoryPath);
+    }
+    
+    public static void logScanError(File mangaFolder, Exception e) {
+        INDEXER.logScanError(mangaFolder, e);
+    }
+    
+    // 将扫描结果转换为漫画实体
+    public static Manga toManga(MangaScan scan) {
+        Manga manga = new Manga(scan.getPath(), scan.getTitle(), scan.getCoverPath());
+        manga.setTotalChapters(scan.getValidChapterCount());
+        return manga;
+    }
+    
+    // 将扫描结果转换为章节实体，只有包含图片的文件夹才会被添加为章节
+    public static List<Chapter> toChapters(MangaScan scan) {
+        List<Chapter> chapters = new ArrayList<>();
+        for (ChapterScan chapterScan : scan.getChapters()) {
+            if (chapterScan.getPageCount() > 0) {
+                chapters.add(toChapter(scan.getPath(), chapterScan));
             }
-            
-            File[] chapterFolders = mangaFolder.listFiles(File::isDirectory);
-            if (chapterFolders == null) {
-                return 0;
+        }
+        return chapters;
+    }
+    
+    // 将章节中的图片转换为页面实体
+    public static List<Page> toPages(String chapterPath, List<PageFile> pageFiles) {
+        List<Page> pages = new ArrayList<>(pageFiles.size());
+        for (int i = 0; i < pageFiles.size(); i++) {
+            PageFile pageFile = pageFiles.get(i);
+            pages.add(new Page(chapterPath, i, pageFile.getFileName(), pageFile.getSize(), pageFile.getLastModified()));
+        }
+        return pages;
+    }
+    
+    // 完整扫描得到的漫画目录和章节目录快照
+    public static List<DirectorySnapshot> toSnapshots(MangaScan scan, String directoryPath) {
+        List<DirectorySnapshot> snapshots = new ArrayList<>(scan.getChapters().size() + 1);
+        snapshots.add(new DirectorySnapshot(scan.getPath(), directoryPath,
+                scan.getLastModified(), scan.getChapters().size()));
+        for (ChapterScan chapterScan : scan.getChapters()) {
+            snapshots.add(new DirectorySnapshot(chapterScan.getPath(), scan.getPath(),
+                    chapterScan.getLastModified(), chapterScan.getPageCount()));
+        }
+        return snapshots;
+    }
+    
+    private static Chapter toChapter(String mangaPath, ChapterScan chapterScan) {
+        Chapter chapter = new Chapter(
+                chapterScan.getPath(),
+                mangaPath,
+                chapterScan.getTitle(),
+                chapterScan.getChapterNumber()
+        );
+        chapter.setSortOrder(chapterScan.getSortOrder());
+        chapter.setTotalPages(chapterScan.getPageCount());
+        return chapter;
+    }
+    
+    // 增量扫描的准备阶段：根据上次的目录快照找出需要重新遍历的漫画文件夹。
+    // 目录未变化的漫画只检查已知章节的修改时间；变化的漫画由调用方遍历后交给addChangedManga
+    public static IncrementalScanResult planIncrementalScan(String directoryPath,
+                                                            Map<String, DirectorySnapshot> snapshots) {
+        return planIncrementalScan(directoryPath, listMangaFolders(directoryPath), snapshots);
+    }
+    
+    // 只检查指定的漫画文件夹，snapshots中需要包含这些漫画及其章节的快照
+    public static IncrementalScanResult planIncrementalScan(String directoryPath, List<File> mangaFolders,
+                                                            Map<String, DirectorySnapshot> snapshots) {
+        Map<String, DirectoryState> states = new HashMap<>();
+        if (snapshots != null) {
+            for (DirectorySnapshot snapshot : snapshots.values()) {
+                states.put(snapshot.getPath(), new DirectoryState(snapshot.getPath(), snapshot.getParentPath(),
+                        snapshot.getLastModified(), snapshot.getChildCount()));
             }
-            
-            int validChapters = 0;
-            for (File folder : chapterFolders) {
-                if (countPages(folder.getAbsolutePath()) > 0) {
-                    validChapters++;
-                }
+        }
+        return new IncrementalScanResult(INDEXER.planIncrementalScan(directoryPath, mangaFolders, states));
+    }
+    
+    // 新增或已修改的漫画目录：未进入的章节沿用快照中的页数，其余章节需要写入数据库。
+    // 返回需要写入的漫画，它的章节可以通过result.getChapters获取
+    public static Manga addChangedManga(MangaScan scan, IncrementalScanResult result) {
+        int validChapters = result.plan.addChangedManga(scan);
+        List<Chapter> changedChapters = new ArrayList<>();
+        for (ChapterScan chapterScan : scan.getChapters()) {
+            if (chapterScan.isScanned() && chapterScan.getPageCount() > 0) {
+                changedChapters.add(toChapter(scan.getPath(), chapterScan));
             }
-            
-            return validChapters;
-        } catch (Exception e) {
-            Log.e(TAG, "Error counting chapters: " + e.getMessage(), e);
-            return 0;
         }
+        
+        Manga manga = new Manga(scan.getPath(), scan.getTitle(), scan.getCoverPath());
+        manga.setTotalChapters(validChapters);
+        result.changedManga.add(manga);
+        result.chaptersByManga.put(scan.getPath(), changedChapters);
+        return manga;
     }
     
     // 获取漫画的所有章节
     public static List<Chapter> getChapters(String mangaPath) {
-        List<Chapter> chapters = new ArrayList<>();
-        
         Log.d(TAG, "Getting chapters for manga: " + mangaPath);
         
-        try {
-            if (mangaPath == null || mangaPath.isEmpty()) {
-                Log.e(TAG, "Invalid manga path: null or empty");
-                return chapters;
-            }
-            
-            File mangaFolder = new File(mangaPath);
-            if (!mangaFolder.exists() || !mangaFolder.isDirectory()) {
-                Log.e(TAG, "Invalid manga path: " + mangaPath);
-                return chapters;
-            }
-            
-            File[] chapterFolders = mangaFolder.listFiles(File::isDirectory);
-            if (chapterFolders == null || chapterFolders.length == 0) {
-                Log.e(TAG, "No chapter folders found in: " + mangaPath);
-                return chapters;
-            }
-            
-            Log.d(TAG, "Found " + chapterFolders.length + " potential chapter folders");
-            
-            // 按章节排序
-            Arrays.sort(chapterFolders, new ChapterComparator());
-            
-            for (int i = 0; i < chapterFolders.length; i++) {
-                try {
-                    File chapterFolder = chapterFolders[i];
-                    if (chapterFolder == null || !chapterFolder.exists()) {
-                        Log.e(TAG, "Invalid chapter folder at index " + i);
-                        continue;
-                    }
-                    
-                    String chapterTitle = chapterFolder.getName();
-                    int chapterNumber = extractChapterNumber(chapterTitle, i + 1);
-                    
-                    Log.d(TAG, "Processing chapter: " + chapterTitle + " with number: " + chapterNumber);
-                    
-                    // 只有包含图片的文件夹才会被添加为章节
-                    int pageCount = countPages(chapterFolder.getAbsolutePath());
-                    if (pageCount > 0) {
-                        Chapter chapter = new Chapter(
-                                chapterFolder.getAbsolutePath(),
-                                mangaPath,
-                                chapterTitle,
-                                chapterNumber
-                        );
-                        
-                        // 设置总页数
-                        chapter.setTotalPages(pageCount);
-                        
-                        chapters.add(chapter);
-                        Log.d(TAG, "Added chapter with " + pageCount + " pages");
-                    } else {
-                        Log.d(TAG, "Skipping folder with no images: " + chapterTitle);
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error processing chapter at index " + i + ": " + e.getMessage(), e);
-                    // 继续处理下一个章节，不让单个章节的错误影响整个过程
-                }
-            }
-            
-            Log.d(TAG, "Total chapters found: " + chapters.size());
-        } catch (Exception e) {
-            Log.e(TAG, "Unexpected error getting chapters for manga: " + mangaPath, e);
+        MangaScan scan = INDEXER.scanManga(mangaPath);
+        if (scan == null) {
+            return new ArrayList<>();
         }
-        
+        List<Chapter> chapters = toChapters(scan);
+        Log.d(TAG, "Total chapters found: " + chapters.size());
         return chapters;
     }
     
     // 获取章节中的所有图片
     public static List<String> getChapterPages(String chapterPath) {
         List<String> pages = new ArrayList<>();
-        
-        try {
-            if (chapterPath == null || chapterPath.isEmpty()) {
-                Log.e(TAG, "Invalid chapter path: null or empty");
-                return pages;
-            }
-            
-            File chapterFolder = new File(chapterPath);
-            if (!chapterFolder.exists() || !chapterFolder.isDirectory()) {
-                Log.e(TAG, "Invalid chapter path: " + chapterPath);
-                return pages;
-            }
-            
-            File[] imageFiles = chapterFolder.listFiles(file -> {
-                if (file != null && file.isFile()) {
-                    String name = file.getName().toLowerCase();
-                    for (String ext : SUPPORTED_IMAGE_EXTENSIONS) {
-                        if (name.endsWith(ext)) {
-                            return true;
-                        }
-                    }
-                }
-                return false;
-            });
-            
-            if (imageFiles == null || imageFiles.length == 0) {
-                Log.e(TAG, "No image files found in: " + chapterPath);
-                return pages;
-            }
-            
-            // 按文件名排序
-            Arrays.sort(imageFiles, Comparator.comparing(File::getName));
-            
-            for (File imageFile : imageFiles) {
-                try {
-                    if (imageFile != null && imageFile.exists() && imageFile.isFile()) {
-                        pages.add(imageFile.getAbsolutePath());
-                    } else if (imageFile != null) {
-                        Log.e(TAG, "Skipping invalid image file: " + imageFile.getName());
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error processing image file: " + e.getMessage(), e);
-                }
-            }
-            
-            Log.d(TAG, "Found " + pages.size() + " pages in chapter: " + chapterPath);
-        } catch (Exception e) {
-            Log.e(TAG, "Unexpected error getting chapter pages: " + chapterPath, e);
+        for (PageFile pageFile : getChapterPageFiles(chapterPath)) {
+            pages.add(pageFile.getPath());
         }
-        
         return pages;
     }
     
-    // 从章节名称中提取章节号
-    private static int extractChapterNumber(String chapterTitle, int defaultNumber) {
-        // 首先尝试标准格式 "第X章"
-        Matcher matcher = CHAPTER_PATTERN.matcher(chapterTitle);
-        if (matcher.find()) {
-            try {
-                return Integer.parseInt(matcher.group(1));
-            } catch (NumberFormatException e) {
-                Log.e(TAG, "Failed to parse chapter number from: " + chapterTitle, e);
-            }
+    // 获取章节中的所有图片及其大小和修改时间
+    public static List<PageFile> getChapterPageFiles(String chapterPath) {
+        return INDEXER.listChapterPages(chapterPath);
+    }
+    
+    // 只读取文件头中的图片尺寸并写入page，不解码像素。读取失败时返回false
+    public static boolean readImageSize(Page page) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(page.getFilePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.e(TAG, "无法读取图片尺寸: " + page.getFilePath());
+            return false;
+        }
+        page.setWidth(options.outWidth);
+        page.setHeight(options.outHeight);
+        return true;
+    }
+    
+    // 增量扫描结果：IncrementalPlan加上需要写入数据库的漫画和章节实体
+    public static class IncrementalScanResult {
+        private final IncrementalPlan plan;
+        // 新增或目录发生变化的漫画
+        private final List<Manga> changedManga = new ArrayList<>();
+        // 变化漫画中需要写入数据库的章节（未变化的章节不包含在内）
+        private final Map<String, List<Chapter>> chaptersByManga = new HashMap<>();
+        
+        IncrementalScanResult(IncrementalPlan plan) {
+            this.plan = plan;
         }
         
-        // 尝试直接从文件夹名称中提取数字
-        matcher = CHAPTER_NUMBER_PATTERN.matcher(chapterTitle);
-        if (matcher.find()) {
-            try {
-                return Integer.parseInt(matcher.group());
-            } catch (NumberFormatException e) {
-                Log.e(TAG, "Failed to parse number from: " + chapterTitle, e);
-            }
+        public String getDirectoryPath() {
+            return plan.getDirectoryPath();
         }
         
-        // 最后尝试特殊格式，例如"chapter X"或"ch X"
-        String lowerTitle = chapterTitle.toLowerCase();
-        if (lowerTitle.contains("chapter") || lowerTitle.contains("ch")) {
-            String[] parts = lowerTitle.replace("chapter", " ").replace("ch", " ").split("\\s+");
-            for (String part : parts) {
-                if (part.matches("\\d+")) {
-                    try {
-                        return Integer.parseInt(part);
-                    } catch (NumberFormatException e) {
-                        Log.e(TAG, "Failed to parse number from part: " + part, e);
-                    }
-                }
-            }
+        public List<File> getChangedFolders() {
+            return plan.getChangedFolders();
         }
         
-        return defaultNumber;
-    }
-    
-    // 查找封面图片
-    private static String findCoverImage(String mangaPath) {
-        Log.d(TAG, "Finding cover image for manga: " + mangaPath);
+        // 遍历变化的漫画时不进入修改时间未变的章节目录
+        public Function<File, LibraryWalker.ChapterFilter> getChapterFilters() {
+            return plan.getChapterFilters();
+        }
         
-        File mangaFolder = new File(mangaPath);
-        if (!mangaFolder.exists() || !mangaFolder.isDirectory()) {
-            Log.e(TAG, "Manga folder doesn't exist or is not a directory: " + mangaPath);
-            return null;
+        public List<Manga> getChangedManga() {
+            return changedManga;
         }
         
-        // 首先查找章节文件夹中的图片
-        File[] chapterFolders = mangaFolder.listFiles(File::isDirectory);
+        public List<Chapter> getChapters(String mangaPath) {
+            List<Chapter> chapters = chaptersByManga.get(mangaPath);
+            return chapters != null ? chapters : new ArrayList<>();
+        }
         
-        if (chapterFolders != null && chapterFolders.length > 0) {
-            Log.d(TAG, "Found " + chapterFolders.length + " chapter folders");
-            
-            // 按章节排序
-            Arrays.sort(chapterFolders, new ChapterComparator());
-            
-            // 获取第一个章节的第一张图片作为封面
-            File firstChapter = chapterFolders[0];
-            Log.d(TAG, "Looking for images in first chapter: " + firstChapter.getName());
-            
-            File[] imageFiles = firstChapter.listFiles(file -> {
-                if (file.isFile()) {
-                    String name = file.getName().toLowerCase();
-                    for (String ext : SUPPORTED_IMAGE_EXTENSIONS) {
-                        if (name.endsWith(ext)) {
-                            return true;
-                        }
-                    }
-                }
-                return false;
-            });
-            
-            if (imageFiles != null && imageFiles.length > 0) {
-                Log.d(TAG, "Found " + imageFiles.length + " images in first chapter");
-                
-                // 按文件名排序
-                Arrays.sort(imageFiles, Comparator.comparing(File::getName));
-                return imageFiles[0].getAbsolutePath();
-            } else {
-                Log.d(TAG, "No images found in first chapter");
-            }
-        } else {
-            Log.d(TAG, "No chapter folders found in manga folder");
+        public List<String> getUnchangedMangaPaths() {
+            return plan.getUnchangedMangaPaths();
         }
         
-        // 如果章节中没有找到图片，查找漫画文件夹中的图片
-        Log.d(TAG, "Looking for images directly in manga folder");
-        File[] mangaImages = mangaFolder.listFiles(file -> {
-            if (file.isFile()) {
-                String name = file.getName().toLowerCase();
-                for (String ext : SUPPORTED_IMAGE_EXTENSIONS) {
-                    if (name.endsWith(ext)) {
-                        return true;
-                    }
-                }
-            }
-            return false;
-        });
+        public Map<String, Integer> getChangedChapterPages() {
+            return plan.getChangedChapterPages();
+        }
         
-        if (mangaImages != null && mangaImages.length > 0) {
-            Log.d(TAG, "Found " + mangaImages.length + " images in manga folder");
-            
-            // 按文件名排序
-            Arrays.sort(mangaImages, Comparator.comparing(File::getName));
-            return mangaImages[0].getAbsolutePath();
-        } else {
-            Log.d(TAG, "No images found in manga folder");
+        public Map<String, List<PageFile>> getChangedChapterPageFiles() {
+            return plan.getChangedChapterPageFiles();
         }
         
-        // 如果没有找到任何图片，返回null
-        Log.e(TAG, "No cover image found for manga: " + mangaPath);
-        return null;
-    }
-    
-    // 统计章节中的页数
-    private static int countPages(String chapterPath) {
-        File chapterFolder = new File(chapterPath);
-        File[] imageFiles = chapterFolder.listFiles(file -> {
-            if (file.isFile()) {
-                String name = file.getName().toLowerCase();
-                for (String ext : SUPPORTED_IMAGE_EXTENSIONS) {
-                    if (name.endsWith(ext)) {
-                        return true;
-                    }
-                }
+        // 需要写入的新快照或已更新的快照
+        public List<DirectorySnapshot> getChangedSnapshots() {
+            List<DirectoryState> states = plan.getChangedStates();
+            List<DirectorySnapshot> snapshots = new ArrayList<>(states.size());
+            for (DirectoryState state : states) {
+                snapshots.add(new DirectorySnapshot(state.getPath(), state.getParentPath(),
+                        state.getLastModified(), state.getChildCount()));
             }
-            return false;
-        });
+            return snapshots;
+        }
         
-        return imageFiles != null ? imageFiles.length : 0;
-    }
-    
-    // 章节文件夹比较器
-    private static class ChapterComparator implements Comparator<File> {
-        @Override
-        public int compare(File f1, File f2) {
-            String name1 = f1.getName();
-            String name2 = f2.getName();
-            
-            int num1 = extractChapterNumber(name1, 0);
-            int num2 = extractChapterNumber(name2, 0);
-            
-            if (num1 != num2) {
-                return Integer.compare(num1, num2);
-            }
-            
-            // 如果章节号相同，按名称排序
-            return name1.compareTo(name2);
+        public Set<String> getSeenPaths() {
+            return plan.getSeenPaths();
+        }
+        
+        // 重新统计后没有图片的章节，需要从数据库中移除
+        public Set<String> getEmptyChapterPaths() {
+            return plan.getEmptyChapterPaths();
         }
     }
-} 
\ No newline at end of file
+}
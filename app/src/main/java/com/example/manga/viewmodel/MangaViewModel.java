@@ -8,10 +8,16 @@ import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import com.example.manga.model.Chapter;
+import com.example.manga.model.ChapterSummary;
 import com.example.manga.model.Manga;
+import com.example.manga.model.MangaSummary;
+import com.example.manga.model.Page;
 import com.example.manga.repository.MangaRepository;
+import com.example.manga.scan.ScanProgress;
 
 import java.util.List;
 
@@ -19,13 +25,21 @@ public class MangaViewModel extends AndroidViewModel {
     private final MangaRepository repository;
     private final MutableLiveData<Boolean> isLoading;
     private final MutableLiveData<String> errorMessage;
+    private final MutableLiveData<ScanProgress> scanProgress;
     private static final String DEFAULT_MANGA_FOLDER = Environment.getExternalStorageDirectory() + "/manga";
+    // 分页列表在ViewModel中缓存，旋转屏幕或切换书架页面后不需要重新读取
+    private LiveData<PagingData<MangaSummary>> pagedAllManga;
+    private LiveData<PagingData<MangaSummary>> pagedRecentManga;
+    private LiveData<PagingData<MangaSummary>> pagedFavoriteManga;
+    private LiveData<PagingData<ChapterSummary>> pagedChapters;
+    private String pagedChaptersMangaPath;
     
     public MangaViewModel(@NonNull Application application) {
         super(application);
         repository = new MangaRepository(application);
         isLoading = new MutableLiveData<>(false);
         errorMessage = new MutableLiveData<>();
+        scanProgress = new MutableLiveData<>();
     }
     
     // 获取所有漫画
@@ -43,6 +57,42 @@ public class MangaViewModel extends AndroidViewModel {
         return repository.getFavoriteManga();
     }
     
+    // 详情页显示的漫画
+    public LiveData<Manga> getManga(String mangaPath) {
+        return repository.observeMangaByPath(mangaPath);
+    }
+    
+    // 书架的分页列表：所有漫画、最近阅读、收藏
+    public LiveData<PagingData<MangaSummary>> getAllMangaPaged() {
+        if (pagedAllManga == null) {
+            pagedAllManga = PagingLiveData.cachedIn(repository.getMangaSummariesAlphabetically(), this);
+        }
+        return pagedAllManga;
+    }
+    
+    public LiveData<PagingData<MangaSummary>> getRecentMangaPaged() {
+        if (pagedRecentManga == null) {
+            pagedRecentManga = PagingLiveData.cachedIn(repository.getMangaSummariesByLastRead(), this);
+        }
+        return pagedRecentManga;
+    }
+    
+    public LiveData<PagingData<MangaSummary>> getFavoriteMangaPaged() {
+        if (pagedFavoriteManga == null) {
+            pagedFavoriteManga = PagingLiveData.cachedIn(repository.getFavoriteMangaSummaries(), this);
+        }
+        return pagedFavoriteManga;
+    }
+    
+    // 详情页章节的分页列表
+    public LiveData<PagingData<ChapterSummary>> getChaptersPaged(String mangaPath) {
+        if (pagedChapters == null || !mangaPath.equals(pagedChaptersMangaPath)) {
+            pagedChapters = PagingLiveData.cachedIn(repository.getChapterSummariesByManga(mangaPath), this);
+            pagedChaptersMangaPath = mangaPath;
+        }
+        return pagedChapters;
+    }
+    
     // 获取特定漫画的章节
     public LiveData<List<Chapter>> getChapters(String mangaPath) {
         if (mangaPath == null) {
@@ -70,14 +120,24 @@ public class MangaViewModel extends AndroidViewModel {
         repository.updateReadProgress(chapterPath, page, timestamp);
     }
     
+    // 立即写入还没写入的阅读进度，阅读器onPause和内存不足时调用
+    public void flushReadProgress() {
+        repository.flushReadProgress();
+    }
+    
     // 更新漫画的最后阅读时间
     public void updateMangaLastReadTime(String mangaPath) {
         long timestamp = System.currentTimeMillis();
         repository.updateLastReadTime(mangaPath, timestamp);
     }
     
-    // 扫描漫画目录
+    // 扫描漫画目录（增量扫描，只处理发生变化的目录）
     public void scanMangaDirectory(String directoryPath) {
+        scanMangaDirectory(directoryPath, true);
+    }
+    
+    // 扫描漫画目录，incremental为false时重新扫描所有漫画和章节
+    public void scanMangaDirectory(String directoryPath, boolean incremental) {
         if (directoryPath == null || directoryPath.isEmpty()) {
             Log.e("MangaViewModel", "无效的目录路径: 为空");
             errorMessage.postValue("无效的目录路径");
@@ -90,7 +150,8 @@ public class MangaViewModel extends AndroidViewModel {
         Log.d("MangaViewModel", "开始扫描目录: " + directoryPath);
         
         try {
-            repository.scanMangaDirectory(directoryPath, mangaList -> {
+            // 扫描到的漫画分批写入数据库，getAllManga等LiveData会逐步收到结果
+            repository.scanMangaDirectory(directoryPath, incremental, scanProgress::postValue, mangaList -> {
                 isLoading.postValue(false);
                 
                 if (mangaList == null) {
@@ -118,6 +179,21 @@ public class MangaViewModel extends AndroidViewModel {
         repository.getChapterPages(chapterPath, callback);
     }
     
+    // 获取章节的页面及图片尺寸
+    public void getChapterPageInfo(String chapterPath, MangaRepository.Callback<List<Page>> callback) {
+        repository.getChapterPageInfo(chapterPath, callback);
+    }
+    
+    // 获取页面表中已记录的页面信息
+    public void getStoredPages(String chapterPath, MangaRepository.Callback<List<Page>> callback) {
+        repository.getStoredPages(chapterPath, callback);
+    }
+    
+    // 记录页面的黑白检测结果
+    public void updatePageColorMode(String imagePath, int colorMode) {
+        repository.updatePageColorMode(imagePath, colorMode);
+    }
+    
     // 获取漫画的最后阅读章节
     public void getLastReadChapter(String mangaPath, MangaRepository.Callback<Chapter> callback) {
         repository.getLastReadChapter(mangaPath, callback);
@@ -138,18 +214,23 @@ public class MangaViewModel extends AndroidViewModel {
         return errorMessage;
     }
     
+    // 获取扫描进度
+    public LiveData<ScanProgress> getScanProgress() {
+        return scanProgress;
+    }
+    
     // 通过路径直接获取章节
     public void getChapterByPath(String chapterPath, MangaRepository.Callback<Chapter> callback) {
         repository.getChapterByPath(chapterPath, callback);
     }
     
     // 获取上一章
-    public void getPreviousChapter(String mangaPath, int currentChapterNumber, MangaRepository.Callback<Chapter> callback) {
-        repository.getPreviousChapter(mangaPath, currentChapterNumber, callback);
+    public void getPreviousChapter(String mangaPath, int currentSortOrder, MangaRepository.Callback<Chapter> callback) {
+        repository.getPreviousChapter(mangaPath, currentSortOrder, callback);
     }
     
     // 获取下一章
-    public void getNextChapter(String mangaPath, int currentChapterNumber, MangaRepository.Callback<Chapter> callback) {
-        repository.getNextChapter(mangaPath, currentChapterNumber, callback);
+    public void getNextChapter(String mangaPath, int currentSortOrder, MangaRepository.Callback<Chapter> callback) {
+        repository.getNextChapter(mangaPath, currentSortOrder, callback);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.example.manga.repository;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReadProgressRecorderTest {
+    // 测试中定时写入不应该先于手动flush发生
+    private static final long LONG_DELAY_MS = 60_000;
+
+    private ScheduledExecutorService executor;
+    private FakeWriter writer;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        writer = new FakeWriter();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void coalescesRecordsPerChapterIntoOneWrite() throws Exception {
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+        for (int page = 0; page < 200; page++) {
+            recorder.recordChapter("/manga/a/ch1", page, 1000 + page);
+        }
+        recorder.recordMangaReadTime("/manga/a", 5000);
+
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, writer.batches.size());
+        Batch batch = writer.batches.get(0);
+        assertEquals(1, batch.chapters.size());
+        assertEquals(199, batch.chapters.get("/manga/a/ch1").getPage());
+        assertEquals(1199, batch.chapters.get("/manga/a/ch1").getTimestamp());
+        assertEquals(Long.valueOf(5000), batch.manga.get("/manga/a"));
+        assertFalse(recorder.hasPending());
+        assertEquals(1, recorder.getWriteCount());
+    }
+
+    @Test
+    public void keepsSeparateChaptersInSameBatch() throws Exception {
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+        recorder.recordChapter("/manga/a/ch1", 3, 100);
+        recorder.recordChapter("/manga/a/ch2", 7, 200);
+
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, writer.batches.size());
+        assertEquals(3, writer.batches.get(0).chapters.get("/manga/a/ch1").getPage());
+        assertEquals(7, writer.batches.get(0).chapters.get("/manga/a/ch2").getPage());
+    }
+
+    @Test
+    public void flushWithNothingPendingDoesNotWrite() throws Exception {
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertTrue(writer.batches.isEmpty());
+        assertEquals(0, recorder.getWriteCount());
+    }
+
+    @Test
+    public void timerWritesAfterDelay() throws Exception {
+        writer.latch = new CountDownLatch(1);
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, 50);
+        recorder.recordChapter("/manga/a/ch1", 4, 100);
+
+        assertTrue(writer.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(4, writer.batches.get(0).chapters.get("/manga/a/ch1").getPage());
+    }
+
+    @Test
+    public void recordsAfterFlushAreWrittenInNextBatch() throws Exception {
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+        recorder.recordChapter("/manga/a/ch1", 1, 100);
+        recorder.flush().get(5, TimeUnit.SECONDS);
+        recorder.recordChapter("/manga/a/ch1", 2, 200);
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, writer.batches.size());
+        assertEquals(2, writer.batches.get(1).chapters.get("/manga/a/ch1").getPage());
+    }
+
+    @Test
+    public void failedWriteKeepsProgressForRetry() throws Exception {
+        writer.failures = 1;
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+        recorder.recordChapter("/manga/a/ch1", 9, 100);
+        recorder.recordMangaReadTime("/manga/a", 100);
+
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertTrue(writer.batches.isEmpty());
+        assertTrue(recorder.hasPending());
+        assertEquals(1, recorder.getFailureCount());
+
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, writer.batches.size());
+        assertEquals(9, writer.batches.get(0).chapters.get("/manga/a/ch1").getPage());
+        assertEquals(Long.valueOf(100), writer.batches.get(0).manga.get("/manga/a"));
+        assertFalse(recorder.hasPending());
+    }
+
+    @Test
+    public void newerRecordDuringFailedWriteIsNotOverwritten() throws Exception {
+        final ReadProgressRecorder[] holder = new ReadProgressRecorder[1];
+        writer.failures = 1;
+        // 写入过程中又翻了一页，然后这次写入失败
+        writer.duringWrite = () -> holder[0].recordChapter("/manga/a/ch1", 20, 300);
+        holder[0] = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+        ReadProgressRecorder recorder = holder[0];
+        recorder.recordChapter("/manga/a/ch1", 10, 200);
+        recorder.recordChapter("/manga/a/ch2", 5, 200);
+
+        recorder.flush().get(5, TimeUnit.SECONDS);
+        writer.duringWrite = null;
+        recorder.flush().get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, writer.batches.size());
+        Batch batch = writer.batches.get(0);
+        assertEquals(20, batch.chapters.get("/manga/a/ch1").getPage());
+        assertEquals(300, batch.chapters.get("/manga/a/ch1").getTimestamp());
+        // 失败的一批中没有被覆盖的章节仍然写入
+        assertEquals(5, batch.chapters.get("/manga/a/ch2").getPage());
+    }
+
+    @Test
+    public void failedWriteIsRetriedByTimer() throws Exception {
+        writer.failures = 1;
+        writer.latch = new CountDownLatch(1);
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, 50);
+        recorder.recordChapter("/manga/a/ch1", 6, 100);
+
+        assertTrue(writer.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(6, writer.batches.get(0).chapters.get("/manga/a/ch1").getPage());
+        assertEquals(1, recorder.getFailureCount());
+    }
+
+    @Test
+    public void pendingIncludesBatchBeingWritten() throws Exception {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch releaseWrite = new CountDownLatch(1);
+        writer.duringWrite = () -> {
+            writeStarted.countDown();
+            try {
+                releaseWrite.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        ReadProgressRecorder recorder = new ReadProgressRecorder(writer, executor, LONG_DELAY_MS);
+        recorder.recordChapter("/manga/a/ch1", 1, 100);
+
+        recorder.flush();
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+        // 写入还没提交，查询前仍然需要等待
+        assertTrue(recorder.hasPending());
+
+        releaseWrite.countDown();
+        recorder.flush().get(5, TimeUnit.SECONDS);
+        assertFalse(recorder.hasPending());
+    }
+
+    private static final class Batch {
+        final Map<String, ReadProgressRecorder.Progress> chapters;
+        final Map<String, Long> manga;
+
+        Batch(Map<String, ReadProgressRecorder.Progress> chapters, Map<String, Long> manga) {
+            this.chapters = new HashMap<>(chapters);
+            this.manga = new HashMap<>(manga);
+        }
+    }
+
+    private static final class FakeWriter implements ReadProgressRecorder.Writer {
+        final List<Batch> batches = new ArrayList<>();
+        volatile int failures;
+        volatile Runnable duringWrite;
+        volatile CountDownLatch latch;
+
+        @Override
+        public void write(Map<String, ReadProgressRecorder.Progress> chapterProgress,
+                          Map<String, Long> mangaReadTimes) throws Exception {
+            Runnable action = duringWrite;
+            if (action != null) {
+                action.run();
+            }
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("database is locked");
+            }
+            synchronized (this) {
+                batches.add(new Batch(chapterProgress, mangaReadTimes));
+            }
+            if (latch != null) {
+                latch.countDown();
+            }
+        }
+    }
+}
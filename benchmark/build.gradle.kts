@@ -0,0 +1,42 @@
+// 扫描器、章节排序和数据库写入的JMH基准测试，运行在普通JVM上
+// 运行: ./gradlew :benchmark:jmh
+// 指定生成测试目录的位置（例如tmpfs）: ./gradlew :benchmark:jmh -Dmanga.bench.dir=/dev/shm
+plugins {
+    id("java")
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    // 被测的扫描核心
+    jmh(project(":core"))
+    // 用与Room相同的SQLite语句测量批量写入的开销
+    jmh("org.xerial:sqlite-jdbc:3.42.0.0")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // 统计每次操作的内存分配
+    profilers.add("gc")
+    System.getProperty("manga.bench.dir")?.let { jvmArgsAppend.add("-Dmanga.bench.dir=$it") }
+}
+
+// 10万章节级别的扫描压力测试，参数和async-profiler的用法见ScanStress
+tasks.register<JavaExec>("scanStress") {
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.example.manga.benchmark.ScanStress")
+    (project.findProperty("stressArgs") as String?)?.let { args(it.split(" ")) }
+    (project.findProperty("stressJvmArgs") as String?)?.let { jvmArgs(it.split(" ")) }
+    System.getProperty("manga.bench.dir")?.let { systemProperty("manga.bench.dir", it) }
+}
@@ -0,0 +1,65 @@
+package com.example.manga.benchmark;
+
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 原来的章节比较器，每次比较都用正则表达式解析两个名称，只作为基准测试的对照
+ */
+final class LegacyChapterComparator implements Comparator<String> {
+    private static final Pattern CHAPTER_PATTERN = Pattern.compile("第(\\d+)章");
+    private static final Pattern CHAPTER_NUMBER_PATTERN = Pattern.compile("\\d+");
+
+    @Override
+    public int compare(String name1, String name2) {
+        int num1 = extractChapterNumber(name1, 0);
+        int num2 = extractChapterNumber(name2, 0);
+
+        if (num1 != num2) {
+            return Integer.compare(num1, num2);
+        }
+
+        // 如果章节号相同，按名称排序
+        return name1.compareTo(name2);
+    }
+
+    private static int extractChapterNumber(String chapterTitle, int defaultNumber) {
+        // 首先尝试标准格式 "第X章"
+        Matcher matcher = CHAPTER_PATTERN.matcher(chapterTitle);
+        if (matcher.find()) {
+            try {
+                return Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException ignored) {
+                // 数字超出范围，继续尝试其他格式
+            }
+        }
+
+        // 尝试直接从文件夹名称中提取数字
+        matcher = CHAPTER_NUMBER_PATTERN.matcher(chapterTitle);
+        if (matcher.find()) {
+            try {
+                return Integer.parseInt(matcher.group());
+            } catch (NumberFormatException ignored) {
+                // 数字超出范围，继续尝试其他格式
+            }
+        }
+
+        // 最后尝试特殊格式，例如"chapter X"或"ch X"
+        String lowerTitle = chapterTitle.toLowerCase();
+        if (lowerTitle.contains("chapter") || lowerTitle.contains("ch")) {
+            String[] parts = lowerTitle.replace("chapter", " ").replace("ch", " ").split("\\s+");
+            for (String part : parts) {
+                if (part.matches("\\d+")) {
+                    try {
+                        return Integer.parseInt(part);
+                    } catch (NumberFormatException ignored) {
+                        // 继续尝试下一部分
+                    }
+                }
+            }
+        }
+
+        return defaultNumber;
+    }
+}
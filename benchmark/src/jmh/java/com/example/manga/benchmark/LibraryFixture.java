@@ -0,0 +1,70 @@
+package com.example.manga.benchmark;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * 生成用于基准测试的漫画库目录：series本漫画 × chapters个章节 × pages张图片。
+ * 目录默认创建在java.io.tmpdir中，可以通过-Dmanga.bench.dir指定（例如/dev/shm）。
+ */
+final class LibraryFixture {
+    // 图片文件的内容，扫描只读取目录项和文件属性，不需要真实的图片数据
+    private static final byte[] PAGE_BYTES = new byte[64];
+
+    private LibraryFixture() {
+    }
+
+    static Path create(int series, int chapters, int pages) throws IOException {
+        String baseDir = System.getProperty("manga.bench.dir", System.getProperty("java.io.tmpdir"));
+        Path root = Files.createTempDirectory(Paths.get(baseDir), "manga-bench-");
+        for (int s = 0; s < series; s++) {
+            Path manga = Files.createDirectory(root.resolve("manga" + s));
+            for (int c = 1; c <= chapters; c++) {
+                Path chapter = Files.createDirectory(manga.resolve(chapterFolderName(c)));
+                for (int p = 1; p <= pages; p++) {
+                    // 不补零的文件名，排序时需要自然顺序
+                    Files.write(chapter.resolve(p + ".jpg"), PAGE_BYTES);
+                }
+            }
+        }
+        return root;
+    }
+
+    // 混合常见的章节命名方式。目录名只使用ASCII字符，避免JVM的文件名编码不是UTF-8时无法创建
+    static String chapterFolderName(int number) {
+        switch (number % 4) {
+            case 0:
+                return "c" + number;
+            case 1:
+                return "Chapter " + number;
+            case 2:
+                return "Vol." + (number / 10 + 1) + " Ch." + number;
+            default:
+                return number + ".5";
+        }
+    }
+
+    static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
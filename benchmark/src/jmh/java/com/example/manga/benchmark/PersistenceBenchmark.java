@@ -0,0 +1,186 @@
+package com.example.manga.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描结果写入数据库的开销。
+ * Room需要Android运行环境，这里用sqlite-jdbc执行与Room相同的表结构和语句（见CHAPTER_SCHEMA），
+ * 对比逐条写入（每条语句一个事务）与MangaRepository中分批事务写入的差别。
+ * 每次调用都是对已有数据的重新扫描：先查询已有记录以保留阅读进度，再整体替换。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PersistenceBenchmark {
+    // 与MangaDatabase.MAX_BATCH_SIZE相同
+    private static final int MAX_BATCH_SIZE = 500;
+    // 与MangaRepository中每个事务最多写入的章节数相同
+    private static final int SCAN_BATCH_SIZE = 2000;
+
+    @Param({"200"})
+    public int series;
+
+    @Param({"20"})
+    public int chapters;
+
+    private Path databaseFile;
+    private Connection connection;
+    private String[] chapterPaths;
+    private String[] chapterMangaPaths;
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws IOException, SQLException {
+        String baseDir = System.getProperty("manga.bench.dir", System.getProperty("java.io.tmpdir"));
+        databaseFile = Files.createTempFile(Paths.get(baseDir), "manga-bench-", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : CHAPTER_SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+
+        chapterPaths = new String[series * chapters];
+        chapterMangaPaths = new String[series * chapters];
+        for (int s = 0; s < series; s++) {
+            for (int c = 0; c < chapters; c++) {
+                chapterMangaPaths[s * chapters + c] = "/manga/漫画" + s;
+                chapterPaths[s * chapters + c] = "/manga/漫画" + s + "/" + LibraryFixture.chapterFolderName(c + 1);
+            }
+        }
+
+        // 第一次扫描的结果
+        batchedUpsert();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws IOException, SQLException {
+        connection.close();
+        Files.deleteIfExists(databaseFile);
+    }
+
+    // 原来的写法：每个章节先单独查询，再单独写入，每条语句自动提交
+    @Benchmark
+    public int rowByRowUpsert() throws SQLException {
+        connection.setAutoCommit(true);
+        int written = 0;
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT lastReadPage, lastReadTime FROM chapter_table WHERE path = ?");
+             PreparedStatement insert = connection.prepareStatement(INSERT_CHAPTER)) {
+            for (int i = 0; i < chapterPaths.length; i++) {
+                int lastReadPage = 0;
+                long lastReadTime = 0;
+                query.setString(1, chapterPaths[i]);
+                try (ResultSet resultSet = query.executeQuery()) {
+                    if (resultSet.next()) {
+                        lastReadPage = resultSet.getInt(1);
+                        lastReadTime = resultSet.getLong(2);
+                    }
+                }
+                bindChapter(insert, i, lastReadPage, lastReadTime);
+                written += insert.executeUpdate();
+            }
+        }
+        return written;
+    }
+
+    // MangaRepository.ScanBatch的写法：每批章节一个事务，按MAX_BATCH_SIZE分段查询已有记录后批量替换
+    @Benchmark
+    public int batchedUpsert() throws SQLException {
+        connection.setAutoCommit(false);
+        int written = 0;
+        try {
+            for (int batchStart = 0; batchStart < chapterPaths.length; batchStart += SCAN_BATCH_SIZE) {
+                int batchEnd = Math.min(batchStart + SCAN_BATCH_SIZE, chapterPaths.length);
+                for (int start = batchStart; start < batchEnd; start += MAX_BATCH_SIZE) {
+                    written += upsertChunk(start, Math.min(start + MAX_BATCH_SIZE, batchEnd));
+                }
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return written;
+    }
+
+    private int upsertChunk(int start, int end) throws SQLException {
+        Map<String, long[]> existing = new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT path, lastReadPage, lastReadTime FROM chapter_table WHERE path IN (");
+        for (int i = start; i < end; i++) {
+            sql.append(i == start ? "?" : ",?");
+        }
+        sql.append(')');
+        try (PreparedStatement query = connection.prepareStatement(sql.toString())) {
+            for (int i = start; i < end; i++) {
+                query.setString(i - start + 1, chapterPaths[i]);
+            }
+            try (ResultSet resultSet = query.executeQuery()) {
+                while (resultSet.next()) {
+                    existing.put(resultSet.getString(1), new long[]{resultSet.getInt(2), resultSet.getLong(3)});
+                }
+            }
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_CHAPTER)) {
+            for (int i = start; i < end; i++) {
+                long[] progress = existing.get(chapterPaths[i]);
+                bindChapter(insert, i, progress != null ? (int) progress[0] : 0, progress != null ? progress[1] : 0);
+                insert.addBatch();
+            }
+            return insert.executeBatch().length;
+        }
+    }
+
+    // 与Room为当前版本的Chapter实体生成的建表和索引语句相同，修改Chapter的字段或@Index时需要一起修改
+    private static final String[] CHAPTER_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS `chapter_table` (`path` TEXT NOT NULL, `mangaPath` TEXT, `title` TEXT, "
+                    + "`chapterNumber` INTEGER NOT NULL, `sortOrder` INTEGER NOT NULL, "
+                    + "`lastReadPage` INTEGER NOT NULL, `lastReadTime` INTEGER NOT NULL, "
+                    + "`totalPages` INTEGER NOT NULL, PRIMARY KEY(`path`))",
+            // 写入时同样要维护这些索引
+            "CREATE INDEX IF NOT EXISTS `index_chapter_table_mangaPath_sortOrder` "
+                    + "ON `chapter_table` (`mangaPath`, `sortOrder`)",
+            "CREATE INDEX IF NOT EXISTS `index_chapter_table_mangaPath_lastReadTime` "
+                    + "ON `chapter_table` (`mangaPath`, `lastReadTime`)",
+            "CREATE INDEX IF NOT EXISTS `index_chapter_table_lastReadTime` "
+                    + "ON `chapter_table` (`lastReadTime`)"
+    };
+
+    private static final String INSERT_CHAPTER = "INSERT OR REPLACE INTO `chapter_table` "
+            + "(`path`,`mangaPath`,`title`,`chapterNumber`,`sortOrder`,`lastReadPage`,`lastReadTime`,`totalPages`) "
+            + "VALUES (?,?,?,?,?,?,?,?)";
+
+    private void bindChapter(PreparedStatement insert, int index, int lastReadPage, long lastReadTime)
+            throws SQLException {
+        insert.setString(1, chapterPaths[index]);
+        insert.setString(2, chapterMangaPaths[index]);
+        insert.setString(3, LibraryFixture.chapterFolderName(index % chapters + 1));
+        insert.setInt(4, index % chapters + 1);
+        insert.setInt(5, index % chapters);
+        insert.setInt(6, lastReadPage);
+        insert.setLong(7, lastReadTime);
+        insert.setInt(8, 30);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.manga.benchmark;
+
+import com.example.manga.scan.LibraryWalker;
+import com.example.manga.scan.MangaScan;
+import com.example.manga.scan.PageFile;
+import com.example.manga.scan.ParallelLibraryScanner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 漫画库扫描吞吐量：完整扫描、目录未变化时的增量扫描，以及打开章节时列出页面
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScanBenchmark {
+    @Param({"100"})
+    public int series;
+
+    @Param({"20"})
+    public int chapters;
+
+    @Param({"30"})
+    public int pages;
+
+    // 1表示单线程的LibraryWalker，大于1时使用ParallelLibraryScanner
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private Path root;
+    private List<File> mangaFolders;
+    private File firstChapter;
+
+    @Setup(Level.Trial)
+    public void createLibrary() throws IOException {
+        root = LibraryFixture.create(series, chapters, pages);
+        mangaFolders = LibraryWalker.listMangaFolders(root.toFile());
+        firstChapter = root.resolve("manga0").resolve(LibraryFixture.chapterFolderName(1)).toFile();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLibrary() throws IOException {
+        LibraryFixture.delete(root);
+    }
+
+    // 完整扫描：进入每个章节目录
+    @Benchmark
+    public List<MangaScan> fullScan() throws IOException {
+        if (parallelism <= 1) {
+            List<MangaScan> scans = new ArrayList<>(mangaFolders.size());
+            for (File mangaFolder : mangaFolders) {
+                scans.add(LibraryWalker.walkManga(mangaFolder));
+            }
+            return scans;
+        }
+        return new ParallelLibraryScanner(parallelism).scan(mangaFolders, null);
+    }
+
+    // 增量扫描中所有章节都未变化：只列出漫画目录，不进入章节目录
+    @Benchmark
+    public List<MangaScan> unchangedRescan() throws IOException {
+        LibraryWalker.ChapterFilter skipAll = (chapterPath, lastModified) -> false;
+        if (parallelism <= 1) {
+            List<MangaScan> scans = new ArrayList<>(mangaFolders.size());
+            for (File mangaFolder : mangaFolders) {
+                scans.add(LibraryWalker.walkManga(mangaFolder, skipAll));
+            }
+            return scans;
+        }
+        return new ParallelLibraryScanner(parallelism).scan(mangaFolders, mangaFolder -> skipAll, null);
+    }
+
+    // 打开章节时列出并排序页面（页面表未命中时的路径）
+    @Benchmark
+    public List<PageFile> listChapterPages() throws IOException {
+        return LibraryWalker.listPageFiles(firstChapter);
+    }
+}
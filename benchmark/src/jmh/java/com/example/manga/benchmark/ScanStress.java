@@ -0,0 +1,83 @@
+package com.example.manga.benchmark;
+
+import com.example.manga.scan.ChapterScan;
+import com.example.manga.scan.DirectoryState;
+import com.example.manga.scan.IncrementalPlan;
+import com.example.manga.scan.LibraryIndexer;
+import com.example.manga.scan.MangaScan;
+import com.example.manga.scan.ParallelLibraryScanner;
+import com.example.manga.scan.ScanLogger;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 大型漫画库的扫描压力测试，默认生成 1000本 × 100章 × 5页（10万个章节目录）。
+ * 依次执行完整扫描和目录未变化时的增量扫描计划，输出耗时和数量，结果不符合预期时以非0状态退出。
+ * 运行: ./gradlew :benchmark:scanStress -PstressArgs="1000 100 5 4"
+ * 使用async-profiler: -PstressJvmArgs="-agentpath:/path/to/libasyncProfiler.so=start,event=cpu,file=scan.html"
+ */
+public final class ScanStress {
+
+    private ScanStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int series = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int chapters = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int pages = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : ParallelLibraryScanner.DEFAULT_PARALLELISM;
+
+        long start = System.nanoTime();
+        Path root = LibraryFixture.create(series, chapters, pages);
+        System.out.println("Generated " + series + " x " + chapters + " x " + pages + " library in "
+                + millisSince(start) + " ms: " + root);
+
+        try {
+            LibraryIndexer indexer = new LibraryIndexer(ScanLogger.SILENT);
+            String directoryPath = root.toString();
+
+            start = System.nanoTime();
+            List<MangaScan> scans = indexer.scanLibrary(directoryPath, parallelism);
+            long fullScanMillis = millisSince(start);
+
+            int chapterCount = 0;
+            long pageCount = 0;
+            Map<String, DirectoryState> states = new HashMap<>();
+            for (MangaScan scan : scans) {
+                states.put(scan.getPath(), new DirectoryState(scan.getPath(), directoryPath,
+                        scan.getLastModified(), scan.getChapters().size()));
+                for (ChapterScan chapterScan : scan.getChapters()) {
+                    chapterCount++;
+                    pageCount += chapterScan.getPageCount();
+                    states.put(chapterScan.getPath(), new DirectoryState(chapterScan.getPath(), scan.getPath(),
+                            chapterScan.getLastModified(), chapterScan.getPageCount()));
+                }
+            }
+            System.out.println("Full scan: " + scans.size() + " manga, " + chapterCount + " chapters, "
+                    + pageCount + " pages in " + fullScanMillis + " ms");
+
+            start = System.nanoTime();
+            List<File> mangaFolders = indexer.listMangaFolders(directoryPath);
+            IncrementalPlan plan = indexer.planIncrementalScan(directoryPath, mangaFolders, states);
+            long rescanMillis = millisSince(start);
+            System.out.println("Unchanged rescan: " + plan.getUnchangedMangaPaths().size() + " unchanged, "
+                    + plan.getChangedFolders().size() + " changed manga in " + rescanMillis + " ms");
+
+            if (scans.size() != series || chapterCount != series * chapters
+                    || pageCount != (long) series * chapters * pages || !plan.getChangedFolders().isEmpty()) {
+                System.err.println("Unexpected scan result");
+                System.exit(1);
+            }
+        } finally {
+            LibraryFixture.delete(root);
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
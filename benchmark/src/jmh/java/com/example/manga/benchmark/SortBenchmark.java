@@ -0,0 +1,87 @@
+package com.example.manga.benchmark;
+
+import com.example.manga.scan.ChapterKey;
+import com.example.manga.scan.NaturalOrder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 章节和页面排序的开销，与原来基于正则表达式的章节比较器对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SortBenchmark {
+    @Param({"1500"})
+    public int chapterCount;
+
+    @Param({"200"})
+    public int pageCount;
+
+    private List<String> chapterNames;
+    private List<String> pageNames;
+
+    @Setup
+    public void createNames() {
+        Random random = new Random(42);
+        chapterNames = new ArrayList<>(chapterCount);
+        for (int i = 1; i <= chapterCount; i++) {
+            // 另外加入中文命名的章节
+            chapterNames.add(i % 5 == 0 ? "第" + i + "话" : LibraryFixture.chapterFolderName(i));
+        }
+        Collections.shuffle(chapterNames, random);
+
+        pageNames = new ArrayList<>(pageCount);
+        for (int i = 1; i <= pageCount; i++) {
+            pageNames.add(i + ".jpg");
+        }
+        Collections.shuffle(pageNames, random);
+    }
+
+    // 每个名称解析一次，再比较解析好的排序键
+    @Benchmark
+    public List<ChapterKey> chapterKeySort() {
+        List<ChapterKey> keys = new ArrayList<>(chapterNames.size());
+        for (String name : chapterNames) {
+            keys.add(ChapterKey.parse(name));
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    // 基线：每次比较都用正则表达式解析两个名称
+    @Benchmark
+    public List<String> legacyRegexSort() {
+        List<String> names = new ArrayList<>(chapterNames);
+        Collections.sort(names, new LegacyChapterComparator());
+        return names;
+    }
+
+    @Benchmark
+    public List<String> naturalPageSort() {
+        List<String> names = new ArrayList<>(pageNames);
+        Collections.sort(names, NaturalOrder.COMPARATOR);
+        return names;
+    }
+
+    // 基线：按文件名的字典顺序排序
+    @Benchmark
+    public List<String> lexicalPageSort() {
+        List<String> names = new ArrayList<>(pageNames);
+        Collections.sort(names);
+        return names;
+    }
+}
@@ -1,4 +1,5 @@
 // Top-level build file where you can add configuration options common to all sub-projects/modules.
 plugins {
     id("com.android.application") version "8.1.1" apply false
+    id("me.champeau.jmh") version "0.7.2" apply false
 }
\ No newline at end of file
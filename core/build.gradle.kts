@@ -0,0 +1,18 @@
+// 不依赖Android的扫描核心：目录遍历、章节排序、页面列表和增量扫描计划。
+// 可以直接在JVM上运行压力测试和性能分析
+plugins {
+    id("java-library")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
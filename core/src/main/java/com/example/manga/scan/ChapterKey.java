@@ -0,0 +1,265 @@
+package com.example.manga.scan;
+
+/**
+ * 章节排序键，每个章节文件夹名称只解析一次（decorate-sort-undecorate），
+ * 排序时只比较解析好的数值。
+ * 支持小数章节（"12.5"）、卷和章（"Vol.3 Ch.20"、"第3卷 第20话"）以及中文数字（"第十二话"）。
+ * 解析过程逐个读取字符，除排序键本身外不创建对象。
+ */
+public final class ChapterKey implements Comparable<ChapterKey> {
+    public static final int NO_VOLUME = -1;
+
+    private static final int KIND_PLAIN = 0;
+    private static final int KIND_VOLUME = 1;
+    private static final int KIND_CHAPTER = 2;
+
+    private static final String CHINESE_DIGITS = "零〇一二两三四五六七八九";
+    private static final int[] CHINESE_DIGIT_VALUES = {0, 0, 1, 2, 2, 3, 4, 5, 6, 7, 8, 9};
+    private static final String CHINESE_UNITS = "十百千万";
+    private static final int[] CHINESE_UNIT_VALUES = {10, 100, 1000, 10000};
+    // 数字后面表示章节的字
+    private static final String CHAPTER_SUFFIXES = "话話章回集节節";
+
+    private final String name;
+    private final int volume;
+    private final double number;
+
+    private ChapterKey(String name, int volume, double number) {
+        this.name = name;
+        this.volume = volume;
+        this.number = number;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // 卷号，名称中没有卷号时为NO_VOLUME
+    public int getVolume() {
+        return volume;
+    }
+
+    // 章节号，可能带小数，无法解析时为NaN
+    public double getNumber() {
+        return number;
+    }
+
+    public boolean hasNumber() {
+        return !Double.isNaN(number);
+    }
+
+    // 整数章节号：优先使用章节号的整数部分，其次是卷号，都没有时返回defaultNumber
+    public int getChapterNumber(int defaultNumber) {
+        if (hasNumber() && number <= Integer.MAX_VALUE) {
+            return (int) number;
+        }
+        return volume != NO_VOLUME ? volume : defaultNumber;
+    }
+
+    // 先按卷号，再按章节号（无法解析的按0处理），最后按名称的自然顺序排序
+    @Override
+    public int compareTo(ChapterKey other) {
+        if (volume != other.volume) {
+            return volume < other.volume ? -1 : 1;
+        }
+        int result = Double.compare(hasNumber() ? number : 0, other.hasNumber() ? other.number : 0);
+        if (result != 0) {
+            return result;
+        }
+        return NaturalOrder.compare(name, other.name);
+    }
+
+    public static ChapterKey parse(String name) {
+        int volume = NO_VOLUME;
+        double chapter = Double.NaN;
+        double firstPlain = Double.NaN;
+
+        int length = name.length();
+        int i = 0;
+        while (i < length) {
+            char c = name.charAt(i);
+            int end;
+            double value;
+            if (NaturalOrder.isDigit(c)) {
+                end = skipDecimal(name, i);
+                value = parseDecimal(name, i, end);
+            } else if (isChineseNumeral(c)) {
+                end = skipChineseNumeral(name, i);
+                // 中文数字只在"第"之后或章节、卷标记之前才当作数字，避免把标题中的"一"当作章节号
+                if (!isAfterOrdinalMark(name, i) && classifySuffix(name, end) == KIND_PLAIN) {
+                    i = end;
+                    continue;
+                }
+                value = parseChineseNumeral(name, i, end);
+            } else {
+                i++;
+                continue;
+            }
+
+            int kind = classify(name, i, end);
+            if (kind == KIND_VOLUME) {
+                if (volume == NO_VOLUME && value <= Integer.MAX_VALUE) {
+                    volume = (int) value;
+                }
+            } else if (kind == KIND_CHAPTER) {
+                if (Double.isNaN(chapter)) {
+                    chapter = value;
+                }
+            } else if (Double.isNaN(firstPlain)) {
+                firstPlain = value;
+            }
+            i = end;
+        }
+
+        return new ChapterKey(name, volume, Double.isNaN(chapter) ? firstPlain : chapter);
+    }
+
+    // 根据数字前后的标记判断数字是卷号、章节号还是普通数字
+    private static int classify(String name, int start, int end) {
+        int kind = classifySuffix(name, end);
+        return kind != KIND_PLAIN ? kind : classifyPrefix(name, start);
+    }
+
+    private static int classifySuffix(String name, int end) {
+        int i = skipSpaces(name, end);
+        if (i >= name.length()) {
+            return KIND_PLAIN;
+        }
+        char c = name.charAt(i);
+        if (c == '卷') {
+            return KIND_VOLUME;
+        }
+        return CHAPTER_SUFFIXES.indexOf(c) >= 0 ? KIND_CHAPTER : KIND_PLAIN;
+    }
+
+    private static int classifyPrefix(String name, int start) {
+        // 跳过数字前的空格和分隔符，例如"Vol. 3"、"Ch_20"、"#12"
+        int i = start - 1;
+        while (i >= 0 && isSeparator(name.charAt(i))) {
+            i--;
+        }
+        if (i < 0) {
+            return KIND_PLAIN;
+        }
+        if (name.charAt(i) == '第') {
+            return KIND_CHAPTER;
+        }
+
+        int wordEnd = i + 1;
+        while (i >= 0 && isAsciiLetter(name.charAt(i))) {
+            i--;
+        }
+        int wordStart = i + 1;
+        int wordLength = wordEnd - wordStart;
+        if (wordLength == 0) {
+            return KIND_PLAIN;
+        }
+        if (isWord(name, wordStart, wordLength, "vol") || isWord(name, wordStart, wordLength, "volume")) {
+            return KIND_VOLUME;
+        }
+        if (isWord(name, wordStart, wordLength, "ch") || isWord(name, wordStart, wordLength, "chap")
+                || isWord(name, wordStart, wordLength, "chapter") || isWord(name, wordStart, wordLength, "c")
+                || isWord(name, wordStart, wordLength, "ep") || isWord(name, wordStart, wordLength, "episode")) {
+            return KIND_CHAPTER;
+        }
+        return KIND_PLAIN;
+    }
+
+    private static boolean isAfterOrdinalMark(String name, int start) {
+        int i = start - 1;
+        while (i >= 0 && name.charAt(i) == ' ') {
+            i--;
+        }
+        return i >= 0 && name.charAt(i) == '第';
+    }
+
+    private static boolean isWord(String name, int start, int length, String word) {
+        return length == word.length() && name.regionMatches(true, start, word, 0, length);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '.' || c == '_' || c == '-' || c == '#';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static int skipSpaces(String name, int index) {
+        while (index < name.length() && name.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    // 整数部分后面紧跟".数字"时作为小数读取
+    private static int skipDecimal(String name, int index) {
+        int length = name.length();
+        while (index < length && NaturalOrder.isDigit(name.charAt(index))) {
+            index++;
+        }
+        if (index + 1 < length && name.charAt(index) == '.' && NaturalOrder.isDigit(name.charAt(index + 1))) {
+            index++;
+            while (index < length && NaturalOrder.isDigit(name.charAt(index))) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private static double parseDecimal(String name, int start, int end) {
+        double value = 0;
+        int i = start;
+        while (i < end && name.charAt(i) != '.') {
+            value = value * 10 + (name.charAt(i) - '0');
+            i++;
+        }
+        double scale = 0.1;
+        for (i++; i < end; i++) {
+            value += (name.charAt(i) - '0') * scale;
+            scale /= 10;
+        }
+        return value;
+    }
+
+    private static boolean isChineseNumeral(char c) {
+        return CHINESE_DIGITS.indexOf(c) >= 0 || CHINESE_UNITS.indexOf(c) >= 0;
+    }
+
+    private static int skipChineseNumeral(String name, int index) {
+        while (index < name.length() && isChineseNumeral(name.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    // 解析"十二"、"一百零五"、"两千"等中文数字
+    private static double parseChineseNumeral(String name, int start, int end) {
+        long total = 0;
+        long section = 0;
+        long digit = 0;
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            int digitIndex = CHINESE_DIGITS.indexOf(c);
+            if (digitIndex >= 0) {
+                digit = CHINESE_DIGIT_VALUES[digitIndex];
+                continue;
+            }
+            int unit = CHINESE_UNIT_VALUES[CHINESE_UNITS.indexOf(c)];
+            if (unit == 10000) {
+                total = (total + section + digit) * unit;
+                section = 0;
+            } else {
+                // "十二"中的"十"前面没有数字，按一十处理
+                section += (digit == 0 ? 1 : digit) * unit;
+            }
+            digit = 0;
+        }
+        return total + section + digit;
+    }
+
+    @Override
+    public String toString() {
+        return "ChapterKey{" + name + ", volume=" + volume + ", number=" + number + "}";
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.manga.scan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个章节文件夹的扫描结果（不可变）
+ */
+public final class ChapterScan {
+    private final String path;
+    private final String title;
+    private final int chapterNumber;
+    private final int sortOrder; // 章节在漫画中按ChapterKey排序的位置，从0开始
+    private final long lastModified;
+    private final List<PageFile> pages; // 按顺序排列的图片，未进入该目录时为null
+
+    ChapterScan(String path, String title, int chapterNumber, int sortOrder, long lastModified, List<PageFile> pages) {
+        this.path = path;
+        this.title = title;
+        this.chapterNumber = chapterNumber;
+        this.sortOrder = sortOrder;
+        this.lastModified = lastModified;
+        this.pages = pages != null ? Collections.unmodifiableList(pages) : null;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getChapterNumber() {
+        return chapterNumber;
+    }
+
+    // 章节列表和上一章/下一章按这个位置排序，整数章节号无法区分"12"和"12.5"或不同卷的章节
+    public int getSortOrder() {
+        return sortOrder;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // 是否进入了该章节目录（被ChapterFilter跳过的章节为false）
+    public boolean isScanned() {
+        return pages != null;
+    }
+
+    // 按顺序排列的图片完整路径
+    public List<String> getPages() {
+        List<String> paths = new ArrayList<>(getPageCount());
+        for (PageFile page : getPageFiles()) {
+            paths.add(page.getPath());
+        }
+        return paths;
+    }
+
+    public List<PageFile> getPageFiles() {
+        return pages != null ? pages : Collections.<PageFile>emptyList();
+    }
+
+    public int getPageCount() {
+        return pages != null ? pages.size() : 0;
+    }
+}
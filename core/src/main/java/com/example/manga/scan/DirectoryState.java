@@ -0,0 +1,35 @@
+package com.example.manga.scan;
+
+/**
+ * 上次扫描时记录的目录状态（不可变），对应数据库中的目录快照。
+ * 漫画目录的childCount为章节文件夹数量，章节目录的childCount为图片数量
+ */
+public final class DirectoryState {
+    private final String path;
+    private final String parentPath;
+    private final long lastModified;
+    private final int childCount;
+
+    public DirectoryState(String path, String parentPath, long lastModified, int childCount) {
+        this.path = path;
+        this.parentPath = parentPath;
+        this.lastModified = lastModified;
+        this.childCount = childCount;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.manga.scan;
+
+import java.util.Locale;
+
+/**
+ * 漫画页面支持的图片格式
+ */
+public final class ImageFiles {
+    private static final String[] SUPPORTED_IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".webp", ".gif"};
+
+    private ImageFiles() {
+    }
+
+    // 判断文件名是否为支持的图片格式
+    public static boolean isSupportedImage(String fileName) {
+        if (fileName == null) {
+            return false;
+        }
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (String ext : SUPPORTED_IMAGE_EXTENSIONS) {
+            if (name.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
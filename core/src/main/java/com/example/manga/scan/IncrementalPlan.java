@@ -0,0 +1,116 @@
+package com.example.manga.scan;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 增量扫描计划：根据上次的目录状态找出需要重新遍历的漫画，
+ * 并记录遍历完成后需要写入的目录状态。由LibraryIndexer.planIncrementalScan创建
+ */
+public final class IncrementalPlan {
+    private final String directoryPath;
+    // 需要重新遍历的漫画文件夹
+    final List<File> changedFolders = new ArrayList<>();
+    // 变化漫画中已知的章节状态：漫画路径 -> (章节路径 -> 状态)
+    final Map<String, Map<String, DirectoryState>> knownChaptersByManga = new HashMap<>();
+    // 目录未变化的漫画，数据库中的记录保持不变
+    final List<String> unchangedMangaPaths = new ArrayList<>();
+    // 未变化漫画中页数发生变化的章节：章节路径 -> 新页数
+    final Map<String, Integer> changedChapterPages = new HashMap<>();
+    // 未变化漫画中重新列出的章节图片：章节路径 -> 图片列表
+    final Map<String, List<PageFile>> changedChapterPageFiles = new HashMap<>();
+    // 需要写入的新状态或已更新的状态
+    final List<DirectoryState> changedStates = new ArrayList<>();
+    // 本次扫描中仍然存在的所有目录
+    final Set<String> seenPaths = new HashSet<>();
+    // 重新统计后没有图片的章节目录
+    final Set<String> emptyChapterPaths = new HashSet<>();
+
+    IncrementalPlan(String directoryPath) {
+        this.directoryPath = directoryPath;
+    }
+
+    public String getDirectoryPath() {
+        return directoryPath;
+    }
+
+    public List<File> getChangedFolders() {
+        return changedFolders;
+    }
+
+    // 遍历变化的漫画时不进入修改时间未变的章节目录
+    public Function<File, LibraryWalker.ChapterFilter> getChapterFilters() {
+        return mangaFolder -> {
+            final Map<String, DirectoryState> knownByPath =
+                    knownChaptersByManga.get(mangaFolder.getAbsolutePath());
+            if (knownByPath == null) {
+                return null;
+            }
+            return (chapterPath, lastModified) -> {
+                DirectoryState chapterState = knownByPath.get(chapterPath);
+                return chapterState == null || chapterState.getLastModified() != lastModified;
+            };
+        };
+    }
+
+    // 记录遍历完成的变化漫画：未进入的章节沿用上次的页数，其余章节的状态需要写入。
+    // 返回漫画中有图片的章节数量（包括未重新遍历的章节）
+    public int addChangedManga(MangaScan scan) {
+        Map<String, DirectoryState> knownByPath = knownChaptersByManga.get(scan.getPath());
+        int validChapters = 0;
+        for (ChapterScan chapterScan : scan.getChapters()) {
+            seenPaths.add(chapterScan.getPath());
+
+            if (!chapterScan.isScanned()) {
+                // 章节未变化，保留已有的章节记录
+                if (knownByPath.get(chapterScan.getPath()).getChildCount() > 0) {
+                    validChapters++;
+                }
+                continue;
+            }
+
+            changedStates.add(new DirectoryState(chapterScan.getPath(), scan.getPath(),
+                    chapterScan.getLastModified(), chapterScan.getPageCount()));
+            if (chapterScan.getPageCount() > 0) {
+                validChapters++;
+            } else {
+                emptyChapterPaths.add(chapterScan.getPath());
+            }
+        }
+
+        seenPaths.add(scan.getPath());
+        changedStates.add(new DirectoryState(
+                scan.getPath(), directoryPath, scan.getLastModified(), scan.getChapters().size()));
+        return validChapters;
+    }
+
+    public List<String> getUnchangedMangaPaths() {
+        return unchangedMangaPaths;
+    }
+
+    public Map<String, Integer> getChangedChapterPages() {
+        return changedChapterPages;
+    }
+
+    public Map<String, List<PageFile>> getChangedChapterPageFiles() {
+        return changedChapterPageFiles;
+    }
+
+    public List<DirectoryState> getChangedStates() {
+        return changedStates;
+    }
+
+    public Set<String> getSeenPaths() {
+        return seenPaths;
+    }
+
+    public Set<String> getEmptyChapterPaths() {
+        return emptyChapterPaths;
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.manga.scan;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 漫画库索引的入口：发现漫画文件夹、完整扫描、增量扫描计划和章节页面列表。
+ * 只依赖java.io/java.nio，可以在普通JVM上对大型目录树做压力测试和性能分析；
+ * 错误和调试信息通过ScanLogger输出
+ */
+public final class LibraryIndexer {
+    private final ScanLogger logger;
+
+    public LibraryIndexer(ScanLogger logger) {
+        this.logger = logger != null ? logger : ScanLogger.SILENT;
+    }
+
+    // 扫描指定目录下的所有漫画，每本漫画的目录树只遍历一次，同时得到封面、章节和页数。
+    // parallelism为同时读取目录的线程数，小于等于1时顺序扫描；结果顺序与顺序扫描一致
+    public List<MangaScan> scanLibrary(String directoryPath, int parallelism) {
+        List<MangaScan> scans = new ArrayList<>();
+
+        try {
+            logger.debug("Scanning manga directory: " + directoryPath + ", parallelism: " + parallelism);
+
+            List<File> mangaDirectories = listMangaFolders(directoryPath);
+            if (mangaDirectories.isEmpty()) {
+                return scans;
+            }
+
+            if (parallelism > 1) {
+                scans = new ParallelLibraryScanner(parallelism).scan(mangaDirectories, this::logScanError);
+            } else {
+                for (File mangaFolder : mangaDirectories) {
+                    try {
+                        scans.add(LibraryWalker.walkManga(mangaFolder));
+                    } catch (Exception e) {
+                        // 单个漫画处理错误不应该影响其他漫画
+                        logScanError(mangaFolder, e);
+                    }
+                }
+            }
+
+            logger.debug("Total manga found: " + scans.size());
+        } catch (Exception e) {
+            logger.error("Unexpected error scanning manga directory: " + directoryPath, e);
+        }
+
+        return scans;
+    }
+
+    // 发现阶段：列出根目录下的漫画文件夹，目录不可读时返回空列表
+    public List<File> listMangaFolders(String directoryPath) {
+        File directory = checkLibraryDirectory(directoryPath);
+        if (directory == null) {
+            return new ArrayList<>();
+        }
+
+        List<File> mangaFolders = LibraryWalker.listMangaFolders(directory);
+        if (mangaFolders.isEmpty()) {
+            logger.error("No manga folders found in: " + directoryPath, null);
+        }
+        return mangaFolders;
+    }
+
+    // 可以直接作为ParallelLibraryScanner.ErrorHandler使用
+    public void logScanError(File mangaFolder, Exception e) {
+        logger.error("Error processing manga folder: " + mangaFolder.getPath(), e);
+    }
+
+    // 检查漫画根目录是否可读，不可读时返回null
+    private File checkLibraryDirectory(String directoryPath) {
+        if (directoryPath == null || directoryPath.isEmpty()) {
+            logger.error("Invalid directory path: null or empty", null);
+            return null;
+        }
+
+        File directory = new File(directoryPath);
+        if (!directory.exists()) {
+            logger.error("Manga directory does not exist: " + directoryPath, null);
+            return null;
+        }
+
+        if (!directory.isDirectory()) {
+            logger.error("Path is not a directory: " + directoryPath, null);
+            return null;
+        }
+
+        if (!directory.canRead()) {
+            logger.error("Cannot read directory (permission denied): " + directoryPath, null);
+            return null;
+        }
+
+        return directory;
+    }
+
+    // 增量扫描的准备阶段：只检查指定的漫画文件夹，states中需要包含这些漫画及其章节上次的目录状态。
+    // 目录未变化的漫画只检查已知章节的修改时间；变化的漫画由调用方遍历后交给IncrementalPlan.addChangedManga
+    public IncrementalPlan planIncrementalScan(String directoryPath, List<File> mangaFolders,
+                                               Map<String, DirectoryState> states) {
+        IncrementalPlan plan = new IncrementalPlan(directoryPath);
+
+        try {
+            logger.debug("Incremental scan of manga directory: " + directoryPath
+                    + ", known directories: " + (states != null ? states.size() : 0));
+
+            if (states == null) {
+                states = Collections.emptyMap();
+            }
+
+            // 按父目录分组，便于查找某本漫画下已知的章节目录
+            Map<String, List<DirectoryState>> statesByParent = new HashMap<>();
+            for (DirectoryState state : states.values()) {
+                if (state.getParentPath() != null) {
+                    List<DirectoryState> children = statesByParent.get(state.getParentPath());
+                    if (children == null) {
+                        children = new ArrayList<>();
+                        statesByParent.put(state.getParentPath(), children);
+                    }
+                    children.add(state);
+                }
+            }
+
+            for (File mangaFolder : mangaFolders) {
+                try {
+                    String mangaPath = mangaFolder.getAbsolutePath();
+                    long mangaModified = mangaFolder.lastModified();
+                    DirectoryState previous = states.get(mangaPath);
+                    List<DirectoryState> knownChapters = statesByParent.get(mangaPath);
+                    if (knownChapters == null) {
+                        knownChapters = Collections.emptyList();
+                    }
+
+                    // 漫画目录本身没有变化（没有增删章节），只需检查已知章节目录的修改时间
+                    if (previous != null && previous.getLastModified() == mangaModified
+                            && checkKnownChapters(mangaPath, knownChapters, plan)) {
+                        plan.unchangedMangaPaths.add(mangaPath);
+                        plan.seenPaths.add(mangaPath);
+                        continue;
+                    }
+
+                    logger.debug("Manga folder changed, rescanning: " + mangaFolder.getName());
+                    Map<String, DirectoryState> knownByPath = new HashMap<>();
+                    for (DirectoryState state : knownChapters) {
+                        knownByPath.put(state.getPath(), state);
+                    }
+                    plan.knownChaptersByManga.put(mangaPath, knownByPath);
+                    plan.changedFolders.add(mangaFolder);
+                } catch (Exception e) {
+                    // 单个漫画处理错误不应该影响其他漫画
+                    logScanError(mangaFolder, e);
+                }
+            }
+
+            logger.debug("Incremental scan planned - changed manga folders: " + plan.changedFolders.size()
+                    + ", unchanged manga: " + plan.unchangedMangaPaths.size()
+                    + ", changed chapters in unchanged manga: " + plan.changedChapterPages.size());
+        } catch (Exception e) {
+            logger.error("Unexpected error during incremental scan: " + directoryPath, e);
+        }
+
+        return plan;
+    }
+
+    // 漫画目录未变化时，只通过修改时间判断已知章节目录是否需要重新统计页数。
+    // 章节从没有图片变为有图片（数据库中还没有章节记录）或变为没有图片时返回false且不修改plan，
+    // 这本漫画需要重新遍历，以便新增或移除章节记录并重新计算章节数和封面
+    private boolean checkKnownChapters(String mangaPath, List<DirectoryState> knownChapters, IncrementalPlan plan) {
+        List<String> existingPaths = new ArrayList<>();
+        List<DirectoryState> changedStates = new ArrayList<>();
+        List<List<PageFile>> changedPageFiles = new ArrayList<>();
+        for (DirectoryState chapterState : knownChapters) {
+            File chapterFolder = new File(chapterState.getPath());
+            long chapterModified = chapterFolder.lastModified();
+            if (chapterModified == 0) {
+                // 目录已不存在，丢弃它的状态
+                continue;
+            }
+
+            existingPaths.add(chapterState.getPath());
+            if (chapterModified == chapterState.getLastModified()) {
+                continue;
+            }
+
+            List<PageFile> pageFiles = listChapterPages(chapterState.getPath());
+            if ((chapterState.getChildCount() == 0) != pageFiles.isEmpty()) {
+                logger.debug("Chapter folder gained or lost all pages, rescanning manga: " + chapterFolder.getName());
+                return false;
+            }
+            logger.debug("Chapter folder changed: " + chapterFolder.getName() + ", pages: " + pageFiles.size());
+            changedStates.add(new DirectoryState(chapterState.getPath(), mangaPath, chapterModified, pageFiles.size()));
+            changedPageFiles.add(pageFiles);
+        }
+
+        plan.seenPaths.addAll(existingPaths);
+        for (int i = 0; i < changedStates.size(); i++) {
+            DirectoryState state = changedStates.get(i);
+            plan.changedChapterPages.put(state.getPath(), state.getChildCount());
+            plan.changedChapterPageFiles.put(state.getPath(), changedPageFiles.get(i));
+            plan.changedStates.add(state);
+        }
+        return true;
+    }
+
+    // 遍历单本漫画，路径无效或出错时返回null
+    public MangaScan scanManga(String mangaPath) {
+        try {
+            if (mangaPath == null || mangaPath.isEmpty()) {
+                logger.error("Invalid manga path: null or empty", null);
+                return null;
+            }
+
+            File mangaFolder = new File(mangaPath);
+            if (!mangaFolder.exists() || !mangaFolder.isDirectory()) {
+                logger.error("Invalid manga path: " + mangaPath, null);
+                return null;
+            }
+
+            return LibraryWalker.walkManga(mangaFolder);
+        } catch (Exception e) {
+            logger.error("Unexpected error scanning manga: " + mangaPath, e);
+            return null;
+        }
+    }
+
+    // 获取章节中的所有图片及其大小和修改时间，按自然顺序排列
+    public List<PageFile> listChapterPages(String chapterPath) {
+        try {
+            if (chapterPath == null || chapterPath.isEmpty()) {
+                logger.error("Invalid chapter path: null or empty", null);
+                return new ArrayList<>();
+            }
+
+            File chapterFolder = new File(chapterPath);
+            if (!chapterFolder.exists() || !chapterFolder.isDirectory()) {
+                logger.error("Invalid chapter path: " + chapterPath, null);
+                return new ArrayList<>();
+            }
+
+            List<PageFile> pages = LibraryWalker.listPageFiles(chapterFolder);
+            if (pages.isEmpty()) {
+                logger.error("No image files found in: " + chapterPath, null);
+            } else {
+                logger.debug("Found " + pages.size() + " pages in chapter: " + chapterPath);
+            }
+            return pages;
+        } catch (Exception e) {
+            logger.error("Unexpected error getting chapter pages: " + chapterPath, e);
+            return new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.manga.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 单次遍历的漫画目录扫描器。
+ * 每个漫画目录及其章节目录只被列出一次，在同一次遍历中得到封面、章节列表和页数。
+ * 遍历分为列出漫画目录、读取章节页面和汇总三步，ParallelLibraryScanner并行执行中间一步。
+ */
+public final class LibraryWalker {
+
+    // 决定是否进入某个章节目录，返回false时该章节只记录名称和修改时间
+    public interface ChapterFilter {
+        boolean shouldScan(String chapterPath, long lastModified);
+    }
+
+    private LibraryWalker() {
+    }
+
+    // 列出根目录下的漫画文件夹
+    public static List<File> listMangaFolders(File root) {
+        List<File> folders = new ArrayList<>();
+        File[] files = root.listFiles(File::isDirectory);
+        if (files != null) {
+            Collections.addAll(folders, files);
+        }
+        return folders;
+    }
+
+    // 遍历一本漫画的所有章节
+    public static MangaScan walkManga(File mangaFolder) throws IOException {
+        return walkManga(mangaFolder, null);
+    }
+
+    // 遍历一本漫画，filter为null时进入所有章节目录。漫画目录无法列出时抛出IOException
+    public static MangaScan walkManga(File mangaFolder, ChapterFilter filter) throws IOException {
+        MangaListing listing = listManga(mangaFolder, filter);
+        readChapterPages(listing.chapters, 0, listing.chapters.size());
+        return listing.assemble();
+    }
+
+    // 列出漫画目录中的章节目录和图片，filter拒绝的章节不会进入。
+    // walkManga和ParallelLibraryScanner共用这一步和readChapterPages、assemble，
+    // 两者的章节、图片和封面规则保持一致
+    static MangaListing listManga(File mangaFolder, ChapterFilter filter) throws IOException {
+        File folder = mangaFolder.getAbsoluteFile();
+        Path root = folder.toPath();
+        MangaListing listing = new MangaListing(folder, Files.getLastModifiedTime(root).toMillis());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+            for (Path entry : stream) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                if (attrs.isDirectory()) {
+                    String path = entry.toString();
+                    long lastModified = attrs.lastModifiedTime().toMillis();
+                    boolean scanPages = filter == null || filter.shouldScan(path, lastModified);
+                    listing.chapters.add(new PendingChapter(path, entry.getFileName().toString(),
+                            lastModified, scanPages ? new ArrayList<PageFile>() : null));
+                } else if (attrs.isRegularFile() && ImageFiles.isSupportedImage(entry.getFileName().toString())) {
+                    listing.rootImages.add(toPageFile(entry, attrs));
+                }
+            }
+        }
+        return listing;
+    }
+
+    // 列出chapters中[from, to)范围内需要进入的章节目录中的图片，单个章节读取失败时按没有图片处理
+    static void readChapterPages(List<PendingChapter> chapters, int from, int to) {
+        for (int i = from; i < to; i++) {
+            PendingChapter chapter = chapters.get(i);
+            if (chapter.pages == null) {
+                continue;
+            }
+            try {
+                chapter.pages.addAll(readPages(new File(chapter.path).toPath()));
+            } catch (IOException e) {
+                // 单个章节读取失败不影响其他章节
+            }
+        }
+    }
+
+    // 列出单个章节目录中的图片路径，按文件名排序
+    public static List<String> listPages(File chapterFolder) throws IOException {
+        List<PageFile> pageFiles = listPageFiles(chapterFolder);
+        List<String> pages = new ArrayList<>(pageFiles.size());
+        for (PageFile page : pageFiles) {
+            pages.add(page.getPath());
+        }
+        return pages;
+    }
+
+    // 列出单个章节目录中的图片及其大小和修改时间，按文件名排序
+    public static List<PageFile> listPageFiles(File chapterFolder) throws IOException {
+        List<PageFile> pages = readPages(chapterFolder.toPath());
+        Collections.sort(pages, PAGE_ORDER);
+        return pages;
+    }
+
+    // 列出目录中的图片，不排序
+    private static List<PageFile> readPages(Path dir) throws IOException {
+        List<PageFile> pages = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                String fileName = entry.getFileName().toString();
+                if (!ImageFiles.isSupportedImage(fileName)) {
+                    continue;
+                }
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attrs.isRegularFile()) {
+                    pages.add(toPageFile(entry, attrs));
+                }
+            }
+        }
+        return pages;
+    }
+
+    private static PageFile toPageFile(Path file, BasicFileAttributes attrs) {
+        return new PageFile(file.toString(), file.getFileName().toString(),
+                attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    // 按文件名的自然顺序排序页面，"2.jpg"排在"10.jpg"之前
+    private static final Comparator<PageFile> PAGE_ORDER =
+            (p1, p2) -> NaturalOrder.compare(p1.getFileName(), p2.getFileName());
+
+    static final class PendingChapter {
+        final String path;
+        final String title;
+        final long lastModified;
+        final List<PageFile> pages; // 未进入目录时为null
+        final ChapterKey key; // 创建时解析一次，排序时直接比较
+
+        PendingChapter(String path, String title, long lastModified, List<PageFile> pages) {
+            this.path = path;
+            this.title = title;
+            this.key = ChapterKey.parse(title);
+            this.lastModified = lastModified;
+            this.pages = pages;
+        }
+    }
+
+    // 列出的漫画目录，章节页面读取完成后由assemble生成扫描结果
+    static final class MangaListing {
+        final File mangaFolder;
+        final long rootModified;
+        final List<PendingChapter> chapters = new ArrayList<>();
+        final List<PageFile> rootImages = new ArrayList<>();
+
+        MangaListing(File mangaFolder, long rootModified) {
+            this.mangaFolder = mangaFolder;
+            this.rootModified = rootModified;
+        }
+
+        MangaScan assemble() {
+            return LibraryWalker.assemble(mangaFolder, rootModified, chapters, rootImages);
+        }
+    }
+
+    // 排序章节和页面，计算章节号、排序位置和封面，生成不可变的扫描结果
+    static MangaScan assemble(File mangaFolder, long rootModified,
+                              List<PendingChapter> chapters, List<PageFile> rootImages) {
+        // 按预先解析好的章节键排序
+        Collections.sort(chapters, (c1, c2) -> c1.key.compareTo(c2.key));
+
+        List<ChapterScan> result = new ArrayList<>(chapters.size());
+        for (int i = 0; i < chapters.size(); i++) {
+            PendingChapter chapter = chapters.get(i);
+            if (chapter.pages != null) {
+                Collections.sort(chapter.pages, PAGE_ORDER);
+            }
+            result.add(new ChapterScan(chapter.path, chapter.title,
+                    chapter.key.getChapterNumber(i + 1), i,
+                    chapter.lastModified, chapter.pages));
+        }
+
+        return new MangaScan(mangaFolder.getAbsolutePath(), mangaFolder.getName(),
+                rootModified, findCover(result, rootImages), result);
+    }
+
+    // 第一个章节的第一张图片作为封面，章节中没有图片时使用漫画文件夹中的图片
+    private static String findCover(List<ChapterScan> sortedChapters, List<PageFile> rootImages) {
+        if (!sortedChapters.isEmpty()) {
+            ChapterScan first = sortedChapters.get(0);
+            List<PageFile> pages = first.getPageFiles();
+            if (!first.isScanned()) {
+                // 第一个章节被跳过时单独列出它的图片
+                try {
+                    pages = listPageFiles(new File(first.getPath()));
+                } catch (IOException e) {
+                    pages = Collections.emptyList();
+                }
+            }
+            if (!pages.isEmpty()) {
+                return pages.get(0).getPath();
+            }
+        }
+
+        if (!rootImages.isEmpty()) {
+            Collections.sort(rootImages, PAGE_ORDER);
+            return rootImages.get(0).getPath();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.manga.scan;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单本漫画的扫描结果（不可变），包含封面、按顺序排列的章节以及各章节的页面
+ */
+public final class MangaScan {
+    private final String path;
+    private final String title;
+    private final long lastModified;
+    private final String coverPath;
+    private final List<ChapterScan> chapters; // 所有章节文件夹，包括不含图片的文件夹
+
+    MangaScan(String path, String title, long lastModified, String coverPath, List<ChapterScan> chapters) {
+        this.path = path;
+        this.title = title;
+        this.lastModified = lastModified;
+        this.coverPath = coverPath;
+        this.chapters = Collections.unmodifiableList(chapters);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getCoverPath() {
+        return coverPath;
+    }
+
+    public List<ChapterScan> getChapters() {
+        return chapters;
+    }
+
+    // 包含图片的章节数量（只统计已进入的章节目录）
+    public int getValidChapterCount() {
+        int count = 0;
+        for (ChapterScan chapter : chapters) {
+            if (chapter.getPageCount() > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
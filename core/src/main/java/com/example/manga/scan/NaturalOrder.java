@@ -0,0 +1,84 @@
+package com.example.manga.scan;
+
+import java.util.Comparator;
+
+/**
+ * 自然顺序比较：连续的数字按数值比较，"2.jpg"排在"10.jpg"之前。
+ * 比较过程只逐个读取字符，不创建任何对象。
+ */
+public final class NaturalOrder {
+
+    public static final Comparator<String> COMPARATOR = NaturalOrder::compare;
+
+    private NaturalOrder() {
+    }
+
+    public static int compare(String s1, String s2) {
+        int i1 = 0;
+        int i2 = 0;
+        int length1 = s1.length();
+        int length2 = s2.length();
+
+        while (i1 < length1 && i2 < length2) {
+            char c1 = s1.charAt(i1);
+            char c2 = s2.charAt(i2);
+
+            if (isDigit(c1) && isDigit(c2)) {
+                // 跳过前导零后先比较数字位数，位数相同再逐位比较
+                int start1 = skipZeros(s1, i1);
+                int start2 = skipZeros(s2, i2);
+                int end1 = skipDigits(s1, start1);
+                int end2 = skipDigits(s2, start2);
+                int digits1 = end1 - start1;
+                int digits2 = end2 - start2;
+                if (digits1 != digits2) {
+                    return digits1 < digits2 ? -1 : 1;
+                }
+                for (int k = 0; k < digits1; k++) {
+                    char d1 = s1.charAt(start1 + k);
+                    char d2 = s2.charAt(start2 + k);
+                    if (d1 != d2) {
+                        return d1 < d2 ? -1 : 1;
+                    }
+                }
+                i1 = end1;
+                i2 = end2;
+                continue;
+            }
+
+            if (c1 != c2) {
+                char l1 = Character.toLowerCase(c1);
+                char l2 = Character.toLowerCase(c2);
+                if (l1 != l2) {
+                    return l1 < l2 ? -1 : 1;
+                }
+            }
+            i1++;
+            i2++;
+        }
+
+        if (i1 < length1 || i2 < length2) {
+            return i1 < length1 ? 1 : -1;
+        }
+        // 自然顺序相同（例如"01"和"1"，或只有大小写不同）时按原始字符串排序，保证结果稳定
+        return s1.compareTo(s2);
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipZeros(String s, int index) {
+        while (index < s.length() - 1 && s.charAt(index) == '0' && isDigit(s.charAt(index + 1))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipDigits(String s, int index) {
+        while (index < s.length() && isDigit(s.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+}
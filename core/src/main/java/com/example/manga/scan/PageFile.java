@@ -0,0 +1,34 @@
+package com.example.manga.scan;
+
+/**
+ * 章节中的一张图片（不可变），大小和修改时间在列目录时一并读取
+ */
+public final class PageFile {
+    private final String path;
+    private final String fileName;
+    private final long size;
+    private final long lastModified;
+
+    public PageFile(String path, String fileName, long size, long lastModified) {
+        this.path = path;
+        this.fileName = fileName;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
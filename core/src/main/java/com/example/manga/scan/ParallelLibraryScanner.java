@@ -0,0 +1,186 @@
+package com.example.manga.scan;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * 并行漫画扫描器。
+ * 每本漫画作为独立任务提交到并行度受限的ForkJoinPool中，章节很多的漫画会再按章节拆分。
+ * 结果按照输入顺序合并，与顺序扫描得到的顺序一致。
+ */
+public final class ParallelLibraryScanner {
+    public static final int DEFAULT_PARALLELISM = 4;
+    // 章节数量超过该值时按章节拆分任务
+    static final int CHAPTER_SPLIT_THRESHOLD = 32;
+
+    // 单本漫画扫描失败时的回调，可能在任意工作线程中调用
+    public interface ErrorHandler {
+        void onError(File mangaFolder, Exception e);
+    }
+
+    // 单本漫画扫描完成时的回调，在工作线程中调用，调用顺序不确定
+    public interface ResultListener {
+        void onScanned(int index, MangaScan scan);
+    }
+
+    private final int parallelism;
+
+    public ParallelLibraryScanner(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // 扫描所有漫画，进入每个章节目录
+    public List<MangaScan> scan(List<File> mangaFolders, ErrorHandler errorHandler) {
+        return scan(mangaFolders, null, errorHandler);
+    }
+
+    // 扫描所有漫画，filters为每本漫画提供章节过滤器，为null时进入所有章节目录。
+    // 返回按输入顺序排列的全部结果，边扫描边处理时使用submit，避免保留所有结果
+    public List<MangaScan> scan(List<File> mangaFolders, Function<File, LibraryWalker.ChapterFilter> filters,
+                                ErrorHandler errorHandler) {
+        final MangaScan[] results = new MangaScan[mangaFolders.size()];
+        try {
+            submit(mangaFolders, filters, errorHandler, (index, scan) -> results[index] = scan).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+
+        // 按输入顺序合并结果，跳过扫描失败的漫画
+        List<MangaScan> scans = new ArrayList<>(results.length);
+        for (MangaScan result : results) {
+            if (result != null) {
+                scans.add(result);
+            }
+        }
+        return scans;
+    }
+
+    // 在后台开始扫描并立即返回，每本漫画扫描完成后通知listener。
+    // 扫描器不保留结果，listener处理完的结果即可回收；返回的Future在所有漫画都已通知后完成
+    public Future<?> submit(final List<File> mangaFolders,
+                            final Function<File, LibraryWalker.ChapterFilter> filters,
+                            final ErrorHandler errorHandler, final ResultListener listener) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> {
+                if (!mangaFolders.isEmpty()) {
+                    new LibraryTask(mangaFolders, 0, mangaFolders.size(), filters, errorHandler, listener).invoke();
+                }
+            });
+        } finally {
+            // 已提交的任务会继续执行，完成后线程退出
+            pool.shutdown();
+        }
+    }
+
+    // 把漫画列表二分拆分，直到每个任务只处理一本漫画
+    private static final class LibraryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<File> mangaFolders;
+        private final int from;
+        private final int to;
+        private final Function<File, LibraryWalker.ChapterFilter> filters;
+        private final ErrorHandler errorHandler;
+        private final ResultListener listener;
+
+        LibraryTask(List<File> mangaFolders, int from, int to,
+                    Function<File, LibraryWalker.ChapterFilter> filters,
+                    ErrorHandler errorHandler, ResultListener listener) {
+            this.mangaFolders = mangaFolders;
+            this.from = from;
+            this.to = to;
+            this.filters = filters;
+            this.errorHandler = errorHandler;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LibraryTask(mangaFolders, from, middle, filters, errorHandler, listener),
+                        new LibraryTask(mangaFolders, middle, to, filters, errorHandler, listener));
+                return;
+            }
+
+            File mangaFolder = mangaFolders.get(from);
+            MangaScan scan = null;
+            try {
+                LibraryWalker.ChapterFilter filter = filters != null ? filters.apply(mangaFolder) : null;
+                scan = scanManga(mangaFolder, filter);
+            } catch (Exception e) {
+                // 单个漫画处理错误不应该影响其他漫画
+                if (errorHandler != null) {
+                    errorHandler.onError(mangaFolder, e);
+                }
+            }
+
+            if (listener != null) {
+                listener.onScanned(from, scan);
+            }
+        }
+    }
+
+    // 列出漫画目录，章节较少时在当前任务中列出各章节，较多时拆分为并行的章节任务。
+    // 列出、读取页面和汇总都由LibraryWalker完成，结果与LibraryWalker.walkManga一致
+    private static MangaScan scanManga(File mangaFolder, LibraryWalker.ChapterFilter filter) throws IOException {
+        LibraryWalker.MangaListing listing = LibraryWalker.listManga(mangaFolder, filter);
+        List<LibraryWalker.PendingChapter> chapters = listing.chapters;
+        if (chapters.size() > CHAPTER_SPLIT_THRESHOLD) {
+            ChapterTask.invokeAll(splitChapters(chapters));
+        } else {
+            LibraryWalker.readChapterPages(chapters, 0, chapters.size());
+        }
+        return listing.assemble();
+    }
+
+    private static List<ChapterTask> splitChapters(List<LibraryWalker.PendingChapter> chapters) {
+        List<ChapterTask> tasks = new ArrayList<>();
+        for (int start = 0; start < chapters.size(); start += CHAPTER_SPLIT_THRESHOLD) {
+            tasks.add(new ChapterTask(chapters, start, Math.min(start + CHAPTER_SPLIT_THRESHOLD, chapters.size())));
+        }
+        return tasks;
+    }
+
+    // 列出一段章节目录中的图片
+    private static final class ChapterTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<LibraryWalker.PendingChapter> chapters;
+        private final int from;
+        private final int to;
+
+        ChapterTask(List<LibraryWalker.PendingChapter> chapters, int from, int to) {
+            this.chapters = chapters;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            LibraryWalker.readChapterPages(chapters, from, to);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.manga.scan;
+
+/**
+ * 扫描日志接口，核心模块不依赖android.util.Log，由调用方决定输出位置
+ */
+public interface ScanLogger {
+    // 不输出任何日志，用于基准测试和压力测试
+    ScanLogger SILENT = new ScanLogger() {
+        @Override
+        public void debug(String message) {
+        }
+
+        @Override
+        public void error(String message, Throwable error) {
+        }
+    };
+
+    void debug(String message);
+
+    // error可能为null
+    void error(String message, Throwable error);
+}
@@ -0,0 +1,121 @@
+package com.example.manga.scan;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 流式扫描管线：发现 -> 遍历 -> 写入。
+ * 漫画文件夹在扫描器的工作线程中并行遍历，每本漫画完成后立即进入队列；
+ * 调用线程作为写入阶段，按数量或时间间隔把已完成的漫画分批交给Sink，
+ * 因此第一批结果不需要等待整个漫画库扫描完成。
+ */
+public final class ScanPipeline {
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 300;
+
+    // 写入阶段，总是在调用run的线程中执行
+    public interface Sink {
+        void persist(List<MangaScan> batch);
+    }
+
+    // 进度回调，在调用run的线程中执行
+    public interface ProgressListener {
+        void onProgress(ScanProgress progress);
+    }
+
+    private final ParallelLibraryScanner scanner;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    public ScanPipeline(ParallelLibraryScanner scanner) {
+        this(scanner, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public ScanPipeline(ParallelLibraryScanner scanner, int batchSize, long flushIntervalMillis) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.scanner = scanner;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    // 遍历mangaFolders并分批写入，阻塞到所有批次写入完成，返回最终的进度。
+    // 每批交给Sink之后管线不再引用这些结果，内存占用不随漫画库大小增长
+    public ScanProgress run(List<File> mangaFolders, Function<File, LibraryWalker.ChapterFilter> filters,
+                               ParallelLibraryScanner.ErrorHandler errorHandler,
+                               Sink sink, ProgressListener progressListener) {
+        final int discovered = mangaFolders.size();
+        final AtomicInteger scanned = new AtomicInteger();
+        int persisted = 0;
+        report(progressListener, discovered, 0, 0, false);
+
+        final BlockingQueue<MangaScan> queue = new LinkedBlockingQueue<>();
+        Future<?> future = scanner.submit(mangaFolders, filters, errorHandler, (index, scan) -> {
+            // 扫描失败的漫画没有结果可写入，只计入进度
+            if (scan != null) {
+                queue.add(scan);
+            }
+            scanned.incrementAndGet();
+        });
+
+        List<MangaScan> pending = new ArrayList<>();
+        long lastFlush = System.nanoTime();
+        try {
+            while (true) {
+                // 先判断是否完成：完成前的所有结果都已进入队列
+                boolean done = future.isDone();
+                MangaScan scan = done ? queue.poll() : queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (scan != null) {
+                    pending.add(scan);
+                    queue.drainTo(pending, batchSize - pending.size());
+                }
+
+                boolean drained = done && queue.isEmpty();
+                long now = System.nanoTime();
+                if (!pending.isEmpty() && (pending.size() >= batchSize || drained
+                        || now - lastFlush >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis))) {
+                    sink.persist(new ArrayList<>(pending));
+                    persisted += pending.size();
+                    report(progressListener, discovered, scanned.get(), persisted, false);
+                    pending.clear();
+                    lastFlush = now;
+                }
+
+                if (drained && pending.isEmpty()) {
+                    break;
+                }
+            }
+
+            future.get();
+            return report(progressListener, discovered, scanned.get(), persisted, true);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new ScanProgress(discovered, scanned.get(), persisted, false);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static ScanProgress report(ProgressListener listener, int discovered, int scanned, int persisted,
+                                       boolean finished) {
+        ScanProgress progress = new ScanProgress(discovered, scanned, persisted, finished);
+        if (listener != null) {
+            listener.onProgress(progress);
+        }
+        return progress;
+    }
+}
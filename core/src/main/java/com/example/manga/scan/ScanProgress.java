@@ -0,0 +1,43 @@
+package com.example.manga.scan;
+
+/**
+ * 扫描进度快照：发现的漫画数、已完成遍历的漫画数和已写入的漫画数。
+ */
+public final class ScanProgress {
+    private final int discovered;
+    private final int scanned;
+    private final int persisted;
+    private final boolean finished;
+
+    public ScanProgress(int discovered, int scanned, int persisted, boolean finished) {
+        this.discovered = discovered;
+        this.scanned = scanned;
+        this.persisted = persisted;
+        this.finished = finished;
+    }
+
+    // 发现阶段列出的漫画文件夹数量
+    public int getDiscovered() {
+        return discovered;
+    }
+
+    // 已完成遍历的漫画数量，包括遍历失败的漫画
+    public int getScanned() {
+        return scanned;
+    }
+
+    // 已写入存储的漫画数量
+    public int getPersisted() {
+        return persisted;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanProgress{discovered=" + discovered + ", scanned=" + scanned
+                + ", persisted=" + persisted + ", finished=" + finished + "}";
+    }
+}
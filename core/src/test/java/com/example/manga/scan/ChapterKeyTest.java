@@ -0,0 +1,109 @@
+package com.example.manga.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChapterKeyTest {
+
+    @Test
+    public void parsesDecimalChapterNumbers() {
+        assertEquals(12.5, ChapterKey.parse("12.5").getNumber(), 0);
+        assertEquals(12.5, ChapterKey.parse("第12.5话").getNumber(), 0);
+        assertEquals(12.5, ChapterKey.parse("c12.5").getNumber(), 0);
+        assertEquals(7, ChapterKey.parse("Chapter 007").getNumber(), 0);
+    }
+
+    @Test
+    public void decimalChapterSortsBetweenNeighbours() {
+        assertSorted("12", "12.5", "13");
+    }
+
+    @Test
+    public void parsesVolumeAndChapter() {
+        ChapterKey key = ChapterKey.parse("Vol.2 Ch.1");
+        assertEquals(2, key.getVolume());
+        assertEquals(1, key.getNumber(), 0);
+
+        key = ChapterKey.parse("第3卷 第20话");
+        assertEquals(3, key.getVolume());
+        assertEquals(20, key.getNumber(), 0);
+    }
+
+    // 卷号优先于章节号："Vol.1 Ch.10"在"Vol.2 Ch.1"之前
+    @Test
+    public void volumeSortsBeforeChapter() {
+        assertSorted("Vol.1 Ch.2", "Vol.1 Ch.10", "Vol.2 Ch.1", "Vol.10 Ch.1");
+    }
+
+    @Test
+    public void parsesChineseNumerals() {
+        assertEquals(12, ChapterKey.parse("第十二话").getNumber(), 0);
+        assertEquals(105, ChapterKey.parse("第一百零五话").getNumber(), 0);
+        assertEquals(2000, ChapterKey.parse("第两千话").getNumber(), 0);
+
+        ChapterKey key = ChapterKey.parse("第二十卷 第3话");
+        assertEquals(20, key.getVolume());
+        assertEquals(3, key.getNumber(), 0);
+
+        key = ChapterKey.parse("第三卷");
+        assertEquals(3, key.getVolume());
+        assertFalse(key.hasNumber());
+    }
+
+    @Test
+    public void chineseAndArabicNumeralsSortTogether() {
+        assertSorted("第一话", "第2话", "第十话", "第11话", "第十二话", "第一百话");
+    }
+
+    // 标题中的"一"不在"第"之后也不在章节标记之前，不当作章节号
+    @Test
+    public void ignoresChineseNumeralInTitle() {
+        assertEquals(5, ChapterKey.parse("一拳超人 5").getNumber(), 0);
+    }
+
+    @Test
+    public void nameWithoutNumberSortsByName() {
+        ChapterKey key = ChapterKey.parse("番外");
+        assertFalse(key.hasNumber());
+        assertEquals(ChapterKey.NO_VOLUME, key.getVolume());
+        assertSorted("Extra", "番外");
+    }
+
+    @Test
+    public void sameNumberFallsBackToNaturalOrder() {
+        assertSorted("第1话 上", "第1话 下");
+        assertTrue(ChapterKey.parse("ch1 part2").compareTo(ChapterKey.parse("ch1 part10")) < 0);
+    }
+
+    @Test
+    public void integerChapterNumberFallsBackToVolumeAndDefault() {
+        assertEquals(12, ChapterKey.parse("12.5").getChapterNumber(0));
+        assertEquals(3, ChapterKey.parse("第三卷").getChapterNumber(0));
+        assertEquals(99, ChapterKey.parse("番外").getChapterNumber(99));
+    }
+
+    // 打乱后重新排序得到的顺序与期望一致
+    private static void assertSorted(String... expected) {
+        List<String> names = new ArrayList<>(Arrays.asList(expected));
+        Collections.reverse(names);
+        List<ChapterKey> keys = new ArrayList<>();
+        for (String name : names) {
+            keys.add(ChapterKey.parse(name));
+        }
+        Collections.sort(keys);
+
+        List<String> sorted = new ArrayList<>();
+        for (ChapterKey key : keys) {
+            sorted.add(key.getName());
+        }
+        assertEquals(Arrays.asList(expected), sorted);
+    }
+}
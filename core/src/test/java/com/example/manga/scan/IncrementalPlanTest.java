@@ -0,0 +1,222 @@
+package com.example.manga.scan;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.manga.scan.LibraryWalkerTest.chapter;
+import static com.example.manga.scan.LibraryWalkerTest.image;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalPlanTest {
+    // 修改时间精确到秒的文件系统上也能区分前后两次扫描
+    private static final long BASE_TIME = 1_600_000_000_000L;
+    private static final long LATER = BASE_TIME + 60_000;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final LibraryIndexer indexer = new LibraryIndexer(null);
+    private File root;
+    private File mangaA;
+    private File mangaB;
+    private File a1;
+    private File a2;
+    private File b1;
+
+    @Before
+    public void setUp() throws IOException {
+        root = temp.newFolder("library");
+        mangaA = chapter(root, "A");
+        a1 = chapter(mangaA, "01", "1.jpg", "2.jpg");
+        a2 = chapter(mangaA, "02", "1.jpg");
+        mangaB = chapter(root, "B");
+        b1 = chapter(mangaB, "01", "1.jpg");
+        for (File dir : Arrays.asList(a1, a2, b1, mangaA, mangaB)) {
+            touch(dir, BASE_TIME);
+        }
+    }
+
+    @Test
+    public void unchangedLibrarySkipsEveryManga() throws IOException {
+        IncrementalPlan plan = plan(statesAfterFullScan());
+
+        assertTrue(plan.getChangedFolders().isEmpty());
+        assertEquals(Arrays.asList(mangaA.getAbsolutePath(), mangaB.getAbsolutePath()),
+                sorted(plan.getUnchangedMangaPaths()));
+        assertTrue(plan.getChangedChapterPages().isEmpty());
+        assertTrue(plan.getChangedStates().isEmpty());
+        for (File dir : Arrays.asList(mangaA, mangaB, a1, a2, b1)) {
+            assertTrue(plan.getSeenPaths().contains(dir.getAbsolutePath()));
+        }
+    }
+
+    @Test
+    public void unknownMangaIsRescanned() throws IOException {
+        IncrementalPlan plan = plan(Collections.<String, DirectoryState>emptyMap());
+
+        assertEquals(2, plan.getChangedFolders().size());
+        assertTrue(plan.getUnchangedMangaPaths().isEmpty());
+    }
+
+    // 新增章节只重新遍历这本漫画，已知章节不进入
+    @Test
+    public void addedChapterRescansOnlyThatManga() throws IOException {
+        Map<String, DirectoryState> states = statesAfterFullScan();
+        File a3 = chapter(mangaA, "03", "1.jpg", "2.jpg", "3.jpg");
+        touch(mangaA, LATER);
+
+        IncrementalPlan plan = plan(states);
+
+        assertEquals(Collections.singletonList(mangaA), plan.getChangedFolders());
+        assertEquals(Collections.singletonList(mangaB.getAbsolutePath()), plan.getUnchangedMangaPaths());
+
+        MangaScan scan = LibraryWalker.walkManga(mangaA, plan.getChapterFilters().apply(mangaA));
+        assertFalse(scan.getChapters().get(0).isScanned());
+        assertFalse(scan.getChapters().get(1).isScanned());
+        assertTrue(scan.getChapters().get(2).isScanned());
+        assertEquals(2, scan.getChapters().get(2).getSortOrder());
+
+        assertEquals(3, plan.addChangedManga(scan));
+        Map<String, DirectoryState> written = byPath(plan.getChangedStates());
+        assertEquals(2, written.size());
+        assertEquals(3, written.get(a3.getAbsolutePath()).getChildCount());
+        assertEquals(3, written.get(mangaA.getAbsolutePath()).getChildCount());
+        assertTrue(plan.getSeenPaths().contains(a1.getAbsolutePath()));
+    }
+
+    // 漫画目录未变化时只重新统计修改时间变化的章节
+    @Test
+    public void changedChapterInUnchangedMangaIsRecounted() throws IOException {
+        Map<String, DirectoryState> states = statesAfterFullScan();
+        image(b1, "2.jpg");
+        touch(b1, LATER);
+
+        IncrementalPlan plan = plan(states);
+
+        assertTrue(plan.getChangedFolders().isEmpty());
+        assertEquals(Integer.valueOf(2), plan.getChangedChapterPages().get(b1.getAbsolutePath()));
+        assertEquals(2, plan.getChangedChapterPageFiles().get(b1.getAbsolutePath()).size());
+        assertEquals(1, plan.getChangedChapterPages().size());
+        assertEquals(LATER, byPath(plan.getChangedStates()).get(b1.getAbsolutePath()).getLastModified());
+    }
+
+    // 章节变为没有图片时重新遍历这本漫画，章节数随之更新
+    @Test
+    public void emptiedChapterIsReported() throws IOException {
+        Map<String, DirectoryState> states = statesAfterFullScan();
+        assertTrue(new File(b1, "1.jpg").delete());
+        touch(b1, LATER);
+
+        IncrementalPlan plan = plan(states);
+
+        assertEquals(Collections.singletonList(mangaB), plan.getChangedFolders());
+        assertTrue(plan.getChangedChapterPages().isEmpty());
+        assertEquals(0, plan.addChangedManga(LibraryWalker.walkManga(mangaB, plan.getChapterFilters().apply(mangaB))));
+        assertTrue(plan.getEmptyChapterPaths().contains(b1.getAbsolutePath()));
+    }
+
+    // 扫描时还是空目录的章节没有章节记录，放入图片后作为新章节重新遍历这本漫画，
+    // 不能只更新页数（没有记录可以更新）
+    @Test
+    public void emptyChapterGainsPages() throws IOException {
+        File a3 = chapter(mangaA, "03");
+        touch(a3, BASE_TIME);
+        touch(mangaA, BASE_TIME);
+        Map<String, DirectoryState> states = statesAfterFullScan();
+        assertEquals(0, states.get(a3.getAbsolutePath()).getChildCount());
+
+        image(a3, "1.jpg");
+        image(a3, "2.jpg");
+        touch(a3, LATER);
+
+        IncrementalPlan plan = plan(states);
+
+        assertEquals(Collections.singletonList(mangaA), plan.getChangedFolders());
+        assertEquals(Collections.singletonList(mangaB.getAbsolutePath()), plan.getUnchangedMangaPaths());
+        assertTrue(plan.getChangedChapterPages().isEmpty());
+
+        MangaScan scan = LibraryWalker.walkManga(mangaA, plan.getChapterFilters().apply(mangaA));
+        assertFalse(scan.getChapters().get(0).isScanned());
+        assertFalse(scan.getChapters().get(1).isScanned());
+        ChapterScan gained = scan.getChapters().get(2);
+        assertTrue(gained.isScanned());
+        assertEquals(2, gained.getPageCount());
+
+        assertEquals(3, plan.addChangedManga(scan));
+        Map<String, DirectoryState> written = byPath(plan.getChangedStates());
+        assertEquals(2, written.get(a3.getAbsolutePath()).getChildCount());
+        assertEquals(3, written.get(mangaA.getAbsolutePath()).getChildCount());
+        assertFalse(plan.getEmptyChapterPaths().contains(a3.getAbsolutePath()));
+    }
+
+    // 删除的章节和漫画不在seenPaths中，调用方据此删除它们的记录
+    @Test
+    public void deletedDirectoriesAreNotSeen() throws IOException {
+        Map<String, DirectoryState> states = statesAfterFullScan();
+        assertTrue(new File(a2, "1.jpg").delete());
+        assertTrue(a2.delete());
+        touch(mangaA, LATER);
+
+        IncrementalPlan plan = indexer.planIncrementalScan(root.getAbsolutePath(),
+                Collections.singletonList(mangaA), states);
+        plan.addChangedManga(LibraryWalker.walkManga(mangaA, plan.getChapterFilters().apply(mangaA)));
+
+        assertTrue(plan.getSeenPaths().contains(a1.getAbsolutePath()));
+        assertFalse(plan.getSeenPaths().contains(a2.getAbsolutePath()));
+        assertFalse(plan.getSeenPaths().contains(mangaB.getAbsolutePath()));
+    }
+
+    private IncrementalPlan plan(Map<String, DirectoryState> states) {
+        return indexer.planIncrementalScan(root.getAbsolutePath(),
+                sortedFolders(LibraryWalker.listMangaFolders(root)), states);
+    }
+
+    // 与完整扫描写入的目录状态相同：漫画记录章节数，章节记录页数
+    private Map<String, DirectoryState> statesAfterFullScan() throws IOException {
+        Map<String, DirectoryState> states = new HashMap<>();
+        for (File mangaFolder : LibraryWalker.listMangaFolders(root)) {
+            MangaScan scan = LibraryWalker.walkManga(mangaFolder);
+            states.put(scan.getPath(), new DirectoryState(scan.getPath(), root.getAbsolutePath(),
+                    scan.getLastModified(), scan.getChapters().size()));
+            for (ChapterScan chapter : scan.getChapters()) {
+                states.put(chapter.getPath(), new DirectoryState(chapter.getPath(), scan.getPath(),
+                        chapter.getLastModified(), chapter.getPageCount()));
+            }
+        }
+        return states;
+    }
+
+    private static void touch(File dir, long time) {
+        assertTrue(dir.setLastModified(time));
+    }
+
+    private static Map<String, DirectoryState> byPath(List<DirectoryState> states) {
+        Map<String, DirectoryState> byPath = new HashMap<>();
+        for (DirectoryState state : states) {
+            byPath.put(state.getPath(), state);
+        }
+        return byPath;
+    }
+
+    private static List<File> sortedFolders(List<File> folders) {
+        Collections.sort(folders);
+        return folders;
+    }
+
+    private static List<String> sorted(List<String> paths) {
+        Collections.sort(paths);
+        return paths;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.manga.scan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LibraryWalkerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void walksCoverChaptersAndPagesInOnePass() throws IOException {
+        File manga = temp.newFolder("manga");
+        File ch10 = chapter(manga, "ch10", "10.jpg", "2.jpg", "1.jpg");
+        File ch2 = chapter(manga, "ch2", "b.png", "a.png");
+        Files.write(new File(ch2, "notes.txt").toPath(), new byte[]{1});
+
+        MangaScan scan = LibraryWalker.walkManga(manga);
+
+        assertEquals(manga.getAbsolutePath(), scan.getPath());
+        assertEquals("manga", scan.getTitle());
+        assertEquals(Arrays.asList(ch2.getAbsolutePath(), ch10.getAbsolutePath()), chapterPaths(scan));
+        assertEquals(2, scan.getChapters().get(0).getPageCount());
+        assertEquals(3, scan.getChapters().get(1).getPageCount());
+        assertEquals(Arrays.asList(path(ch10, "1.jpg"), path(ch10, "2.jpg"), path(ch10, "10.jpg")),
+                scan.getChapters().get(1).getPages());
+        assertEquals(path(ch2, "a.png"), scan.getCoverPath());
+        assertEquals(2, scan.getValidChapterCount());
+    }
+
+    // 第一个章节没有图片时使用漫画文件夹中的图片作为封面
+    @Test
+    public void coverFallsBackToRootImage() throws IOException {
+        File manga = temp.newFolder("manga");
+        chapter(manga, "00 empty");
+        chapter(manga, "01", "1.jpg");
+        image(manga, "cover.jpg");
+
+        MangaScan scan = LibraryWalker.walkManga(manga);
+
+        assertEquals(path(manga, "cover.jpg"), scan.getCoverPath());
+        assertEquals(2, scan.getChapters().size());
+        assertEquals(1, scan.getValidChapterCount());
+    }
+
+    @Test
+    public void mangaWithoutImagesHasNoCover() throws IOException {
+        File manga = temp.newFolder("manga");
+        chapter(manga, "01");
+
+        assertNull(LibraryWalker.walkManga(manga).getCoverPath());
+    }
+
+    // 排序位置按ChapterKey顺序分配，整数章节号相同的"12"和"12.5"位置不同
+    @Test
+    public void assignsSortOrderInChapterKeyOrder() throws IOException {
+        File manga = temp.newFolder("manga");
+        chapter(manga, "13", "1.jpg");
+        chapter(manga, "12.5", "1.jpg");
+        chapter(manga, "12", "1.jpg");
+
+        List<ChapterScan> chapters = LibraryWalker.walkManga(manga).getChapters();
+
+        assertEquals("12", chapters.get(0).getTitle());
+        assertEquals("12.5", chapters.get(1).getTitle());
+        assertEquals("13", chapters.get(2).getTitle());
+        for (int i = 0; i < chapters.size(); i++) {
+            assertEquals(i, chapters.get(i).getSortOrder());
+        }
+        assertEquals(chapters.get(0).getChapterNumber(), chapters.get(1).getChapterNumber());
+    }
+
+    // 被过滤的章节只记录名称和修改时间，仍然参与排序
+    @Test
+    public void filteredChaptersAreListedButNotEntered() throws IOException {
+        File manga = temp.newFolder("manga");
+        File skipped = chapter(manga, "01", "1.jpg", "2.jpg");
+        File entered = chapter(manga, "02", "1.jpg");
+
+        MangaScan scan = LibraryWalker.walkManga(manga,
+                (chapterPath, lastModified) -> !chapterPath.equals(skipped.getAbsolutePath()));
+
+        ChapterScan first = scan.getChapters().get(0);
+        assertEquals(skipped.getAbsolutePath(), first.getPath());
+        assertFalse(first.isScanned());
+        assertEquals(0, first.getPageCount());
+        assertEquals(0, first.getSortOrder());
+        assertEquals(skipped.lastModified(), first.getLastModified());
+
+        ChapterScan second = scan.getChapters().get(1);
+        assertEquals(entered.getAbsolutePath(), second.getPath());
+        assertTrue(second.isScanned());
+        assertEquals(1, second.getPageCount());
+        assertEquals(1, second.getSortOrder());
+
+        // 第一个章节被跳过时单独列出它的图片作为封面
+        assertEquals(path(skipped, "1.jpg"), scan.getCoverPath());
+    }
+
+    @Test
+    public void listsMangaFoldersOnly() throws IOException {
+        File root = temp.newFolder("library");
+        File a = chapter(root, "a");
+        File b = chapter(root, "b");
+        image(root, "stray.jpg");
+
+        List<String> names = new ArrayList<>();
+        for (File folder : LibraryWalker.listMangaFolders(root)) {
+            names.add(folder.getName());
+        }
+        names.sort(null);
+        assertEquals(Arrays.asList(a.getName(), b.getName()), names);
+    }
+
+    static File chapter(File parent, String name, String... images) throws IOException {
+        File dir = new File(parent, name);
+        assertTrue(dir.mkdirs());
+        for (String image : images) {
+            image(dir, image);
+        }
+        return dir;
+    }
+
+    static void image(File dir, String name) throws IOException {
+        Files.write(new File(dir, name).toPath(), new byte[]{0});
+    }
+
+    private static String path(File dir, String name) {
+        return new File(dir, name).getAbsolutePath();
+    }
+
+    private static List<String> chapterPaths(MangaScan scan) {
+        List<String> paths = new ArrayList<>();
+        for (ChapterScan chapter : scan.getChapters()) {
+            paths.add(chapter.getPath());
+        }
+        return paths;
+    }
+}
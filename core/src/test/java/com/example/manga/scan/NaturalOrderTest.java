@@ -0,0 +1,55 @@
+package com.example.manga.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NaturalOrderTest {
+
+    @Test
+    public void comparesDigitRunsByValue() {
+        assertTrue(NaturalOrder.compare("2.jpg", "10.jpg") < 0);
+        assertTrue(NaturalOrder.compare("page10", "page9") > 0);
+    }
+
+    // 超出long范围的数字按位数和逐位比较，不会溢出
+    @Test
+    public void comparesLongDigitRunsWithoutOverflow() {
+        assertTrue(NaturalOrder.compare("x123456789012345678901", "x123456789012345678902") < 0);
+        assertTrue(NaturalOrder.compare("x99999999999999999999", "x100000000000000000000") < 0);
+    }
+
+    @Test
+    public void ignoresCaseAndLeadingZeros() {
+        assertTrue(NaturalOrder.compare("a", "B") < 0);
+        assertTrue(NaturalOrder.compare("001.jpg", "2.jpg") < 0);
+    }
+
+    // 自然顺序相同时按原始字符串排序，结果稳定且不会返回0
+    @Test
+    public void breaksTiesByRawString() {
+        assertTrue(NaturalOrder.compare("01", "1") < 0);
+        assertTrue(NaturalOrder.compare("1", "01") > 0);
+        assertTrue(NaturalOrder.compare("A", "a") < 0);
+        assertEquals(0, NaturalOrder.compare("same", "same"));
+    }
+
+    @Test
+    public void shorterPrefixSortsFirst() {
+        assertTrue(NaturalOrder.compare("ab", "abc") < 0);
+        assertTrue(NaturalOrder.compare("page1", "page1a") < 0);
+    }
+
+    @Test
+    public void sortsPageNames() {
+        List<String> names = new ArrayList<>(Arrays.asList("10.png", "1.png", "2.png", "001a.png", "9.png"));
+        Collections.sort(names, NaturalOrder.COMPARATOR);
+        assertEquals(Arrays.asList("1.png", "001a.png", "2.png", "9.png", "10.png"), names);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.manga.scan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.manga.scan.LibraryWalkerTest.chapter;
+import static com.example.manga.scan.LibraryWalkerTest.image;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelLibraryScannerTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    // 并行扫描与LibraryWalker.walkManga的结果一致，包括按章节拆分任务的大漫画
+    @Test
+    public void matchesLibraryWalker() throws IOException {
+        File root = temp.newFolder("library");
+        File small = chapter(root, "small");
+        chapter(small, "00 empty");
+        chapter(small, "01", "2.jpg", "10.jpg");
+        image(small, "cover.jpg");
+        File large = chapter(root, "large");
+        for (int i = ParallelLibraryScanner.CHAPTER_SPLIT_THRESHOLD * 2; i > 0; i--) {
+            chapter(large, "ch" + i, "1.jpg", i + ".png");
+        }
+        List<File> folders = Arrays.asList(small, large);
+
+        List<MangaScan> scans = new ParallelLibraryScanner(4).scan(folders, null);
+
+        assertEquals(2, scans.size());
+        for (int i = 0; i < folders.size(); i++) {
+            assertSameScan(LibraryWalker.walkManga(folders.get(i)), scans.get(i));
+        }
+    }
+
+    private static void assertSameScan(MangaScan expected, MangaScan actual) {
+        assertEquals(expected.getPath(), actual.getPath());
+        assertEquals(expected.getLastModified(), actual.getLastModified());
+        assertEquals(expected.getCoverPath(), actual.getCoverPath());
+        assertEquals(expected.getValidChapterCount(), actual.getValidChapterCount());
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    private static List<String> describe(MangaScan scan) {
+        List<String> chapters = new ArrayList<>();
+        for (ChapterScan chapter : scan.getChapters()) {
+            chapters.add(chapter.getPath() + " #" + chapter.getSortOrder() + " " + chapter.getPages());
+        }
+        return chapters;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.manga.scan;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.manga.scan.LibraryWalkerTest.chapter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScanPipelineTest {
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    // 遍历失败的漫画只计入进度，其余漫画分批交给Sink，run返回最终的计数
+    @Test
+    public void persistsInBatchesAndReturnsCounts() throws IOException {
+        File root = temp.newFolder("library");
+        List<File> folders = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            folders.add(chapter(chapter(root, "manga" + i), "01", "1.jpg").getParentFile());
+        }
+        File missing = new File(root, "missing");
+        folders.add(missing);
+
+        final List<String> persisted = new ArrayList<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<File> failed = new ArrayList<>();
+        ScanPipeline pipeline = new ScanPipeline(new ParallelLibraryScanner(2), 2, 1000);
+        ScanProgress progress = pipeline.run(folders, null,
+                (mangaFolder, e) -> {
+                    synchronized (failed) {
+                        failed.add(mangaFolder);
+                    }
+                },
+                batch -> {
+                    batchSizes.add(batch.size());
+                    for (MangaScan scan : batch) {
+                        persisted.add(scan.getPath());
+                    }
+                }, null);
+
+        assertEquals(Collections.singletonList(missing), failed);
+        assertEquals(6, progress.getDiscovered());
+        assertEquals(6, progress.getScanned());
+        assertEquals(5, progress.getPersisted());
+        assertTrue(progress.isFinished());
+        for (int size : batchSizes) {
+            assertTrue(size <= 2);
+        }
+        Collections.sort(persisted);
+        List<String> expected = new ArrayList<>();
+        for (File folder : folders.subList(0, 5)) {
+            expected.add(folder.getAbsolutePath());
+        }
+        assertEquals(expected, persisted);
+    }
+
+    @Test
+    public void emptyLibraryFinishesImmediately() {
+        ScanProgress progress = new ScanPipeline(new ParallelLibraryScanner(2))
+                .run(Collections.<File>emptyList(), null, null, batch -> {
+                    throw new AssertionError("nothing to persist");
+                }, null);
+
+        assertEquals(Arrays.asList(0, 0, 0), Arrays.asList(
+                progress.getDiscovered(), progress.getScanned(), progress.getPersisted()));
+        assertTrue(progress.isFinished());
+    }
+}
@@ -16,3 +16,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "manga"
 include(":app")
+include(":core")
+include(":benchmark")